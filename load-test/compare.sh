@@ -0,0 +1,51 @@
+#!/usr/bin/env bash
+# Compares throughput and p99 latency of platform and virtual request threads at 10k concurrent connections.
+# Requires JDK 21 and k6. Usage: load-test/compare.sh [duration, default 60s]
+# Results: target/load/<mode>.json (k6 summaries) and target/load/comparison.txt
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+DURATION="${1:-60s}"
+VUS="${VUS:-10000}"
+PORT="${PORT:-8080}"
+OUT=target/load
+mkdir -p "$OUT"
+
+./mvnw -q -Pjava21 -DskipTests package
+JAR=$(ls target/*.jar | grep -v original | head -n 1)
+
+run() {
+    local mode=$1 virtual=$2
+    local data
+    data=$(mktemp -d)
+    # durable writes, so request threads block on the log like in production
+    java -jar "$JAR" \
+        --server.port="$PORT" \
+        --server.tomcat.max-connections=$((VUS + 1000)) \
+        --server.tomcat.accept-count=1000 \
+        --spring.threads.virtual.enabled="$virtual" \
+        --user.persistence.directory="$data" \
+        --user.persistence.fsync-policy=PER_BATCH > "$OUT/$mode.log" 2>&1 &
+    local pid=$!
+    until curl -sf "http://localhost:$PORT/users/cache/stats" > /dev/null; do sleep 1; done
+    k6 run --quiet -e BASE_URL="http://localhost:$PORT" -e VUS="$VUS" -e DURATION="$DURATION" \
+        --summary-export "$OUT/$mode.json" load-test/users.js
+    kill "$pid"
+    wait "$pid" || true
+    rm -rf "$data"
+}
+
+run platform false
+run virtual true
+
+{
+    printf '%-10s %12s %10s %10s %8s\n' mode 'requests/s' 'p50 ms' 'p99 ms' failed
+    for mode in platform virtual; do
+        jq -r --arg mode "$mode" '[$mode,
+                (.metrics.http_reqs.rate | floor),
+                (.metrics.http_req_duration["p(50)"] * 100 | floor / 100),
+                (.metrics.http_req_duration["p(99)"] * 100 | floor / 100),
+                .metrics.http_req_failed.value] | @tsv' "$OUT/$mode.json" \
+            | awk -F'\t' '{ printf "%-10s %12s %10s %10s %8s\n", $1, $2, $3, $4, $5 }'
+    done
+} | tee "$OUT/comparison.txt"
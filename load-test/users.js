@@ -0,0 +1,62 @@
+// k6 load test of the user API: mostly reads by email, some updates and paged searches.
+// Run through compare.sh, or directly: k6 run -e BASE_URL=http://localhost:8080 -e VUS=10000 load-test/users.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const USERS = parseInt(__ENV.USERS || '10000');
+const BATCH = 10000;
+
+export const options = {
+    scenarios: {
+        connections: {
+            executor: 'constant-vus',
+            vus: parseInt(__ENV.VUS || '10000'),
+            duration: __ENV.DURATION || '60s',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(90)', 'p(99)', 'max'],
+    setupTimeout: '120s',
+};
+
+function email(i) {
+    return `load${i}@example.com`;
+}
+
+function user(i) {
+    return {
+        email: email(i),
+        firstName: 'Load',
+        lastName: `User${i}`,
+        birthDate: `19${50 + (i % 50)}-0${1 + (i % 9)}-1${i % 10}`,
+        address: 'Kyiv',
+        phoneNumber: '+380000000000',
+    };
+}
+
+export function setup() {
+    for (let start = 0; start < USERS; start += BATCH) {
+        const users = [];
+        for (let i = start; i < Math.min(start + BATCH, USERS); i++) {
+            users.push(user(i));
+        }
+        http.post(`${BASE_URL}/users/batch?upsert=true`, JSON.stringify(users),
+            { headers: { 'Content-Type': 'application/json' } });
+    }
+}
+
+export default function () {
+    const i = Math.floor(Math.random() * USERS);
+    const roll = Math.random();
+    let response;
+    if (roll < 0.8) {
+        response = http.get(`${BASE_URL}/users/${email(i)}`, { tags: { name: 'get' } });
+    } else if (roll < 0.9) {
+        response = http.put(`${BASE_URL}/users/${email(i)}`, JSON.stringify(user(i)),
+            { headers: { 'Content-Type': 'application/json' }, tags: { name: 'put' } });
+    } else {
+        response = http.get(`${BASE_URL}/users/search?from=1960-01-01&to=1970-01-01&limit=50`,
+            { tags: { name: 'search' } });
+    }
+    check(response, { 'status is 200': (r) => r.status === 200 });
+}
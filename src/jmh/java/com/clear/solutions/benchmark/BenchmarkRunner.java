@@ -0,0 +1,88 @@
+package com.clear.solutions.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.experimental.UtilityClass;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks single-threaded and with one thread per core, writing JMH JSON results
+ * to {@code threads-<n>.json} plus the storage footprint to {@code footprint.json}, the size of a search
+ * response in each body format to {@code payload-sizes.json} and gzipped at each level to
+ * {@code compression-sizes.json}, so runs of different releases can be diffed.
+ * {@link UserRepositoryWriteBenchmark} instead runs with 1, 2, 4, ... threads up to one per core and writes
+ * {@code write-scaling-threads-<n>.json}.
+ * <p>
+ * Arguments: the output directory and an optional benchmark include pattern.
+ */
+@UtilityClass
+public class BenchmarkRunner {
+    private static final int[] FOOTPRINT_USER_COUNTS = {1_000, 100_000, 1_000_000};
+    private static final String[] STORAGES = {"heap", "off-heap", "sharded"};
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Path output = Path.of(args.length > 0 ? args[0] : "target/jmh");
+        String include = args.length > 1 ? args[1] : ".*";
+        Files.createDirectories(output);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        String writeScaling = UserRepositoryWriteBenchmark.class.getName();
+        boolean onlyWriteScaling = include.contains(UserRepositoryWriteBenchmark.class.getSimpleName());
+        for (int threads : onlyWriteScaling ? new int[0] : cores > 1 ? new int[] {1, cores} : new int[] {1}) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .exclude(writeScaling)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(output.resolve("threads-" + threads + ".json").toString())
+                    .build();
+            new Runner(options).run();
+        }
+        if (Pattern.compile(include).matcher(writeScaling).find()) {
+            for (int threads : scalingThreadCounts(cores)) {
+                Options options = new OptionsBuilder()
+                        .include(writeScaling)
+                        .threads(threads)
+                        .resultFormat(ResultFormatType.JSON)
+                        .result(output.resolve("write-scaling-threads-" + threads + ".json").toString())
+                        .build();
+                new Runner(options).run();
+            }
+        }
+
+        List<Map<String, Object>> footprints = new ArrayList<>();
+        for (String storage : STORAGES) {
+            for (int userCount : FOOTPRINT_USER_COUNTS) {
+                footprints.add(StorageFootprint.measure(storage, userCount));
+            }
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter()
+                .writeValue(output.resolve("footprint.json").toFile(), footprints);
+        new ObjectMapper().writerWithDefaultPrettyPrinter()
+                .writeValue(output.resolve("payload-sizes.json").toFile(), SearchPayloadBenchmark.payloadSizes());
+        new ObjectMapper().writerWithDefaultPrettyPrinter()
+                .writeValue(output.resolve("compression-sizes.json").toFile(), CompressionBenchmark.compressedSizes());
+    }
+
+    /**
+     * 1, 2, 4, ... threads, ending with one per core.
+     */
+    private static int[] scalingThreadCounts(int cores) {
+        List<Integer> counts = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(cores);
+        return counts.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
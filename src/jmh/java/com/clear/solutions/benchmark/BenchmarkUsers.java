@@ -0,0 +1,69 @@
+package com.clear.solutions.benchmark;
+
+import java.time.LocalDate;
+import com.clear.solutions.metrics.UserMetrics;
+import com.clear.solutions.model.User;
+import com.clear.solutions.repository.InMemoryUserRepository;
+import com.clear.solutions.repository.OffHeapUserRepository;
+import com.clear.solutions.repository.ShardedUserRepository;
+import com.clear.solutions.repository.UserRepository;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Deterministic benchmark data: user {@code i} always has the same email and birth date,
+ * and birth dates are spread over fifty years so range searches hit a stable share of the store.
+ */
+@UtilityClass
+public class BenchmarkUsers {
+    public static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+    public static final int BIRTH_DATE_SPREAD_DAYS = 365 * 50;
+    public static final int PARALLEL_SEARCH_THRESHOLD = 10_000;
+
+    public static String email(long index) {
+        return "user" + index + "@example.com";
+    }
+
+    public static User user(long index) {
+        return User.builder()
+                .email(email(index))
+                .firstName("First" + index)
+                .lastName("Last" + index)
+                .birthDate(FIRST_BIRTH_DATE.plusDays(index * 7919 % BIRTH_DATE_SPREAD_DAYS))
+                .address(index + " Benchmark street")
+                .phoneNumber("+380" + (100_000_000 + index))
+                .build();
+    }
+
+    /**
+     * @param storage {@code heap}, {@code off-heap} or {@code sharded}, as in {@code user.repository.storage}
+     */
+    public static UserRepository populate(String storage, int userCount) {
+        UserRepository userRepository = repository(storage);
+        for (int i = 0; i < userCount; i++) {
+            userRepository.insertIfAbsent(user(i));
+        }
+        return userRepository;
+    }
+
+    /**
+     * Empty store of the given storage; sharded stores get one shard per core.
+     */
+    public static UserRepository repository(String storage) {
+        return switch (storage) {
+            case "off-heap" -> new OffHeapUserRepository();
+            case "sharded" -> new ShardedUserRepository(0);
+            default -> new InMemoryUserRepository();
+        };
+    }
+
+    /**
+     * @param metrics {@code off} for meters that record nothing, or {@code prometheus}
+     */
+    public static UserMetrics metrics(String metrics) {
+        return "prometheus".equals(metrics)
+                ? new UserMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT))
+                : UserMetrics.NOOP;
+    }
+}
@@ -0,0 +1,94 @@
+package com.clear.solutions.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import com.clear.solutions.compression.ResponseCompression;
+import com.clear.solutions.json.UserJsonCodec;
+import com.clear.solutions.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Gzipping a 100k-user JSON search response at each deflate level, written in the chunks the
+ * message converters flush, as the response filters compress it. The bytes saved at each level are
+ * measured separately by {@link #compressedSizes()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class CompressionBenchmark {
+    private static final int USER_COUNT = 100_000;
+    private static final int CHUNK_SIZE = 32 * 1024;
+
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8", "9"})
+    public int level;
+
+    private byte[] payload;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(USER_COUNT * 40);
+
+    @Setup
+    public void setUp() {
+        payload = payload();
+    }
+
+    @Benchmark
+    public int gzip() throws IOException {
+        out.reset();
+        compress(payload, level, out);
+        return out.size();
+    }
+
+    /**
+     * Compressed bytes of the 100k-user response at every level.
+     */
+    public static List<Map<String, Object>> compressedSizes() throws IOException {
+        byte[] payload = payload();
+        List<Map<String, Object>> sizes = new ArrayList<>();
+        for (int level = 1; level <= 9; level++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 4);
+            compress(payload, level, out);
+            Map<String, Object> size = new LinkedHashMap<>();
+            size.put("level", level);
+            size.put("bytes", payload.length);
+            size.put("compressedBytes", out.size());
+            size.put("ratio", (double) out.size() / payload.length);
+            sizes.add(size);
+        }
+        return sizes;
+    }
+
+    private static byte[] payload() {
+        List<User> users = new ArrayList<>(USER_COUNT);
+        for (int i = 0; i < USER_COUNT; i++) {
+            users.add(BenchmarkUsers.user(i).withVersion(i + 1));
+        }
+        return UserJsonCodec.toJson(users);
+    }
+
+    private static void compress(byte[] payload, int level, OutputStream out) throws IOException {
+        try (GZIPOutputStream gzip = ResponseCompression.gzip(out, level)) {
+            for (int offset = 0; offset < payload.length; offset += CHUNK_SIZE) {
+                gzip.write(payload, offset, Math.min(CHUNK_SIZE, payload.length - offset));
+            }
+        }
+    }
+}
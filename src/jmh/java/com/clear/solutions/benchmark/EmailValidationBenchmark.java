@@ -0,0 +1,53 @@
+package com.clear.solutions.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import com.clear.solutions.service.EmailAddressValidator;
+import com.clear.solutions.service.UserValidatorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link EmailAddressValidator} against the regex it replaces. The hostile input is a long dotted
+ * domain without a valid top-level domain, which makes the regex backtrack quadratically.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmailValidationBenchmark {
+
+    @Param({"valid", "invalid", "hostile"})
+    public String input;
+
+    private String email;
+
+    @Setup
+    public void setUp() {
+        email = switch (input) {
+            case "valid" -> "first.last+tag@mail.example.com";
+            case "invalid" -> "first.last+tag@mail.example.c0m";
+            default -> "user@" + "a.".repeat(2_000) + "!";
+        };
+    }
+
+    @Benchmark
+    public boolean regex() {
+        return UserValidatorService.VALID_EMAIL_ADDRESS_REGEX.matcher(email).matches();
+    }
+
+    @Benchmark
+    public boolean handWritten() {
+        return EmailAddressValidator.isValid(email);
+    }
+}
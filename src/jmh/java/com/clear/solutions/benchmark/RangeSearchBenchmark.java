@@ -0,0 +1,63 @@
+package com.clear.solutions.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import com.clear.solutions.model.User;
+import com.clear.solutions.repository.UserRepository;
+import com.clear.solutions.service.ParallelRangeSearch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to materialize a search covering most of the store, copied on the calling thread only
+ * ({@code threshold} above the store size) or split across the search pool above the default threshold.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class RangeSearchBenchmark {
+    private static final LocalDate FROM = LocalDate.of(1955, 1, 1);
+    private static final LocalDate TO = LocalDate.of(1995, 1, 1);
+
+    @Param({"100000", "1000000"})
+    public int userCount;
+
+    @Param({"heap", "off-heap", "sharded"})
+    public String storage;
+
+    @Param({"2147483647", "10000"})
+    public int threshold;
+
+    private UserRepository userRepository;
+    private ParallelRangeSearch rangeSearch;
+
+    @Setup
+    public void populate() {
+        userRepository = BenchmarkUsers.populate(storage, userCount);
+        rangeSearch = new ParallelRangeSearch(threshold, 0);
+    }
+
+    @TearDown
+    public void stopSearch() {
+        rangeSearch.stop();
+    }
+
+    @Benchmark
+    public List<User> searchUsers() {
+        return rangeSearch.search(userRepository, FROM, TO);
+    }
+}
@@ -0,0 +1,125 @@
+package com.clear.solutions.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import com.clear.solutions.json.UserJsonCodec;
+import com.clear.solutions.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Encoding and decoding a 100k-user search response in each body format of the {@code /users} endpoints:
+ * {@code json} with the user codec, {@code json-jackson}, {@code cbor} and {@code smile}.
+ * The payload size of each format is measured separately by {@link #payloadSizes()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class SearchPayloadBenchmark {
+    static final String[] FORMATS = {"json", "json-jackson", "cbor", "smile"};
+    private static final int USER_COUNT = 100_000;
+    private static final TypeReference<List<User>> USER_LIST = new TypeReference<>() {
+    };
+
+    @Param({"json", "json-jackson", "cbor", "smile"})
+    public String format;
+
+    private List<User> users;
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private byte[] payload;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(USER_COUNT * 200);
+
+    @Setup
+    public void setUp() throws IOException {
+        users = users();
+        ObjectMapper mapper = mapper(format);
+        writer = mapper.writerFor(USER_LIST);
+        reader = mapper.readerFor(USER_LIST);
+        payload = encode(format, users, writer);
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        out.reset();
+        if ("json".equals(format)) {
+            UserJsonCodec.write(users, out);
+        } else {
+            writer.writeValue(out, users);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public List<User> decode() throws IOException {
+        return "json".equals(format) ? UserJsonCodec.readUsers(payload) : reader.readValue(payload);
+    }
+
+    /**
+     * Bytes of the 100k-user response in every format.
+     */
+    public static List<Map<String, Object>> payloadSizes() throws IOException {
+        List<User> users = users();
+        List<Map<String, Object>> sizes = new ArrayList<>();
+        for (String format : FORMATS) {
+            int bytes = encode(format, users, mapper(format).writerFor(USER_LIST)).length;
+            Map<String, Object> size = new LinkedHashMap<>();
+            size.put("format", format);
+            size.put("userCount", users.size());
+            size.put("bytes", bytes);
+            size.put("bytesPerUser", bytes / users.size());
+            sizes.add(size);
+        }
+        return sizes;
+    }
+
+    private static List<User> users() {
+        List<User> users = new ArrayList<>(USER_COUNT);
+        for (int i = 0; i < USER_COUNT; i++) {
+            users.add(BenchmarkUsers.user(i).withVersion(i + 1));
+        }
+        return users;
+    }
+
+    /**
+     * A mapper for the format configured like Spring Boot's, as the message converters use it.
+     */
+    private static ObjectMapper mapper(String format) {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return switch (format) {
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            default -> builder.build();
+        };
+    }
+
+    private static byte[] encode(String format, List<User> users, ObjectWriter writer) throws IOException {
+        return "json".equals(format) ? UserJsonCodec.toJson(users) : writer.writeValueAsBytes(users);
+    }
+}
@@ -0,0 +1,46 @@
+package com.clear.solutions.benchmark;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import com.clear.solutions.repository.UserRepository;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Retained heap and direct memory of a populated store, measured after full GCs.
+ * JMH measures time and allocation rates, not what stays live, so this is taken separately.
+ */
+@UtilityClass
+public class StorageFootprint {
+
+    public static Map<String, Object> measure(String storage, int userCount) {
+        long heapBefore = usedHeap();
+        long directBefore = usedDirect();
+        UserRepository userRepository = BenchmarkUsers.populate(storage, userCount);
+        long heap = usedHeap() - heapBefore;
+        long direct = usedDirect() - directBefore;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("storage", storage);
+        result.put("userCount", userRepository.size());
+        result.put("heapBytes", heap);
+        result.put("directBytes", direct);
+        result.put("heapBytesPerUser", heap / Math.max(1, userCount));
+        return result;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedDirect() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> "direct".equals(pool.getName()))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+}
@@ -0,0 +1,80 @@
+package com.clear.solutions.benchmark;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import com.clear.solutions.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Attribute searches answered by the {@code index} of {@link UserRepository#listByFilter} or by a {@code scan}
+ * of the whole store. {@code lastName} matches about one user in ninety; {@code combined} intersects it with
+ * a first name prefix matching about one in nine and the email domain and phone number all users share.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class UserFilterBenchmark {
+    @Param({"100000", "1000000"})
+    public int userCount;
+
+    @Param({"heap", "off-heap", "sharded"})
+    public String storage;
+
+    @Param({"index", "scan"})
+    public String lookup;
+
+    @Param({"lastName", "combined"})
+    public String filter;
+
+    private UserRepository userRepository;
+    private UserFilter userFilter;
+
+    @Setup
+    public void populate() {
+        userRepository = BenchmarkUsers.populate(storage, userCount);
+        userFilter = "combined".equals(filter)
+                ? UserFilter.builder().emailDomain("example.com").firstNamePrefix("first1").lastNamePrefix("last12")
+                        .hasPhoneNumber(true).build()
+                : UserFilter.builder().lastNamePrefix("last12").build();
+    }
+
+    @Benchmark
+    public List<User> listByFilter() {
+        if ("index".equals(lookup)) {
+            return userRepository.listByFilter(userFilter);
+        }
+        return userRepository.findAll().stream()
+                .filter(this::matches)
+                .sorted(Comparator.comparing(UserRepository::birthDateKey))
+                .toList();
+    }
+
+    private boolean matches(User user) {
+        return startsWith(user.getLastName(), userFilter.getLastNamePrefix())
+                && startsWith(user.getFirstName(), userFilter.getFirstNamePrefix())
+                && (userFilter.getEmailDomain() == null
+                        || user.getEmail().toLowerCase(Locale.ROOT).endsWith("@" + userFilter.getEmailDomain()))
+                && (userFilter.getHasPhoneNumber() == null || user.getPhoneNumber() != null);
+    }
+
+    private static boolean startsWith(String name, String prefix) {
+        return prefix == null || name.toLowerCase(Locale.ROOT).startsWith(prefix);
+    }
+}
@@ -0,0 +1,101 @@
+package com.clear.solutions.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import com.clear.solutions.json.UserJsonCodec;
+import com.clear.solutions.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Serializing and parsing a single user and a 10k-user search result with the {@code jackson}
+ * {@link ObjectMapper} the application had before, configured like Spring Boot's, or the hand-written
+ * {@code codec}. Lists are written to a stream, as the message converters do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class UserJsonBenchmark {
+    private static final int LIST_SIZE = 10_000;
+
+    @Param({"jackson", "codec"})
+    public String codec;
+
+    private ObjectWriter userWriter;
+    private ObjectWriter listWriter;
+    private ObjectReader userReader;
+    private ObjectReader listReader;
+    private User user;
+    private List<User> users;
+    private byte[] userJson;
+    private byte[] listJson;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(LIST_SIZE * 256);
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        TypeReference<List<User>> listType = new TypeReference<>() {
+        };
+        userWriter = objectMapper.writerFor(User.class);
+        listWriter = objectMapper.writerFor(listType);
+        userReader = objectMapper.readerFor(User.class);
+        listReader = objectMapper.readerFor(listType);
+
+        user = BenchmarkUsers.user(42).withVersion(7);
+        users = new ArrayList<>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            users.add(BenchmarkUsers.user(i).withVersion(i));
+        }
+        userJson = userWriter.writeValueAsBytes(user);
+        listJson = listWriter.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public byte[] writeUser() throws IOException {
+        return "codec".equals(codec) ? UserJsonCodec.toJson(user) : userWriter.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public int writeList() throws IOException {
+        out.reset();
+        if ("codec".equals(codec)) {
+            UserJsonCodec.write(users, out);
+        } else {
+            listWriter.writeValue(out, users);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public User readUser() throws IOException {
+        return "codec".equals(codec) ? UserJsonCodec.readUser(userJson) : userReader.readValue(userJson);
+    }
+
+    @Benchmark
+    public List<User> readList() throws IOException {
+        return "codec".equals(codec) ? UserJsonCodec.readUsers(listJson) : listReader.readValue(listJson);
+    }
+}
@@ -0,0 +1,91 @@
+package com.clear.solutions.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import com.clear.solutions.model.User;
+import com.clear.solutions.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Write throughput of the heap and sharded stores. {@link BenchmarkRunner} runs it with 1, 2, 4, ...
+ * threads up to one per core, so the results show how writes scale with the cores writing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class UserRepositoryWriteBenchmark {
+    private static final int USER_COUNT = 100_000;
+
+    @Param({"heap", "sharded"})
+    public String storage;
+
+    private UserRepository userRepository;
+
+    @Setup(Level.Iteration)
+    public void populate() {
+        userRepository = BenchmarkUsers.populate(storage, USER_COUNT);
+    }
+
+    /**
+     * Replaces existing users, which moves their birth date index entries.
+     */
+    @Benchmark
+    public User save(Writer writer) {
+        return userRepository.save(writer.nextUser());
+    }
+
+    @Benchmark
+    public User update(Writer writer) {
+        return userRepository.update(writer.nextUser().getEmail(), user -> user.withAddress("Updated street"));
+    }
+
+    /**
+     * Removes a user and adds it back, so the store size stays constant.
+     */
+    @Benchmark
+    public User removeAndInsert(Writer writer) {
+        User user = writer.nextUser();
+        userRepository.remove(user.getEmail());
+        return userRepository.insertIfAbsent(user);
+    }
+
+    /**
+     * Cycles through the users owned by the current thread, so threads never write the same user.
+     * Users are prebuilt so the benchmark measures the store rather than building users.
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+        private User[] users;
+        private int next;
+
+        @Setup
+        public void setUp(ThreadParams threadParams) {
+            int threadIndex = threadParams.getThreadIndex();
+            int threadCount = threadParams.getThreadCount();
+            users = new User[Math.max(1, USER_COUNT / threadCount)];
+            for (int i = 0; i < users.length; i++) {
+                users[i] = BenchmarkUsers.user(threadIndex + (long) threadCount * i);
+            }
+        }
+
+        User nextUser() {
+            User user = users[next];
+            next = (next + 1) % users.length;
+            return user;
+        }
+    }
+}
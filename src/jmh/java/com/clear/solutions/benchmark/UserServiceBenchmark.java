@@ -0,0 +1,130 @@
+package com.clear.solutions.benchmark;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import com.clear.solutions.metrics.UserMetrics;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserPage;
+import com.clear.solutions.repository.UserRepository;
+import com.clear.solutions.service.ParallelRangeSearch;
+import com.clear.solutions.service.UserServiceImpl;
+import com.clear.solutions.service.UserValidatorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Latency distribution (including p99) of the {@link UserServiceImpl} operations per store size
+ * and storage backend. The store is rebuilt before every iteration, so users created during one
+ * iteration don't skew the next. Thread counts are set by {@link BenchmarkRunner}.
+ * <p>
+ * {@code metrics} compares the operations without meters and recording into a Prometheus registry,
+ * which shows the cost of the always-on instrumentation.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class UserServiceBenchmark {
+    private static final int PAGE_SIZE = 100;
+    private static final Map<String, String> ADDRESS_PATCH = Map.of("address", "Patched street");
+
+    @Param({"1000", "100000", "1000000"})
+    public int userCount;
+
+    @Param({"heap", "off-heap", "sharded"})
+    public String storage;
+
+    @Param({"off", "prometheus"})
+    public String metrics;
+
+    private final AtomicLong nextId = new AtomicLong();
+    private final ParallelRangeSearch rangeSearch = new ParallelRangeSearch(BenchmarkUsers.PARALLEL_SEARCH_THRESHOLD, 0);
+    private UserRepository userRepository;
+    private UserServiceImpl userService;
+
+    @Setup(Level.Iteration)
+    public void populate() {
+        userRepository = BenchmarkUsers.populate(storage, userCount);
+        UserMetrics userMetrics = BenchmarkUsers.metrics(metrics);
+        UserValidatorService validatorService = new UserValidatorService();
+        validatorService.setMinAge(18);
+        validatorService.setMetrics(userMetrics);
+        userService = new UserServiceImpl(userRepository, validatorService, userMetrics, rangeSearch);
+        nextId.set(userCount);
+    }
+
+    @TearDown
+    public void stopSearch() {
+        rangeSearch.stop();
+    }
+
+    @Benchmark
+    public User createUser() {
+        return userService.createUser(BenchmarkUsers.user(nextId.getAndIncrement()));
+    }
+
+    @Benchmark
+    public User getByEmail(Picker picker) {
+        return userService.getByEmail(BenchmarkUsers.email(picker.next(userCount)));
+    }
+
+    @Benchmark
+    public UserPage searchUsers(Picker picker) {
+        LocalDate from = BenchmarkUsers.FIRST_BIRTH_DATE.plusDays(picker.next(BenchmarkUsers.BIRTH_DATE_SPREAD_DAYS));
+        return userService.searchUsers(from, from.plusMonths(1), null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public User patchUser(Picker picker) {
+        return userService.patchUser(BenchmarkUsers.email(picker.next(userCount)), ADDRESS_PATCH);
+    }
+
+    /**
+     * Deletes a user and puts it back through the repository, so the store size stays constant.
+     */
+    @Benchmark
+    public boolean deleteUser(Picker picker) {
+        long id = picker.next(userCount);
+        boolean deleted = userService.deleteUser(BenchmarkUsers.email(id));
+        userRepository.insertIfAbsent(BenchmarkUsers.user(id));
+        return deleted;
+    }
+
+    /**
+     * Picks random users from a range owned by the current thread, so concurrent deletes never race
+     * for the same user.
+     */
+    @State(Scope.Thread)
+    public static class Picker {
+        private final SplittableRandom random = new SplittableRandom();
+        private int threadIndex;
+        private int threadCount;
+
+        @Setup
+        public void setUp(ThreadParams threadParams) {
+            threadIndex = threadParams.getThreadIndex();
+            threadCount = threadParams.getThreadCount();
+        }
+
+        int next(int bound) {
+            return threadIndex + threadCount * random.nextInt(Math.max(1, bound / threadCount));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.clear.solutions.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import com.clear.solutions.exception.UserValidationException;
+import com.clear.solutions.model.User;
+import com.clear.solutions.service.UserValidatorService;
+import com.clear.solutions.service.ValidationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of {@link UserValidatorService} for a valid user and for the throwing and result-returning rejection paths,
+ * without meters and recording into a Prometheus registry.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserValidatorBenchmark {
+    @Param({"off", "prometheus"})
+    public String metrics;
+
+    private UserValidatorService validatorService;
+    private User validUser;
+    private User invalidEmailUser;
+
+    @Setup
+    public void setUp() {
+        validatorService = new UserValidatorService();
+        validatorService.setMinAge(18);
+        validatorService.setMetrics(BenchmarkUsers.metrics(metrics));
+        validUser = BenchmarkUsers.user(42);
+        invalidEmailUser = validUser.withEmail("user42@example");
+    }
+
+    @Benchmark
+    public User validateUser() {
+        validatorService.validateUser(validUser);
+        return validUser;
+    }
+
+    @Benchmark
+    public Object validateUser_invalidEmail() {
+        try {
+            validatorService.validateUser(invalidEmailUser);
+            return invalidEmailUser;
+        } catch (UserValidationException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public ValidationResult validate_invalidEmail() {
+        return validatorService.validate(invalidEmailUser);
+    }
+}
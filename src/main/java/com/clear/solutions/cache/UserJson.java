@@ -0,0 +1,7 @@
+package com.clear.solutions.cache;
+
+/**
+ * Serialized user together with the version it was serialized from.
+ */
+public record UserJson(long version, byte[] json) {
+}
@@ -0,0 +1,87 @@
+package com.clear.solutions.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import com.clear.solutions.json.UserJsonCodec;
+import com.clear.solutions.model.User;
+import com.clear.solutions.repository.UserChangeListener;
+import com.clear.solutions.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read-through cache of serialized user JSON keyed by normalized email, bounded by the total size
+ * of the cached bytes and evicted by Caffeine's W-TinyLFU policy.
+ * <p>
+ * Entries are invalidated from {@link #onChange(User, User)}, which the repository calls after storing
+ * a change and while still holding the lock of the user. An invalidation of a key that is being loaded
+ * waits for the load to finish and then removes its result, so a stale serialization never survives a change.
+ * Changes the repository doesn't report one by one, a clear or a restore, drop the whole cache in {@link #onReset()}.
+ */
+@Component
+public class UserJsonCache implements UserChangeListener {
+    private final UserRepository userRepository;
+    private final Cache<String, UserJson> cache;
+
+    public UserJsonCache(UserRepository userRepository, @Value("${user.cache.max-bytes}") long maxBytes) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, UserJson user) -> key.length() + user.json().length + Long.BYTES)
+                .recordStats()
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        userRepository.addChangeListener(this);
+    }
+
+    /**
+     * @return the JSON and version of the user, loaded through {@code loader} and serialized on a miss;
+     *         exceptions of the loader are propagated and nothing is cached
+     */
+    public UserJson get(String email, Supplier<User> loader) {
+        return cache.get(UserRepository.normalizeEmail(email), key -> serialize(loader.get()));
+    }
+
+    @Override
+    public void onChange(User previous, User current) {
+        if (previous != null) {
+            cache.invalidate(UserRepository.normalizeEmail(previous.getEmail()));
+        }
+        if (current != null) {
+            cache.invalidate(UserRepository.normalizeEmail(current.getEmail()));
+        }
+    }
+
+    @Override
+    public void onReset() {
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("evictedBytes", stats.evictionWeight());
+        return result;
+    }
+
+    private UserJson serialize(User user) {
+        return new UserJson(user.getVersion(), UserJsonCodec.toJson(user));
+    }
+}
@@ -0,0 +1,159 @@
+package com.clear.solutions.changes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import com.clear.solutions.exception.ChangesExpiredException;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserChangeEvent;
+import com.clear.solutions.model.UserChangeEvent.Type;
+import com.clear.solutions.repository.UserChangeListener;
+import com.clear.solutions.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lock-free ring of the latest changes of the {@link UserRepository}, followed by change consumers
+ * through {@link Cursor}s.
+ * <p>
+ * A writer claims the next sequence number from a counter and publishes its event into the slot of that
+ * sequence, overwriting the event one lap behind. Writers never wait for consumers: a consumer that falls
+ * a lap behind finds its next event overwritten and gets a {@link ChangesExpiredException}. Sequences
+ * restart with the process, so consumers asking for sequences ahead of the log have to resync as well.
+ */
+@Component
+public class UserChangeLog implements UserChangeListener {
+    /**
+     * Maximum number of events returned by one {@link Cursor#poll()}.
+     */
+    public static final int POLL_LIMIT = 1024;
+
+    private final UserRepository userRepository;
+    private final AtomicReferenceArray<UserChangeEvent> slots;
+    private final int mask;
+    private final AtomicLong lastSequence = new AtomicLong();
+    /**
+     * How often consumers poll their cursor for new events.
+     */
+    @Getter
+    private final Duration pollInterval;
+
+    public UserChangeLog(UserRepository userRepository,
+                         @Value("${user.changes.capacity}") int capacity,
+                         @Value("${user.changes.poll-interval-ms}") long pollIntervalMs) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.userRepository = userRepository;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.pollInterval = Duration.ofMillis(pollIntervalMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        userRepository.addChangeListener(this);
+    }
+
+    @Override
+    public void onChange(User previous, User current) {
+        if (current == null) {
+            publish(Type.DELETED, previous.getEmail(), null);
+        } else if (previous == null) {
+            publish(Type.CREATED, current.getEmail(), current);
+        } else if (!UserRepository.normalizeEmail(previous.getEmail())
+                .equals(UserRepository.normalizeEmail(current.getEmail()))) {
+            publish(Type.DELETED, previous.getEmail(), null);
+            publish(Type.CREATED, current.getEmail(), current);
+        } else {
+            publish(Type.UPDATED, current.getEmail(), current);
+        }
+    }
+
+    public long lastSequence() {
+        return lastSequence.get();
+    }
+
+    /**
+     * @param since sequence of the last change the consumer has seen, or {@code null} to follow the changes
+     *              applied from now on
+     * @throws ChangesExpiredException if the changes after {@code since} are no longer buffered
+     */
+    public Cursor follow(Long since) {
+        long last = lastSequence.get();
+        long position = since != null ? since : last;
+        if (position > last || position < Math.max(0, last - slots.length())) {
+            throw new ChangesExpiredException(position, last);
+        }
+        return new Cursor(position);
+    }
+
+    /**
+     * Publishes into the slot unless a writer a lap ahead already did; consumers of the skipped event
+     * are told to resync anyway.
+     */
+    private void publish(Type type, String email, User user) {
+        long sequence = lastSequence.incrementAndGet();
+        UserChangeEvent event = new UserChangeEvent(sequence, type, email, user);
+        int slot = slot(sequence);
+        UserChangeEvent current;
+        do {
+            current = slots.get(slot);
+            if (current != null && current.getSequence() > sequence) {
+                return;
+            }
+        } while (!slots.compareAndSet(slot, current, event));
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence & mask);
+    }
+
+    /**
+     * Position of one consumer in the log. Not thread-safe; each consumer polls its own cursor.
+     */
+    public final class Cursor {
+        private long position;
+
+        private Cursor(long position) {
+            this.position = position;
+        }
+
+        /**
+         * @return sequence of the last returned event
+         */
+        public long position() {
+            return position;
+        }
+
+        /**
+         * Returns the events published after the last returned one, in sequence order and at most
+         * {@link #POLL_LIMIT}. Stops at the first sequence that is claimed but not published yet.
+         *
+         * @throws ChangesExpiredException if the next event was already overwritten
+         */
+        public List<UserChangeEvent> poll() {
+            List<UserChangeEvent> events = new ArrayList<>();
+            while (events.size() < POLL_LIMIT) {
+                long next = position + 1;
+                UserChangeEvent event = slots.getAcquire(slot(next));
+                if (event != null && event.getSequence() == next) {
+                    events.add(event);
+                    position = next;
+                    continue;
+                }
+                long last = lastSequence.get();
+                if (event != null && event.getSequence() > next || last - next >= slots.length()) {
+                    throw new ChangesExpiredException(position, last);
+                }
+                break;
+            }
+            return events;
+        }
+    }
+}
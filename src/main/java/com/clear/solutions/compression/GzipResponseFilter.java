@@ -0,0 +1,314 @@
+package com.clear.solutions.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import com.clear.solutions.compression.ResponseCompression.Decision;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Gzips responses on the servlet stack as {@link ResponseCompression} decides. The compressed body goes
+ * straight to the container as it is written, and a flush of a streamed response flushes what was
+ * compressed so far. A response that goes async is finished on the dispatch that completes it.
+ * Conditional request headers reach the application with the gzip tags of {@link ResponseCompression}
+ * turned back into its own.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "user.compression.enabled", havingValue = "true")
+public class GzipResponseFilter extends OncePerRequestFilter {
+    private static final String RESPONSE_ATTRIBUTE = GzipResponseFilter.class.getName() + ".response";
+
+    private final ResponseCompression compression;
+
+    public GzipResponseFilter(ResponseCompression compression) {
+        this.compression = compression;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CompressingResponse compressing = (CompressingResponse) request.getAttribute(RESPONSE_ATTRIBUTE);
+        if (compressing == null) {
+            if (!compression.accepts(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+                chain.doFilter(request, response);
+                return;
+            }
+            compressing = new CompressingResponse(response, compression,
+                    request.getHeader(HttpHeaders.IF_NONE_MATCH));
+            request.setAttribute(RESPONSE_ATTRIBUTE, compressing);
+        }
+        chain.doFilter(new IdentityETagRequest(request, compression), compressing);
+        if (!isAsyncStarted(request)) {
+            compressing.finish();
+        }
+    }
+
+    private static class IdentityETagRequest extends HttpServletRequestWrapper {
+        private final ResponseCompression compression;
+
+        IdentityETagRequest(HttpServletRequest request, ResponseCompression compression) {
+            super(request);
+            this.compression = compression;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            String value = super.getHeader(name);
+            return isCondition(name) ? compression.identityETags(value) : value;
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (!isCondition(name)) {
+                return super.getHeaders(name);
+            }
+            List<String> values = Collections.list(super.getHeaders(name));
+            values.replaceAll(compression::identityETags);
+            return Collections.enumeration(values);
+        }
+
+        private static boolean isCondition(String name) {
+            return HttpHeaders.IF_MATCH.equalsIgnoreCase(name) || HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name);
+        }
+    }
+
+    /**
+     * Holds the body back until {@link ResponseCompression#decide} settles, then writes it through
+     * a gzip stream or as it is. A declared {@code Content-Length} is kept until then.
+     */
+    private static class CompressingResponse extends HttpServletResponseWrapper {
+        private final ResponseCompression compression;
+        private final String ifNoneMatch;
+        private final ThresholdOutputStream stream;
+        private PrintWriter writer;
+        private long contentLength = -1;
+
+        CompressingResponse(HttpServletResponse response, ResponseCompression compression, String ifNoneMatch) {
+            super(response);
+            this.compression = compression;
+            this.ifNoneMatch = ifNoneMatch;
+            this.stream = new ThresholdOutputStream();
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (stream.decision == Decision.UNDECIDED) {
+                contentLength = len;
+            } else if (stream.decision == Decision.IDENTITY) {
+                super.setContentLengthLong(len);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value == null ? -1 : Long.parseLong(value));
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            setHeader(name, String.valueOf(value));
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            addHeader(name, String.valueOf(value));
+        }
+
+        /**
+         * Deferred while the body is held back, as committing would fix the headers.
+         */
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            stream.flush();
+            if (stream.decision != Decision.UNDECIDED) {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            stream.pending.reset();
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            stream.pending.reset();
+            contentLength = -1;
+        }
+
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            stream.close();
+        }
+
+        private class ThresholdOutputStream extends ServletOutputStream {
+            private final ByteArrayOutputStream pending = new ByteArrayOutputStream(compression.getMinResponseSize());
+            private Decision decision = Decision.UNDECIDED;
+            private OutputStream target;
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (decision == Decision.UNDECIDED) {
+                    decide(pending.size() + len);
+                    if (decision == Decision.UNDECIDED) {
+                        pending.write(b, off, len);
+                        return;
+                    }
+                }
+                target.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (decision != Decision.UNDECIDED) {
+                    target.flush();
+                }
+            }
+
+            /**
+             * Finishes the gzip stream, or writes a body held back to the end as it is. Responses
+             * without a body keep their headers as they are, except that a {@code 304} answers with
+             * the tag of the coding the client holds.
+             */
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (decision == Decision.UNDECIDED) {
+                    if (pending.size() == 0) {
+                        if (contentLength >= 0) {
+                            CompressingResponse.super.setContentLengthLong(contentLength);
+                        }
+                        String etag = getHeader(HttpHeaders.ETAG);
+                        if (getStatus() == HttpServletResponse.SC_NOT_MODIFIED
+                                && compression.namesGzipETag(ifNoneMatch, etag)) {
+                            CompressingResponse.super.setHeader(HttpHeaders.ETAG, compression.gzipETag(etag));
+                        }
+                        return;
+                    }
+                    decide(pending.size());
+                    if (decision == Decision.UNDECIDED) {
+                        contentLength = pending.size();
+                        start(Decision.IDENTITY);
+                    }
+                }
+                if (target instanceof GZIPOutputStream gzip) {
+                    gzip.finish();
+                }
+                target.flush();
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new UnsupportedOperationException("Non-blocking writes are not compressed");
+            }
+
+            private void decide(long written) throws IOException {
+                Decision next = compression.decide(getContentType(), getHeader(HttpHeaders.CONTENT_ENCODING),
+                        contentLength, written);
+                if (next != Decision.UNDECIDED) {
+                    start(next);
+                }
+            }
+
+            private void start(Decision next) throws IOException {
+                decision = next;
+                if (compression.isCompressible(getContentType())) {
+                    CompressingResponse.super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                }
+                OutputStream out = CompressingResponse.super.getOutputStream();
+                if (next == Decision.GZIP) {
+                    CompressingResponse.super.setHeader(HttpHeaders.CONTENT_ENCODING, ResponseCompression.GZIP);
+                    CompressingResponse.super.setContentLengthLong(-1);
+                    String etag = getHeader(HttpHeaders.ETAG);
+                    if (etag != null) {
+                        CompressingResponse.super.setHeader(HttpHeaders.ETAG, compression.gzipETag(etag));
+                    }
+                    target = compression.gzip(out);
+                } else {
+                    if (contentLength >= 0) {
+                        CompressingResponse.super.setContentLengthLong(contentLength);
+                    }
+                    target = out;
+                }
+                pending.writeTo(target);
+                pending.reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.clear.solutions.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import com.clear.solutions.compression.ResponseCompression.Decision;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Gzips responses on the reactive stack as {@link ResponseCompression} decides. Buffers are compressed
+ * as they are written, and each flush of a streamed response carries what was compressed so far.
+ * Buffers are copied to a byte array on their way through the deflater, which works on arrays.
+ * Conditional request headers reach the application with the gzip tags of {@link ResponseCompression}
+ * turned back into its own.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(name = "user.compression.enabled", havingValue = "true")
+public class GzipWebFilter implements WebFilter {
+    private final ResponseCompression compression;
+
+    public GzipWebFilter(ResponseCompression compression) {
+        this.compression = compression;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!compression.accepts(exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING))) {
+            return chain.filter(exchange);
+        }
+        String ifNoneMatch = exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> {
+                    identityETags(headers, HttpHeaders.IF_MATCH);
+                    identityETags(headers, HttpHeaders.IF_NONE_MATCH);
+                })
+                .build();
+        CompressingResponse response = new CompressingResponse(exchange.getResponse());
+        // a 304 has no body to decide on; it answers with the tag of the coding the client holds
+        response.beforeCommit(() -> {
+            String etag = response.getHeaders().getETag();
+            HttpStatusCode status = response.getStatusCode();
+            if (status != null && status.value() == HttpStatus.NOT_MODIFIED.value()
+                    && compression.namesGzipETag(ifNoneMatch, etag)) {
+                response.getHeaders().setETag(compression.gzipETag(etag));
+            }
+            return Mono.empty();
+        });
+        return chain.filter(exchange.mutate().request(request).response(response).build());
+    }
+
+    private void identityETags(HttpHeaders headers, String name) {
+        List<String> values = headers.get(name);
+        if (values != null) {
+            headers.put(name, values.stream().map(compression::identityETags).toList());
+        }
+    }
+
+    private class CompressingResponse extends ServerHttpResponseDecorator {
+
+        CompressingResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            Encoder encoder = new Encoder();
+            return super.writeWith(Flux.from(body)
+                    .concatMapIterable(encoder::write)
+                    .concatWith(Flux.defer(encoder::finish))
+                    .doFinally(signal -> encoder.discard()));
+        }
+
+        /**
+         * Parts are passed on only once they hold data, as the first part commits the headers.
+         */
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            Encoder encoder = new Encoder();
+            return super.writeAndFlushWith(Flux.from(body)
+                    .concatMap(part -> Flux.from(part)
+                            .concatMapIterable(encoder::write)
+                            .concatWith(Flux.defer(encoder::flush))
+                            .collectList())
+                    .concatWith(Flux.defer(encoder::finish).collectList())
+                    .filter(part -> !part.isEmpty())
+                    .map(Flux::fromIterable)
+                    .doFinally(signal -> encoder.discard()));
+        }
+
+        /**
+         * Holds buffers back until {@link ResponseCompression#decide} settles, then passes them on or
+         * compresses them. The headers are final before the first buffer is passed on, which commits them.
+         */
+        private class Encoder {
+            private final List<DataBuffer> pending = new ArrayList<>();
+            private long pendingBytes;
+            private Decision decision = Decision.UNDECIDED;
+            private ByteArrayOutputStream compressed;
+            private GZIPOutputStream gzip;
+
+            List<DataBuffer> write(DataBuffer buffer) {
+                if (decision == Decision.IDENTITY) {
+                    return List.of(buffer);
+                }
+                if (decision == Decision.GZIP) {
+                    return compress(buffer);
+                }
+                pending.add(buffer);
+                pendingBytes += buffer.readableByteCount();
+                Decision next = compression.decide(contentType(), getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING),
+                        getHeaders().getContentLength(), pendingBytes);
+                return next == Decision.UNDECIDED ? List.of() : start(next);
+            }
+
+            /**
+             * Deferred while buffers are held back, as committing would fix the headers.
+             */
+            Flux<DataBuffer> flush() {
+                if (decision != Decision.GZIP) {
+                    return Flux.empty();
+                }
+                try {
+                    gzip.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return Flux.fromIterable(drain());
+            }
+
+            /**
+             * Finishes the gzip stream, or passes on buffers held back to the end as they are.
+             */
+            Flux<DataBuffer> finish() {
+                if (decision == Decision.UNDECIDED) {
+                    getHeaders().setContentLength(pendingBytes);
+                    return Flux.fromIterable(start(Decision.IDENTITY));
+                }
+                if (decision == Decision.IDENTITY) {
+                    return Flux.empty();
+                }
+                try {
+                    gzip.finish();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return Flux.fromIterable(drain());
+            }
+
+            void discard() {
+                pending.forEach(DataBufferUtils::release);
+                pending.clear();
+            }
+
+            private List<DataBuffer> start(Decision next) {
+                decision = next;
+                if (compression.isCompressible(contentType())) {
+                    getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                }
+                List<DataBuffer> buffers = new ArrayList<>(pending);
+                pending.clear();
+                if (next == Decision.IDENTITY) {
+                    return buffers;
+                }
+                getHeaders().set(HttpHeaders.CONTENT_ENCODING, ResponseCompression.GZIP);
+                getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+                String etag = getHeaders().getETag();
+                if (etag != null) {
+                    getHeaders().setETag(compression.gzipETag(etag));
+                }
+                compressed = new ByteArrayOutputStream(compression.getMinResponseSize());
+                try {
+                    gzip = compression.gzip(compressed);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                List<DataBuffer> output = new ArrayList<>();
+                for (DataBuffer buffer : buffers) {
+                    output.addAll(compress(buffer));
+                }
+                return output;
+            }
+
+            private List<DataBuffer> compress(DataBuffer buffer) {
+                byte[] bytes = new byte[buffer.readableByteCount()];
+                buffer.read(bytes);
+                DataBufferUtils.release(buffer);
+                try {
+                    gzip.write(bytes);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return drain();
+            }
+
+            private List<DataBuffer> drain() {
+                if (compressed.size() == 0) {
+                    return List.of();
+                }
+                DataBuffer buffer = bufferFactory().wrap(compressed.toByteArray());
+                compressed.reset();
+                return List.of(buffer);
+            }
+
+            private String contentType() {
+                MediaType contentType = getHeaders().getContentType();
+                return contentType == null ? null : contentType.toString();
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.clear.solutions.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings and decisions shared by the gzip filters of both web stacks.
+ * <p>
+ * A response is compressed if the client accepts gzip, its type is one of {@code user.compression.mime-types},
+ * it isn't encoded already and it holds at least {@code user.compression.min-response-size} bytes. Bodies of
+ * unknown length are held back until that many bytes are written or the response completes, then either
+ * compressed incrementally or written as they are. Nothing beyond the threshold is ever buffered.
+ * <p>
+ * A gzipped body is a representation of its own, so its strong {@code ETag} gets a {@value #ETAG_SUFFIX}
+ * suffix. Conditional request headers are passed on with the suffix removed again, so a tag of either
+ * coding matches the tag the application issued.
+ */
+@Component
+@ConditionalOnProperty(name = "user.compression.enabled", havingValue = "true")
+public class ResponseCompression {
+    public static final String GZIP = "gzip";
+    public static final String ETAG_SUFFIX = "-gzip";
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * What to do with a response body.
+     */
+    public enum Decision {
+        IDENTITY, GZIP, UNDECIDED
+    }
+
+    /**
+     * Deflate level from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}.
+     */
+    @Getter
+    private final int level;
+    @Getter
+    private final int minResponseSize;
+    private final List<MediaType> mimeTypes;
+
+    public ResponseCompression(@Value("${user.compression.level}") int level,
+                               @Value("${user.compression.min-response-size}") int minResponseSize,
+                               @Value("${user.compression.mime-types}") String[] mimeTypes) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION || minResponseSize < 0) {
+            throw new IllegalArgumentException("Compression level must be 1 to 9 and min response size not negative");
+        }
+        this.level = level;
+        this.minResponseSize = minResponseSize;
+        this.mimeTypes = Arrays.stream(mimeTypes).map(String::trim).map(MediaType::parseMediaType).toList();
+    }
+
+    /**
+     * @return whether an {@code Accept-Encoding} header value admits gzip, explicitly or through {@code *}
+     */
+    public boolean accepts(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase(GZIP)) {
+                return !isRejected(parts);
+            }
+            if (name.equals("*")) {
+                wildcard = !isRejected(parts);
+            }
+        }
+        return wildcard;
+    }
+
+    public boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            MediaType type = MediaType.parseMediaType(contentType);
+            return mimeTypes.stream().anyMatch(mimeType -> mimeType.includes(type));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Decides on a response of a client that accepts gzip.
+     *
+     * @param contentLength declared length of the body, or {@code -1} if unknown
+     * @param written       bytes of the body written so far, including those being written
+     */
+    public Decision decide(String contentType, String contentEncoding, long contentLength, long written) {
+        if (contentEncoding != null || !isCompressible(contentType)) {
+            return Decision.IDENTITY;
+        }
+        if (contentLength >= 0) {
+            return contentLength >= minResponseSize ? Decision.GZIP : Decision.IDENTITY;
+        }
+        return written >= minResponseSize ? Decision.GZIP : Decision.UNDECIDED;
+    }
+
+    /**
+     * Strong entity tag of the gzip coding of a representation tagged {@code etag}; weak and absent tags,
+     * which don't promise identical bytes, are returned as they are.
+     */
+    public String gzipETag(String etag) {
+        if (etag == null || etag.length() < 2 || etag.charAt(0) != '"' || etag.charAt(etag.length() - 1) != '"') {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + ETAG_SUFFIX + "\"";
+    }
+
+    /**
+     * {@code If-Match} or {@code If-None-Match} value with the tags of {@link #gzipETag(String)} turned back
+     * into the tags they were made from.
+     */
+    public String identityETags(String condition) {
+        return condition == null ? null : condition.replace(ETAG_SUFFIX + "\"", "\"");
+    }
+
+    /**
+     * @return whether a client holding {@code condition} as {@code If-None-Match} has the gzip coding of the
+     * representation tagged {@code etag}, so a {@code 304} should carry the tag of that coding
+     */
+    public boolean namesGzipETag(String condition, String etag) {
+        String gzipETag = gzipETag(etag);
+        return condition != null && gzipETag != null && !gzipETag.equals(etag) && condition.contains(gzipETag);
+    }
+
+    public GZIPOutputStream gzip(OutputStream out) throws IOException {
+        return gzip(out, level);
+    }
+
+    /**
+     * A gzip stream whose {@code flush()} flushes the compressed data written so far, so streamed
+     * responses reach the client as they are written.
+     */
+    public static GZIPOutputStream gzip(OutputStream out, int level) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE, true) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    private static boolean isRejected(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
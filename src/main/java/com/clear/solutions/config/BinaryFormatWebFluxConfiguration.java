@@ -0,0 +1,99 @@
+package com.clear.solutions.config;
+
+import java.util.List;
+import java.util.Map;
+import com.clear.solutions.controller.BinaryFormats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.CodecConfigurer;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.AbstractJackson2Encoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Encodes and decodes CBOR and Smile bodies on the reactive stack with mappers built like the JSON one.
+ * A stream of users is collected and encoded as one array: Jackson's binary encoders don't stream arrays,
+ * and binary callers read the whole result anyway.
+ * <p>
+ * Custom object encoders are consulted before the default ones, and a request accepting any type is answered
+ * in the first type they produce, so a JSON encoder is registered ahead of the binary ones to keep JSON the
+ * default. The user encoder of {@link UserJsonWebFluxConfiguration} is typed and goes before all of them.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class BinaryFormatWebFluxConfiguration implements WebFluxConfigurer {
+    private final ObjectMapper objectMapper;
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    public BinaryFormatWebFluxConfiguration(ObjectMapper objectMapper,
+                                            Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.objectMapper = objectMapper;
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        ObjectMapper cbor = objectMapperBuilder.factory(new CBORFactory()).build();
+        ObjectMapper smile = objectMapperBuilder.factory(new SmileFactory()).build();
+        CodecConfigurer.CustomCodecs codecs = configurer.customCodecs();
+        codecs.registerWithDefaultConfig(new Jackson2JsonEncoder(objectMapper));
+        codecs.registerWithDefaultConfig(new CollectingCborEncoder(cbor));
+        codecs.registerWithDefaultConfig(new Jackson2CborDecoder(cbor, MediaType.APPLICATION_CBOR));
+        codecs.registerWithDefaultConfig(new CollectingSmileEncoder(smile));
+        codecs.registerWithDefaultConfig(new Jackson2SmileDecoder(smile, BinaryFormats.APPLICATION_SMILE));
+    }
+
+    private static Flux<DataBuffer> encodeCollected(AbstractJackson2Encoder encoder, Publisher<?> inputStream,
+                                                    DataBufferFactory bufferFactory, ResolvableType elementType,
+                                                    MimeType mimeType, Map<String, Object> hints) {
+        if (inputStream instanceof Mono<?> value) {
+            return value.map(item -> encoder.encodeValue(item, bufferFactory, elementType, mimeType, hints)).flux();
+        }
+        ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+        return Flux.from(inputStream)
+                .collectList()
+                .map(items -> encoder.encodeValue(items, bufferFactory, listType, mimeType, hints))
+                .flux();
+    }
+
+    private static final class CollectingCborEncoder extends Jackson2CborEncoder {
+        CollectingCborEncoder(ObjectMapper mapper) {
+            super(mapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+            return encodeCollected(this, inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+
+    private static final class CollectingSmileEncoder extends Jackson2SmileEncoder {
+        CollectingSmileEncoder(ObjectMapper mapper) {
+            super(mapper, BinaryFormats.APPLICATION_SMILE);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+            return encodeCollected(this, inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.clear.solutions.config;
+
+import com.clear.solutions.json.UserJsonDecoder;
+import com.clear.solutions.json.UserJsonEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Encodes and decodes user bodies of the reactive stack with the hand-written user codec instead of Jackson.
+ * Custom codecs are consulted before the Jackson ones; the decoder keeps the configured in-memory limit.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class UserJsonWebFluxConfiguration implements WebFluxConfigurer {
+    private final DataSize maxInMemorySize;
+
+    public UserJsonWebFluxConfiguration(@Value("${spring.codec.max-in-memory-size:256KB}") DataSize maxInMemorySize) {
+        this.maxInMemorySize = maxInMemorySize;
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().register(new UserJsonEncoder());
+        configurer.customCodecs().register(new UserJsonDecoder((int) maxInMemorySize.toBytes()));
+    }
+}
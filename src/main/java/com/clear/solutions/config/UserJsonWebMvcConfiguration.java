@@ -0,0 +1,21 @@
+package com.clear.solutions.config;
+
+import java.util.List;
+import com.clear.solutions.json.UserJsonHttpMessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Reads and writes user bodies of the servlet stack with the hand-written user codec instead of Jackson.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserJsonWebMvcConfiguration implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new UserJsonHttpMessageConverter());
+    }
+}
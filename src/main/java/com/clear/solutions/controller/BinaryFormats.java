@@ -0,0 +1,42 @@
+package com.clear.solutions.controller;
+
+import java.util.List;
+import lombok.experimental.UtilityClass;
+import org.springframework.http.MediaType;
+
+/**
+ * Binary alternatives to JSON for service-to-service callers: CBOR and Jackson Smile, negotiated through
+ * {@code Accept} and {@code Content-Type} on the {@code /users} endpoints.
+ */
+@UtilityClass
+public class BinaryFormats {
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    public static final List<MediaType> MEDIA_TYPES = List.of(MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+
+    /**
+     * @return whether the client prefers a binary format over JSON
+     * @see #preferred(List)
+     */
+    public static boolean isPreferred(List<MediaType> accepted) {
+        return preferred(accepted) != null;
+    }
+
+    /**
+     * @return the binary format the client prefers over JSON, or {@code null} if it takes JSON: the binary type
+     *         has the highest quality of the acceptable types and comes first among those with that quality
+     */
+    public static MediaType preferred(List<MediaType> accepted) {
+        MediaType best = null;
+        for (MediaType type : accepted) {
+            if ((binary(type) != null || type.isCompatibleWith(MediaType.APPLICATION_JSON))
+                    && (best == null || type.getQualityValue() > best.getQualityValue())) {
+                best = type;
+            }
+        }
+        return best != null ? binary(best) : null;
+    }
+
+    private static MediaType binary(MediaType type) {
+        return MEDIA_TYPES.stream().filter(binary -> binary.equalsTypeAndSubtype(type)).findFirst().orElse(null);
+    }
+}
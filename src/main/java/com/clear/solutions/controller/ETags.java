@@ -0,0 +1,76 @@
+package com.clear.solutions.controller;
+
+import com.clear.solutions.exception.VersionMismatchException;
+import com.clear.solutions.repository.UserRepository;
+import lombok.experimental.UtilityClass;
+import org.springframework.http.MediaType;
+
+/**
+ * Strong entity tags of the user resources: a user is tagged with its version and a search result with the
+ * store-wide modification count it was read at, qualified by the run of the store that counted it. Both are
+ * suffixed with the subtype of the binary format the body is written in, so one tag never names two
+ * representations. A conditional write accepts the tag of any format, as they all stand for the same version.
+ */
+@UtilityClass
+public class ETags {
+    private static final String SEARCH_PREFIX = "s";
+
+    public static String ofUser(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param format one of {@link BinaryFormats#MEDIA_TYPES}, or {@code null} for JSON
+     */
+    public static String ofUser(long version, MediaType format) {
+        return format == null ? ofUser(version) : "\"" + version + "-" + format.getSubtype() + "\"";
+    }
+
+    public static String ofSearch(long modificationEpoch, long modificationCount) {
+        return ofSearch(modificationEpoch, modificationCount, null);
+    }
+
+    /**
+     * @param format one of {@link BinaryFormats#MEDIA_TYPES}, or {@code null} for JSON
+     */
+    public static String ofSearch(long modificationEpoch, long modificationCount, MediaType format) {
+        String tag = SEARCH_PREFIX + Long.toString(modificationEpoch, Character.MAX_RADIX) + "-" + modificationCount;
+        return "\"" + (format == null ? tag : tag + "-" + format.getSubtype()) + "\"";
+    }
+
+    /**
+     * Reads the version a conditional write expects from its {@code If-Match} header.
+     *
+     * @return the expected version, or {@link UserRepository#ANY_VERSION} if the header is absent or {@code *}
+     * @throws VersionMismatchException if the header holds no strong user tag, which can never match
+     */
+    public static long expectedVersion(String ifMatch, String email) {
+        if (ifMatch == null) {
+            return UserRepository.ANY_VERSION;
+        }
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return UserRepository.ANY_VERSION;
+        }
+        if (tag.length() > 2 && tag.charAt(0) == '"' && tag.charAt(tag.length() - 1) == '"') {
+            String value = tag.substring(1, tag.length() - 1);
+            int formatStart = value.indexOf('-');
+            if (formatStart >= 0 && isFormat(value.substring(formatStart + 1))) {
+                value = value.substring(0, formatStart);
+            }
+            try {
+                long version = Long.parseLong(value);
+                if (version >= 0) {
+                    return version;
+                }
+            } catch (NumberFormatException ignored) {
+                // not a user tag
+            }
+        }
+        throw new VersionMismatchException(email);
+    }
+
+    private static boolean isFormat(String subtype) {
+        return BinaryFormats.MEDIA_TYPES.stream().anyMatch(format -> format.getSubtype().equals(subtype));
+    }
+}
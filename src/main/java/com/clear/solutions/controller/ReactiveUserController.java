@@ -0,0 +1,253 @@
+package com.clear.solutions.controller;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import com.clear.solutions.exception.ChangesExpiredException;
+import com.clear.solutions.exception.InvalidRequestException;
+import com.clear.solutions.exception.RequestErrorCode;
+import com.clear.solutions.model.BatchItemResult;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import com.clear.solutions.model.UserPage;
+import com.clear.solutions.service.ReactiveUserService;
+import com.clear.solutions.service.UserService;
+import com.clear.solutions.service.UserValidatorService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux counterpart of {@link UserController} with the same {@code /users} contract,
+ * active when the application runs as a reactive web application (profile {@code reactive}).
+ */
+@Tag(name = "User management",
+        description = "Endpoints for managing users")
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+    private final ReactiveUserService userService;
+    private final UserValidatorService validatorService;
+
+    @PostMapping
+    @Operation(summary = "Create a new user", description = "Create a new user")
+    public Mono<ResponseEntity<User>> createUser(@RequestBody User user, ServerWebExchange exchange) {
+        validatorService.validateUser(user);
+        MediaType format = binaryFormat(exchange);
+        return userService.createUser(user).map(created -> withETag(created, format));
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Create users in batch",
+            description = "Create many users at once and report the result per item. "
+                    + "With upsert=true existing users with the same email are replaced")
+    public Mono<List<BatchItemResult>> createUsers(@RequestBody List<User> users,
+                                                   @RequestParam(defaultValue = "false") boolean upsert) {
+        return userService.createUsers(users, upsert);
+    }
+
+    @DeleteMapping("/batch")
+    @Operation(summary = "Delete users in batch",
+            description = "Delete many users by email at once and report the result per item")
+    public Mono<List<BatchItemResult>> deleteUsers(@RequestBody List<String> emails) {
+        return userService.deleteUsers(emails);
+    }
+
+    @PutMapping("/{email}")
+    @Operation(summary = "Update an existing user", description = "Update an existing user. "
+            + "With an If-Match header the update is applied only if the user still has that ETag")
+    public Mono<ResponseEntity<User>> updateUser(@PathVariable String email,
+                                                 @RequestBody User user,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                 String ifMatch,
+                                                 ServerWebExchange exchange) {
+        validatorService.validateUser(user);
+        MediaType format = binaryFormat(exchange);
+        return userService.updateUser(email, user, ETags.expectedVersion(ifMatch, email))
+                .map(updated -> withETag(updated, format))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PatchMapping("/{email}")
+    @Operation(summary = "Update some user fields", description = "Update some user fields. "
+            + "With an If-Match header the update is applied only if the user still has that ETag")
+    public Mono<ResponseEntity<User>> patchUser(@PathVariable String email,
+                                                @RequestBody Map<String, String> updates,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                String ifMatch,
+                                                ServerWebExchange exchange) {
+        validatorService.validateEmail(email);
+        MediaType format = binaryFormat(exchange);
+        return userService.patchUser(email, updates, ETags.expectedVersion(ifMatch, email))
+                .map(patched -> withETag(patched, format))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{email}")
+    @Operation(summary = "Delete user", description = "Delete user")
+    public Mono<ResponseEntity<Void>> deleteUser(@PathVariable String email) {
+        validatorService.validateEmail(email);
+        return userService.deleteUser(email)
+                .thenReturn(ResponseEntity.ok().build());
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Get list of users searched by birth date range and attributes",
+            description = "Get list of users ordered by birth date, streamed from the birth date index "
+                    + "as the client reads it. It can be narrowed down by email domain, case-insensitive first "
+                    + "or last name prefix and presence of a phone number, each looked up in an index of its own. "
+                    + "When limit or cursor is given, a single page is returned and "
+                    + "the cursor of the next page is sent in the " + UserController.NEXT_CURSOR_HEADER
+                    + " header. The ETag changes with every change of the store, so a matching If-None-Match "
+                    + "is answered with 304 without searching")
+    public Mono<ResponseEntity<Flux<User>>> searchUsers(@RequestParam(required = false) LocalDate from,
+                                                        @RequestParam(required = false) LocalDate to,
+                                                        @RequestParam(required = false) Integer limit,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(required = false) String emailDomain,
+                                                        @RequestParam(required = false) String firstNamePrefix,
+                                                        @RequestParam(required = false) String lastNamePrefix,
+                                                        @RequestParam(required = false) Boolean hasPhoneNumber,
+                                                        ServerWebExchange exchange) {
+        checkDateRange(from, to);
+        UserFilter filter = UserFilter.builder()
+                .emailDomain(emailDomain)
+                .firstNamePrefix(firstNamePrefix)
+                .lastNamePrefix(lastNamePrefix)
+                .hasPhoneNumber(hasPhoneNumber)
+                .build();
+        MediaType format = binaryFormat(exchange);
+        varyByAccept(exchange);
+        // read before searching, so the result reflects at least the changes the tag stands for
+        String etag = ETags.ofSearch(userService.modificationEpoch(), userService.modificationCount(), format);
+        if (exchange.checkNotModified(etag)) {
+            return Mono.empty();
+        }
+        if (limit == null && cursor == null) {
+            Flux<User> results = filter.isEmpty()
+                    ? userService.searchUsers(from, to)
+                    : userService.searchUsers(from, to, filter);
+            return Mono.just(inFormat(ResponseEntity.ok().eTag(etag), format).body(results));
+        }
+        int pageSize = limit != null ? limit : UserService.MAX_PAGE_SIZE;
+        Mono<UserPage> pages = filter.isEmpty()
+                ? userService.searchUsers(from, to, cursor, pageSize)
+                : userService.searchUsers(from, to, filter, cursor, pageSize);
+        return pages
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = inFormat(ResponseEntity.ok().eTag(etag), format);
+                    if (page.getNextCursor() != null) {
+                        response.header(UserController.NEXT_CURSOR_HEADER, page.getNextCursor());
+                    }
+                    return response.body(Flux.fromIterable(page.getUsers()));
+                });
+    }
+
+    @GetMapping(value = "/search/stream", produces = "application/x-ndjson")
+    @Operation(summary = "Stream users searched by birth date range",
+            description = "Stream users ordered by birth date as newline-delimited JSON, "
+                    + "written while the birth date index is iterated")
+    public Flux<User> streamUsers(@RequestParam(required = false) LocalDate from,
+                                  @RequestParam(required = false) LocalDate to) {
+        checkDateRange(from, to);
+        return userService.searchUsers(from, to);
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Follow user changes",
+            description = "Server-sent " + UserController.CHANGE_EVENT + " events of every applied change after "
+                    + "sequence since, or from now on without it. The event id is the sequence, so reconnecting "
+                    + "clients resume through " + UserController.LAST_EVENT_ID_HEADER + ". A client that falls "
+                    + "too far behind gets a " + UserController.RESYNC_EVENT + " event with the last sequence and "
+                    + "the stream ends; if since is no longer buffered, the request is answered with 410")
+    public Flux<ServerSentEvent<Object>> streamChanges(@RequestParam(required = false) Long since,
+                                                       @RequestHeader(value = UserController.LAST_EVENT_ID_HEADER,
+                                                               required = false) Long lastEventId) {
+        return userService.changes(since != null ? since : lastEventId)
+                .map(event -> ServerSentEvent.<Object>builder(event)
+                        .id(String.valueOf(event.getSequence()))
+                        .event(UserController.CHANGE_EVENT)
+                        .build())
+                .onErrorResume(ChangesExpiredException.class, e -> Mono.just(
+                        ServerSentEvent.<Object>builder(e.getLastSequence())
+                                .event(UserController.RESYNC_EVENT)
+                                .build()));
+    }
+
+    @GetMapping("/cache/stats")
+    @Operation(summary = "Get user cache statistics",
+            description = "Size, hit, miss and eviction counters of the GET /users/{email} response cache")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(userService.cacheStats());
+    }
+
+    @GetMapping("/{email}")
+    @Operation(summary = "Get user by email", description = "Get user by email. "
+            + "JSON responses are served from a cache of serialized users that is invalidated on every change. "
+            + "The ETag is the user version, suffixed with the binary format the body is written in; "
+            + "a matching If-None-Match is answered with 304")
+    public Mono<ResponseEntity<Object>> getByEmail(@PathVariable String email, ServerWebExchange exchange) {
+        validatorService.validateEmail(email);
+        MediaType format = binaryFormat(exchange);
+        varyByAccept(exchange);
+        if (format != null) {
+            return userService.getByEmail(email).flatMap(user -> {
+                String etag = ETags.ofUser(user.getVersion(), format);
+                return exchange.checkNotModified(etag)
+                        ? Mono.empty()
+                        : Mono.just(ResponseEntity.ok().eTag(etag).contentType(format).body(user));
+            });
+        }
+        return userService.getJsonByEmail(email).flatMap(user -> {
+            String etag = ETags.ofUser(user.version());
+            if (exchange.checkNotModified(etag)) {
+                return Mono.empty();
+            }
+            return Mono.just(ResponseEntity.ok()
+                    .eTag(etag)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(user.json()));
+        });
+    }
+
+    /**
+     * The user written in {@code format}, or in JSON if {@code null}, tagged for that format.
+     */
+    private static ResponseEntity<User> withETag(User user, MediaType format) {
+        return inFormat(ResponseEntity.ok().eTag(ETags.ofUser(user.getVersion(), format)), format)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(user);
+    }
+
+    private static ResponseEntity.BodyBuilder inFormat(ResponseEntity.BodyBuilder response, MediaType format) {
+        return format != null ? response.contentType(format) : response;
+    }
+
+    /**
+     * Marks the response, a {@code 304} included, as negotiated by the {@code Accept} header.
+     */
+    private static void varyByAccept(ServerWebExchange exchange) {
+        exchange.getResponse().getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+
+    private static MediaType binaryFormat(ServerWebExchange exchange) {
+        return BinaryFormats.preferred(exchange.getRequest().getHeaders().getAccept());
+    }
+
+    private void checkDateRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new InvalidRequestException(RequestErrorCode.DATE_RANGE_INVALID);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.clear.solutions.controller;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import com.clear.solutions.changes.UserChangeLog;
+import com.clear.solutions.exception.ChangesExpiredException;
+import com.clear.solutions.model.UserChangeEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Server-sent event streams of the {@link UserChangeLog} for the servlet stack. A dispatcher thread ticks
+ * every poll interval and hands each stream that isn't busy to a sender thread of its own, so open streams
+ * hold no request thread and a slow client only ever blocks its own sends. The ring is the only backlog:
+ * a stream that falls a lap behind gets a {@link UserController#RESYNC_EVENT} and is completed, and one
+ * whose write doesn't complete within the send timeout is dropped. Idle streams get a comment now and then,
+ * which also detects clients that went away.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserChangeEmitters {
+    private static final long HEARTBEAT_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+    private final UserChangeLog changeLog;
+    private final long sendTimeoutNanos;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService dispatcher;
+    private ExecutorService senders;
+
+    public UserChangeEmitters(UserChangeLog changeLog,
+                              @Value("${user.changes.send-timeout-ms}") long sendTimeoutMs) {
+        this.changeLog = changeLog;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(task -> daemon(task, "user-changes"));
+        // one thread per busy stream at most, as a stalled write holds its thread until the socket gives up
+        senders = Executors.newCachedThreadPool(task -> daemon(task, "user-changes-send"));
+        long periodMs = changeLog.getPollInterval().toMillis();
+        dispatcher.scheduleWithFixedDelay(this::dispatch, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+    }
+
+    /**
+     * @throws ChangesExpiredException if the changes after {@code since} are no longer buffered
+     * @see UserChangeLog#follow(Long)
+     */
+    public SseEmitter subscribe(Long since) {
+        // no timeout: the stream ends when the client goes away or has to resync
+        return subscribe(since, new SseEmitter(0L));
+    }
+
+    SseEmitter subscribe(Long since, SseEmitter emitter) {
+        Subscription subscription = new Subscription(changeLog.follow(since), emitter);
+        subscriptions.add(subscription);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onError(error -> subscriptions.remove(subscription));
+        return emitter;
+    }
+
+    int subscriptionCount() {
+        return subscriptions.size();
+    }
+
+    private void dispatch() {
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions) {
+            long sendingSince = subscription.sendingSince.get();
+            if (sendingSince == 0) {
+                if (subscription.sendingSince.compareAndSet(0, now)) {
+                    senders.execute(() -> send(subscription));
+                }
+            } else if (now - sendingSince >= sendTimeoutNanos && subscriptions.remove(subscription)) {
+                log.debug("Change stream dropped: no write completed within the send timeout");
+                // completing waits for the emitter's write lock, which the stalled send holds
+                senders.execute(() -> subscription.emitter.completeWithError(
+                        new TimeoutException("Change stream write timed out")));
+            }
+        }
+    }
+
+    private void send(Subscription subscription) {
+        try {
+            subscription.send();
+        } catch (ChangesExpiredException e) {
+            subscriptions.remove(subscription);
+            subscription.resync(e.getLastSequence());
+        } catch (IOException | RuntimeException e) {
+            // the client went away; an exception must not end the sender
+            log.debug("Change stream closed: {}", e.getMessage());
+            subscriptions.remove(subscription);
+        } finally {
+            subscription.sendingSince.set(0);
+        }
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Sent by one sender thread at a time, which {@link #sendingSince} hands over.
+     */
+    private static final class Subscription {
+        private final UserChangeLog.Cursor cursor;
+        private final SseEmitter emitter;
+        /**
+         * {@link System#nanoTime()} the running send started at, or 0 if none is running.
+         */
+        private final AtomicLong sendingSince = new AtomicLong();
+        private long lastSentNanos = System.nanoTime();
+
+        Subscription(UserChangeLog.Cursor cursor, SseEmitter emitter) {
+            this.cursor = cursor;
+            this.emitter = emitter;
+        }
+
+        void send() throws IOException {
+            long now = System.nanoTime();
+            for (UserChangeEvent event : cursor.poll()) {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.getSequence()))
+                        .name(UserController.CHANGE_EVENT)
+                        .data(event, MediaType.APPLICATION_JSON));
+                lastSentNanos = now;
+            }
+            if (now - lastSentNanos >= HEARTBEAT_NANOS) {
+                emitter.send(SseEmitter.event().comment(""));
+                lastSentNanos = now;
+            }
+        }
+
+        void resync(long lastSequence) {
+            try {
+                emitter.send(SseEmitter.event().name(UserController.RESYNC_EVENT).data(lastSequence));
+                emitter.complete();
+            } catch (IOException | RuntimeException e) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
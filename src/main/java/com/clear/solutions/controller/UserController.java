@@ -1,54 +1,110 @@
 package com.clear.solutions.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
+import com.clear.solutions.cache.UserJson;
+import com.clear.solutions.cache.UserJsonCache;
+import com.clear.solutions.exception.InvalidRequestException;
+import com.clear.solutions.exception.RequestErrorCode;
+import com.clear.solutions.json.UserJsonCodec;
+import com.clear.solutions.model.BatchItemResult;
 import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import com.clear.solutions.model.UserPage;
 import com.clear.solutions.service.UserService;
 import com.clear.solutions.service.UserValidatorService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "User management",
         description = "Endpoints for managing users")
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    public static final String CHANGE_EVENT = "change";
+    public static final String RESYNC_EVENT = "resync";
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    private static final int STREAM_FLUSH_INTERVAL = 256;
+
     private final UserService userServiceImpl;
     private final UserValidatorService validatorService;
+    private final UserJsonCache userJsonCache;
+    private final UserChangeEmitters changeEmitters;
 
     @PostMapping
     @Operation(summary = "Create a new user", description = "Create a new user")
-    public ResponseEntity<User> createUser(@RequestBody User user) {
+    public ResponseEntity<User> createUser(@RequestBody User user, WebRequest request) {
         validatorService.validateUser(user);
-        User createdUser = userServiceImpl.createUser(user);
-        return ResponseEntity.ok(createdUser);
+        return withETag(userServiceImpl.createUser(user), binaryFormat(request));
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Create users in batch",
+            description = "Create many users at once and report the result per item. "
+                    + "With upsert=true existing users with the same email are replaced")
+    public ResponseEntity<List<BatchItemResult>> createUsers(@RequestBody List<User> users,
+                                                             @RequestParam(defaultValue = "false") boolean upsert) {
+        return ResponseEntity.ok(userServiceImpl.createUsers(users, upsert));
+    }
+
+    @DeleteMapping("/batch")
+    @Operation(summary = "Delete users in batch",
+            description = "Delete many users by email at once and report the result per item")
+    public ResponseEntity<List<BatchItemResult>> deleteUsers(@RequestBody List<String> emails) {
+        return ResponseEntity.ok(userServiceImpl.deleteUsers(emails));
     }
 
     @PutMapping("/{email}")
-    @Operation(summary = "Update an existing user", description = "Update an existing user")
+    @Operation(summary = "Update an existing user", description = "Update an existing user. "
+            + "With an If-Match header the update is applied only if the user still has that ETag")
     public ResponseEntity<User> updateUser(@PathVariable String email,
-                                           @RequestBody User user) {
+                                           @RequestBody User user,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                           String ifMatch,
+                                           WebRequest request) {
         validatorService.validateUser(user);
-        User updatedUser = userServiceImpl.updateUser(email, user);
+        User updatedUser = userServiceImpl.updateUser(email, user, ETags.expectedVersion(ifMatch, email));
         return updatedUser != null
-                ? ResponseEntity.ok(updatedUser)
+                ? withETag(updatedUser, binaryFormat(request))
                 : ResponseEntity.notFound().build();
     }
 
     @PatchMapping("/{email}")
-    @Operation(summary = "Update some user fields", description = "Update some user fields")
+    @Operation(summary = "Update some user fields", description = "Update some user fields. "
+            + "With an If-Match header the update is applied only if the user still has that ETag")
     public ResponseEntity<User> patchUser(@PathVariable String email,
-                                          @RequestBody Map<String, String> updates) {
+                                          @RequestBody Map<String, String> updates,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                          String ifMatch,
+                                          WebRequest request) {
         validatorService.validateEmail(email);
-        User user = userServiceImpl.patchUser(email, updates);
-        validatorService.validateUser(user);
+        User user = userServiceImpl.patchUser(email, updates, ETags.expectedVersion(ifMatch, email));
         return user != null
-                ? ResponseEntity.ok(user)
+                ? withETag(user, binaryFormat(request))
                 : ResponseEntity.notFound().build();
     }
 
@@ -61,22 +117,164 @@ public class UserController {
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Get list of users searched by birth date range",
-            description = "Get list of users. Search for users by birth date range")
+    @Operation(summary = "Get list of users searched by birth date range and attributes",
+            description = "Get list of users ordered by birth date. Search for users by birth date range, "
+                    + "narrowed down by email domain, case-insensitive first or last name prefix and presence "
+                    + "of a phone number, each looked up in an index of its own. "
+                    + "When limit or cursor is given, a single page is returned and the cursor of the next page "
+                    + "is sent in the " + NEXT_CURSOR_HEADER + " header. The ETag changes with every change "
+                    + "of the store, so a matching If-None-Match is answered with 304 without searching")
     public ResponseEntity<List<User>> searchUsers(@RequestParam(required = false) LocalDate from,
-                                                  @RequestParam(required = false) LocalDate to) {
-        if (from != null && to != null && from.isAfter(to)) {
-            throw new IllegalArgumentException("From date must be before To date");
+                                                  @RequestParam(required = false) LocalDate to,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  @RequestParam(required = false) String cursor,
+                                                  @RequestParam(required = false) String emailDomain,
+                                                  @RequestParam(required = false) String firstNamePrefix,
+                                                  @RequestParam(required = false) String lastNamePrefix,
+                                                  @RequestParam(required = false) Boolean hasPhoneNumber,
+                                                  WebRequest request) {
+        checkDateRange(from, to);
+        UserFilter filter = UserFilter.builder()
+                .emailDomain(emailDomain)
+                .firstNamePrefix(firstNamePrefix)
+                .lastNamePrefix(lastNamePrefix)
+                .hasPhoneNumber(hasPhoneNumber)
+                .build();
+        MediaType format = binaryFormat(request);
+        varyByAccept(request);
+        // read before searching, so the result reflects at least the changes the tag stands for
+        String etag = ETags.ofSearch(userServiceImpl.modificationEpoch(), userServiceImpl.modificationCount(),
+                format);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        if (limit == null && cursor == null) {
+            List<User> results = filter.isEmpty()
+                    ? userServiceImpl.searchUsers(from, to)
+                    : userServiceImpl.searchUsers(from, to, filter);
+            return inFormat(ResponseEntity.ok().eTag(etag), format).body(results);
+        }
+        int pageSize = limit != null ? limit : UserService.MAX_PAGE_SIZE;
+        UserPage page = filter.isEmpty()
+                ? userServiceImpl.searchUsers(from, to, cursor, pageSize)
+                : userServiceImpl.searchUsers(from, to, filter, cursor, pageSize);
+        ResponseEntity.BodyBuilder response = inFormat(ResponseEntity.ok().eTag(etag), format);
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
         }
-        List<User> results = userServiceImpl.searchUsers(from, to);
-        return ResponseEntity.ok(results);
+        return response.body(page.getUsers());
+    }
+
+    @GetMapping(value = "/search/stream", produces = "application/x-ndjson")
+    @Operation(summary = "Stream users searched by birth date range",
+            description = "Stream users ordered by birth date as newline-delimited JSON, "
+                    + "written while the birth date index is iterated")
+    public ResponseEntity<StreamingResponseBody> streamUsers(@RequestParam(required = false) LocalDate from,
+                                                             @RequestParam(required = false) LocalDate to) {
+        checkDateRange(from, to);
+        StreamingResponseBody body = out -> writeNdjson(userServiceImpl.streamUsers(from, to), out);
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Follow user changes",
+            description = "Server-sent " + CHANGE_EVENT + " events of every applied change after sequence since, "
+                    + "or from now on without it. The event id is the sequence, so reconnecting clients resume "
+                    + "through " + LAST_EVENT_ID_HEADER + ". A client that falls too far behind gets a "
+                    + RESYNC_EVENT + " event with the last sequence and the stream ends; if since is no longer "
+                    + "buffered, the request is answered with 410")
+    public SseEmitter streamChanges(@RequestParam(required = false) Long since,
+                                    @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false)
+                                    Long lastEventId) {
+        return changeEmitters.subscribe(since != null ? since : lastEventId);
+    }
+
+    @GetMapping("/cache/stats")
+    @Operation(summary = "Get user cache statistics",
+            description = "Size, hit, miss and eviction counters of the GET /users/{email} response cache")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(userJsonCache.stats());
     }
 
     @GetMapping("/{email}")
-    @Operation(summary = "Get user by email", description = "Get user by email")
-    public ResponseEntity<User> getByEmail(@PathVariable String email) {
+    @Operation(summary = "Get user by email", description = "Get user by email. "
+            + "JSON responses are served from a cache of serialized users that is invalidated on every change. "
+            + "The ETag is the user version, suffixed with the binary format the body is written in; "
+            + "a matching If-None-Match is answered with 304",
+            responses = @ApiResponse(responseCode = "200",
+                    content = @Content(schema = @Schema(implementation = User.class))))
+    public ResponseEntity<Object> getByEmail(@PathVariable String email, WebRequest request) {
         validatorService.validateEmail(email);
-        User user = userServiceImpl.getByEmail(email);
-        return ResponseEntity.ok(user);
+        MediaType format = binaryFormat(request);
+        varyByAccept(request);
+        if (format != null) {
+            User user = userServiceImpl.getByEmail(email);
+            String etag = ETags.ofUser(user.getVersion(), format);
+            return request.checkNotModified(etag)
+                    ? null
+                    : ResponseEntity.ok().eTag(etag).contentType(format).body(user);
+        }
+        UserJson user = userJsonCache.get(email, () -> userServiceImpl.getByEmail(email));
+        String etag = ETags.ofUser(user.version());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(user.json());
+    }
+
+    /**
+     * The user written in {@code format}, or in JSON if {@code null}, tagged for that format.
+     */
+    private static ResponseEntity<User> withETag(User user, MediaType format) {
+        return inFormat(ResponseEntity.ok().eTag(ETags.ofUser(user.getVersion(), format)), format)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(user);
+    }
+
+    private static ResponseEntity.BodyBuilder inFormat(ResponseEntity.BodyBuilder response, MediaType format) {
+        return format != null ? response.contentType(format) : response;
+    }
+
+    /**
+     * Marks the response, a {@code 304} included, as negotiated by the {@code Accept} header.
+     */
+    private static void varyByAccept(WebRequest request) {
+        if (request instanceof NativeWebRequest nativeRequest) {
+            HttpServletResponse response = nativeRequest.getNativeResponse(HttpServletResponse.class);
+            if (response != null) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            }
+        }
+    }
+
+    private static MediaType binaryFormat(WebRequest request) {
+        String[] accept = request.getHeaderValues(HttpHeaders.ACCEPT);
+        return accept != null ? BinaryFormats.preferred(MediaType.parseMediaTypes(Arrays.asList(accept))) : null;
+    }
+
+    private void checkDateRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new InvalidRequestException(RequestErrorCode.DATE_RANGE_INVALID);
+        }
+    }
+
+    private void writeNdjson(Stream<User> users, OutputStream out) throws IOException {
+        try (users) {
+            Iterator<User> iterator = users.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                UserJsonCodec.write(iterator.next(), out);
+                out.write('\n');
+                if (++written % STREAM_FLUSH_INTERVAL == 0) {
+                    out.flush();
+                }
+            }
+        }
+        out.flush();
     }
 }
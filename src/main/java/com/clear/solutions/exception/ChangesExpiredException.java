@@ -0,0 +1,19 @@
+package com.clear.solutions.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a change consumer asks for changes that are no longer buffered, so it has to reload
+ * the users and follow the changes from {@code lastSequence} on. Carries no stack trace, like the other
+ * client errors.
+ */
+@Getter
+public class ChangesExpiredException extends RuntimeException {
+    private final long lastSequence;
+
+    public ChangesExpiredException(long since, long lastSequence) {
+        super("Changes since " + since + " are no longer available, last sequence: " + lastSequence,
+                null, false, false);
+        this.lastSequence = lastSequence;
+    }
+}
@@ -1,70 +1,53 @@
 package com.clear.solutions.exception;
 
-import org.springframework.http.HttpStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 @ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class CustomGlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Object> handleRuntimeException(RuntimeException ex) {
-        System.out.println("Exception caught in GlobalExceptionHandler: " + ex.getMessage());
-
-        if (ex.getMessage().contains("User not found")) {
-            return new ResponseEntity<>("User not found. Please check the credentials and try again.",
-                    HttpStatus.NOT_FOUND);
-        }
-
-        if (ex.getMessage().contains("User already exist")) {
-            return new ResponseEntity<>("User already exist. Please add user only with unique email.",
-                    HttpStatus.BAD_REQUEST);
-        }
-
-        if (ex.getMessage().contains("From date must be before To date")) {
-            return new ResponseEntity<>("From date must be before To date.",
-                    HttpStatus.BAD_REQUEST);
-        }
-
-        return new ResponseEntity<>("An unexpected error occurred. Please try again later.",
-                HttpStatus.BAD_REQUEST);
+        return ErrorResponses.of(ex);
     }
 
-    @ExceptionHandler(UserValidationException.class)
-    public ResponseEntity<Object> handleException(Exception ex) {
+    @ExceptionHandler(UserNotFoundException.class)
+    public ResponseEntity<Object> handleException(UserNotFoundException ex) {
+        return ErrorResponses.of(ex);
+    }
 
-        if (ex.getMessage().contains("User is null")) {
-            return new ResponseEntity<>("User is null. Check input data please.",
-                    HttpStatus.BAD_REQUEST);
-        }
+    @ExceptionHandler(UserAlreadyExistsException.class)
+    public ResponseEntity<Object> handleException(UserAlreadyExistsException ex) {
+        return ErrorResponses.of(ex);
+    }
 
-        if (ex.getMessage().contains("Email is null or empty")) {
-            return new ResponseEntity<>("Email is null or empty. Check input data please.",
-                    HttpStatus.BAD_REQUEST);
-        }
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<Object> handleException(InvalidRequestException ex) {
+        return ErrorResponses.of(ex);
+    }
 
-        if (ex.getMessage().contains("Email format is invalid")) {
-            return new ResponseEntity<>("Email format is invalid. Check input data please.",
-                    HttpStatus.BAD_REQUEST);
-        }
+    @ExceptionHandler(InvalidMediaTypeException.class)
+    public ResponseEntity<Object> handleException(InvalidMediaTypeException ex) {
+        return ErrorResponses.of(ex);
+    }
 
-        if (ex.getMessage().contains("First name or last name is null or empty")) {
-            return new ResponseEntity<>("First name or last name is null or empty. Check input data please.",
-                    HttpStatus.BAD_REQUEST);
-        }
+    @ExceptionHandler(VersionMismatchException.class)
+    public ResponseEntity<Object> handleException(VersionMismatchException ex) {
+        return ErrorResponses.of(ex);
+    }
 
-        if (ex.getMessage().contains("User is less then")) {
-            return new ResponseEntity<>("User is less then 18 years. Check input data please.",
-                    HttpStatus.BAD_REQUEST);
-        }
+    @ExceptionHandler(ChangesExpiredException.class)
+    public ResponseEntity<Object> handleException(ChangesExpiredException ex) {
+        return ErrorResponses.of(ex);
+    }
 
-        if (ex.getMessage().contains("Birth date is invalid.")) {
-            return new ResponseEntity<>("Birth date is invalid. Check input data please.",
-                    HttpStatus.BAD_REQUEST);
-        }
-        return new ResponseEntity<>("An unexpected error occurred. Please try again later.",
-                HttpStatus.BAD_REQUEST);
+    @ExceptionHandler(UserValidationException.class)
+    public ResponseEntity<Object> handleException(UserValidationException ex) {
+        return ErrorResponses.of(ex);
     }
 }
@@ -0,0 +1,73 @@
+package com.clear.solutions.exception;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Maps the application exceptions to error responses, shared by the servlet and the reactive
+ * exception handlers so that both stacks answer with the same status and message.
+ * <p>
+ * Each expected failure has an exception type of its own and is mapped by it, never by its message. Those are
+ * client errors and are only logged at debug level, so a burst of bad requests doesn't serialize the request
+ * threads on the log appender; any other exception is a server error and is logged as such.
+ */
+@Slf4j
+@UtilityClass
+public class ErrorResponses {
+
+    /**
+     * Any failure without a mapping of its own is a server error.
+     */
+    public static ResponseEntity<Object> of(RuntimeException ex) {
+        log.error("Unexpected request failure", ex);
+        return new ResponseEntity<>("An unexpected error occurred. Please try again later.",
+                HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    public static ResponseEntity<Object> of(UserNotFoundException ex) {
+        log.debug("Request failed: {}", ex.getMessage());
+        return new ResponseEntity<>("User not found. Please check the credentials and try again.",
+                HttpStatus.NOT_FOUND);
+    }
+
+    public static ResponseEntity<Object> of(UserAlreadyExistsException ex) {
+        log.debug("Request failed: {}", ex.getMessage());
+        return new ResponseEntity<>("User already exist. Please add user only with unique email.",
+                HttpStatus.BAD_REQUEST);
+    }
+
+    public static ResponseEntity<Object> of(InvalidRequestException ex) {
+        log.debug("Request failed: {}", ex.getMessage());
+        String hint = ex.getCode() == RequestErrorCode.CURSOR_INVALID
+                ? " Use the cursor returned by the previous page."
+                : "";
+        return new ResponseEntity<>(ex.getMessage() + "." + hint, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * A malformed {@code Accept} or {@code Content-Type} header.
+     */
+    public static ResponseEntity<Object> of(InvalidMediaTypeException ex) {
+        log.debug("Request failed: {}", ex.getMessage());
+        return new ResponseEntity<>("Media type \"" + ex.getMediaType() + "\" is invalid. "
+                + "Check the Accept and Content-Type headers.", HttpStatus.BAD_REQUEST);
+    }
+
+    public static ResponseEntity<Object> of(VersionMismatchException ex) {
+        return new ResponseEntity<>("User was changed by another request. Reload it and try again.",
+                HttpStatus.PRECONDITION_FAILED);
+    }
+
+    public static ResponseEntity<Object> of(ChangesExpiredException ex) {
+        return new ResponseEntity<>("Changes since the given sequence are no longer available. "
+                + "Reload the users and follow the changes after sequence " + ex.getLastSequence() + ".",
+                HttpStatus.GONE);
+    }
+
+    public static ResponseEntity<Object> of(UserValidationException ex) {
+        return new ResponseEntity<>(ex.getResponseMessage(), HttpStatus.BAD_REQUEST);
+    }
+}
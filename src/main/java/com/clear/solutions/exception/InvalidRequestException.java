@@ -0,0 +1,17 @@
+package com.clear.solutions.exception;
+
+import lombok.Getter;
+
+/**
+ * Request parameter failure identified by its {@link RequestErrorCode}. Carries no stack trace, like
+ * {@link UserValidationException}.
+ */
+@Getter
+public class InvalidRequestException extends RuntimeException {
+    private final RequestErrorCode code;
+
+    public InvalidRequestException(RequestErrorCode code, Object... args) {
+        super(code.getMessage().formatted(args), null, false, false);
+        this.code = code;
+    }
+}
@@ -0,0 +1,56 @@
+package com.clear.solutions.exception;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.reactive.result.method.annotation.ResponseEntityExceptionHandler;
+
+/**
+ * WebFlux counterpart of {@link CustomGlobalExceptionHandler}.
+ */
+@ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveGlobalExceptionHandler extends ResponseEntityExceptionHandler {
+
+    @ExceptionHandler(RuntimeException.class)
+    public ResponseEntity<Object> handleRuntimeException(RuntimeException ex) {
+        return ErrorResponses.of(ex);
+    }
+
+    @ExceptionHandler(UserNotFoundException.class)
+    public ResponseEntity<Object> handleException(UserNotFoundException ex) {
+        return ErrorResponses.of(ex);
+    }
+
+    @ExceptionHandler(UserAlreadyExistsException.class)
+    public ResponseEntity<Object> handleException(UserAlreadyExistsException ex) {
+        return ErrorResponses.of(ex);
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<Object> handleException(InvalidRequestException ex) {
+        return ErrorResponses.of(ex);
+    }
+
+    @ExceptionHandler(InvalidMediaTypeException.class)
+    public ResponseEntity<Object> handleException(InvalidMediaTypeException ex) {
+        return ErrorResponses.of(ex);
+    }
+
+    @ExceptionHandler(VersionMismatchException.class)
+    public ResponseEntity<Object> handleException(VersionMismatchException ex) {
+        return ErrorResponses.of(ex);
+    }
+
+    @ExceptionHandler(ChangesExpiredException.class)
+    public ResponseEntity<Object> handleException(ChangesExpiredException ex) {
+        return ErrorResponses.of(ex);
+    }
+
+    @ExceptionHandler(UserValidationException.class)
+    public ResponseEntity<Object> handleException(UserValidationException ex) {
+        return ErrorResponses.of(ex);
+    }
+}
@@ -0,0 +1,22 @@
+package com.clear.solutions.exception;
+
+/**
+ * Request parameters rejected by the user service and controllers. {@link #LIMIT_OUT_OF_RANGE} and
+ * {@link #BATCH_TOO_LARGE} carry the configured maximum as a format argument.
+ */
+public enum RequestErrorCode {
+    DATE_RANGE_INVALID("From date must be before To date"),
+    CURSOR_INVALID("Cursor is invalid"),
+    LIMIT_OUT_OF_RANGE("Limit must be between 1 and %d"),
+    BATCH_TOO_LARGE("Batch size must not exceed %d");
+
+    private final String message;
+
+    RequestErrorCode(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
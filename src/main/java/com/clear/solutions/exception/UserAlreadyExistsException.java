@@ -0,0 +1,12 @@
+package com.clear.solutions.exception;
+
+/**
+ * Thrown when a user is created, or moved to an email, that another user is already stored under.
+ * Carries no stack trace, like the other client errors.
+ */
+public class UserAlreadyExistsException extends RuntimeException {
+
+    public UserAlreadyExistsException(String email) {
+        super("User already exist, email:" + email, null, false, false);
+    }
+}
@@ -0,0 +1,12 @@
+package com.clear.solutions.exception;
+
+/**
+ * Thrown when no user is stored under the requested email. It's an expected outcome answered with
+ * {@code 404}, so it carries no stack trace.
+ */
+public class UserNotFoundException extends RuntimeException {
+
+    public UserNotFoundException(String email) {
+        super("User not found, email: " + email, null, false, false);
+    }
+}
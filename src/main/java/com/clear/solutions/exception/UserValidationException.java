@@ -1,7 +1,25 @@
 package com.clear.solutions.exception;
 
+import lombok.Getter;
+
+/**
+ * Validation failure identified by its {@link ValidationErrorCode}. Instances are immutable and
+ * carry no stack trace, so the validator allocates one per rule up front and rethrows it.
+ */
+@Getter
 public class UserValidationException extends RuntimeException {
-    public UserValidationException(String message) {
-        super(message);
+    private static final String RESPONSE_SUFFIX = " Check input data please.";
+
+    private final ValidationErrorCode code;
+    private final String responseMessage;
+
+    public UserValidationException(ValidationErrorCode code) {
+        this(code, code.getMessage());
+    }
+
+    public UserValidationException(ValidationErrorCode code, String message) {
+        super(message, null, false, false);
+        this.code = code;
+        this.responseMessage = (message.endsWith(".") ? message : message + ".") + RESPONSE_SUFFIX;
     }
 }
@@ -0,0 +1,24 @@
+package com.clear.solutions.exception;
+
+/**
+ * Rules checked by the user validator. {@link #UNDER_AGE} carries the configured minimum age
+ * as a format argument.
+ */
+public enum ValidationErrorCode {
+    USER_NULL("User is null"),
+    EMAIL_EMPTY("Email is null or empty"),
+    EMAIL_INVALID("Email format is invalid"),
+    NAME_EMPTY("First name or last name is null or empty"),
+    BIRTH_DATE_INVALID("Birth date is invalid."),
+    UNDER_AGE("User is less then %d years");
+
+    private final String message;
+
+    ValidationErrorCode(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
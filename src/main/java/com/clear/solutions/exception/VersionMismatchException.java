@@ -0,0 +1,12 @@
+package com.clear.solutions.exception;
+
+/**
+ * Thrown when a conditional write names a version other than the stored one,
+ * i.e. the user was changed since the client read it. Carries no stack trace, like the other client errors.
+ */
+public class VersionMismatchException extends RuntimeException {
+
+    public VersionMismatchException(String email) {
+        super("User version mismatch, email: " + email, null, false, false);
+    }
+}
@@ -0,0 +1,400 @@
+package com.clear.solutions.json;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Pull parser over a UTF-8 JSON document held in a byte array. Reads exactly the tokens the user codec
+ * needs and skips anything else; malformed input is reported as an {@link IllegalArgumentException}
+ * with the offset of the problem.
+ */
+final class JsonInput {
+    private final byte[] bytes;
+    private final int end;
+    private int position;
+
+    JsonInput(byte[] bytes) {
+        this.bytes = bytes;
+        this.end = bytes.length;
+    }
+
+    /**
+     * @return the next non-whitespace byte without consuming it, or {@code -1} at the end of input
+     */
+    int peek() {
+        skipWhitespace();
+        return position < end ? bytes[position] : -1;
+    }
+
+    void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        position++;
+    }
+
+    /**
+     * Consumes {@code c} if it is the next byte.
+     */
+    boolean consume(char c) {
+        if (peek() == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes a {@code null} literal if it is the next token.
+     */
+    boolean consumeNull() {
+        if (peek() == 'n') {
+            expectLiteral("null");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads an object field name and the colon after it.
+     *
+     * @return index of the name in {@code names}, or {@code -1} for any other name
+     */
+    int readFieldName(byte[][] names) {
+        expect('"');
+        int start = position;
+        int index = -1;
+        int close = indexOfPlainStringEnd(start);
+        if (close >= 0) {
+            for (int i = 0; i < names.length; i++) {
+                if (Arrays.equals(bytes, start, close, names[i], 0, names[i].length)) {
+                    index = i;
+                    break;
+                }
+            }
+            position = close + 1;
+        } else {
+            // names with escapes are rare; decode and compare
+            position = start - 1;
+            byte[] name = readString().getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < names.length; i++) {
+                if (Arrays.equals(name, names[i])) {
+                    index = i;
+                    break;
+                }
+            }
+        }
+        expect(':');
+        return index;
+    }
+
+    /**
+     * Reads a string, or {@code null}. Numbers and booleans are returned as their text, like Jackson
+     * coerces scalars into {@code String} properties.
+     */
+    String readText() {
+        int next = peek();
+        if (next == '"') {
+            return readString();
+        }
+        if (next == 'n') {
+            expectLiteral("null");
+            return null;
+        }
+        if (next == 't' || next == 'f' || next == '-' || next >= '0' && next <= '9') {
+            int start = position;
+            skipScalar();
+            return new String(bytes, start, position - start, StandardCharsets.US_ASCII);
+        }
+        throw error("Expected a string");
+    }
+
+    long readLong() {
+        int next = peek();
+        if (next == '"') {
+            String text = readString();
+            try {
+                return Long.parseLong(text.trim());
+            } catch (NumberFormatException e) {
+                throw error("Expected a number, got \"" + text + "\"");
+            }
+        }
+        int tokenStart = position;
+        boolean negative = next == '-';
+        if (negative) {
+            position++;
+        }
+        int start = position;
+        long value = 0;
+        while (position < end && bytes[position] >= '0' && bytes[position] <= '9') {
+            value = value * 10 + (bytes[position++] - '0');
+        }
+        int digits = position - start;
+        if (digits == 0) {
+            throw error("Expected a number");
+        }
+        if (digits > 18 || position < end && (bytes[position] == '.' || bytes[position] == 'e'
+                || bytes[position] == 'E')) {
+            // out of the fast range or not an integer literal: let the JDK decide
+            position = tokenStart;
+            skipScalar();
+            String text = new String(bytes, tokenStart, position - tokenStart, StandardCharsets.US_ASCII);
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                return (long) Double.parseDouble(text);
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads a date given as a {@code yyyy-MM-dd} string, any other ISO date string, {@code [year, month, day]}
+     * array, empty string or {@code null}; the forms Jackson accepts for a {@link LocalDate}.
+     * The common {@code yyyy-MM-dd} form is decoded from the bytes without a formatter.
+     */
+    LocalDate readDate() {
+        int next = peek();
+        if (next == 'n') {
+            expectLiteral("null");
+            return null;
+        }
+        if (next == '[') {
+            position++;
+            int year = (int) readLong();
+            expect(',');
+            int month = (int) readLong();
+            expect(',');
+            int day = (int) readLong();
+            expect(']');
+            return date(year, month, day);
+        }
+        if (next != '"') {
+            throw error("Expected a date");
+        }
+        int start = position + 1;
+        if (start + 10 < end && bytes[start + 10] == '"' && bytes[start + 4] == '-' && bytes[start + 7] == '-') {
+            int year = digits(start, 4);
+            int month = digits(start + 5, 2);
+            int day = digits(start + 8, 2);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                position = start + 11;
+                return date(year, month, day);
+            }
+        }
+        String text = readString().trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw error("Invalid date \"" + text + "\"");
+        }
+    }
+
+    /**
+     * Skips one value of any type, including nested objects and arrays.
+     */
+    void skipValue() {
+        int next = peek();
+        if (next == '"') {
+            skipString();
+        } else if (next == '{' || next == '[') {
+            int depth = 0;
+            do {
+                int c = peek();
+                if (c == '"') {
+                    skipString();
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                    position++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                    position++;
+                } else if (c == ',' || c == ':') {
+                    position++;
+                } else if (c == -1) {
+                    throw error("Unexpected end of input");
+                } else {
+                    skipScalar();
+                }
+            } while (depth > 0);
+        } else if (next == -1) {
+            throw error("Unexpected end of input");
+        } else {
+            skipScalar();
+        }
+    }
+
+    /**
+     * Rejects anything but whitespace after the document.
+     */
+    void finish() {
+        if (peek() != -1) {
+            throw error("Unexpected content after the document");
+        }
+    }
+
+    IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + position);
+    }
+
+    private String readString() {
+        expect('"');
+        int start = position;
+        int close = indexOfPlainStringEnd(start);
+        if (close >= 0) {
+            position = close + 1;
+            return new String(bytes, start, close - start, StandardCharsets.UTF_8);
+        }
+        StringBuilder text = new StringBuilder();
+        int segment = start;
+        while (true) {
+            if (position >= end) {
+                throw error("Unterminated string");
+            }
+            byte b = bytes[position];
+            if (b == '"') {
+                text.append(new String(bytes, segment, position - segment, StandardCharsets.UTF_8));
+                position++;
+                return text.toString();
+            }
+            if (b != '\\') {
+                if (b >= 0 && b < 0x20) {
+                    throw error("Unescaped control character in string");
+                }
+                position++;
+                continue;
+            }
+            text.append(new String(bytes, segment, position - segment, StandardCharsets.UTF_8));
+            if (position + 1 >= end) {
+                throw error("Unterminated string");
+            }
+            byte escape = bytes[position + 1];
+            position += 2;
+            switch (escape) {
+                case '"', '\\', '/' -> text.append((char) escape);
+                case 'b' -> text.append('\b');
+                case 'f' -> text.append('\f');
+                case 'n' -> text.append('\n');
+                case 'r' -> text.append('\r');
+                case 't' -> text.append('\t');
+                case 'u' -> {
+                    int c = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = position < end ? Character.digit(bytes[position++], 16) : -1;
+                        if (digit < 0) {
+                            throw error("Invalid unicode escape");
+                        }
+                        c = c << 4 | digit;
+                    }
+                    text.append((char) c);
+                }
+                default -> throw error("Invalid escape '\\" + (char) escape + "'");
+            }
+            segment = position;
+        }
+    }
+
+    /**
+     * @return offset of the closing quote of a string starting at {@code start} if it has no escapes,
+     *         else {@code -1}
+     */
+    private int indexOfPlainStringEnd(int start) {
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if (b == '"') {
+                return i;
+            }
+            if (b == '\\' || b >= 0 && b < 0x20) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private void skipString() {
+        position++;
+        while (position < end) {
+            byte b = bytes[position++];
+            if (b == '"') {
+                return;
+            }
+            if (b == '\\') {
+                position++;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private void skipScalar() {
+        int start = position;
+        while (position < end) {
+            byte b = bytes[position];
+            if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                break;
+            }
+            position++;
+        }
+        String token = new String(bytes, start, position - start, StandardCharsets.US_ASCII);
+        if (!token.equals("true") && !token.equals("false") && !token.equals("null") && !isNumber(token)) {
+            position = start;
+            throw error("Unexpected token '" + token + "'");
+        }
+    }
+
+    private void expectLiteral(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (position + i >= end || bytes[position + i] != literal.charAt(i)) {
+                throw error("Expected " + literal);
+            }
+        }
+        position += literal.length();
+    }
+
+    private void skipWhitespace() {
+        while (position < end) {
+            byte b = bytes[position];
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * @return the decimal value of {@code count} digits at {@code offset}, or {@code -1} if one isn't a digit
+     */
+    private int digits(int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private LocalDate date(int year, int month, int day) {
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            throw error("Invalid date: " + e.getMessage());
+        }
+    }
+
+    private static boolean isNumber(String token) {
+        try {
+            Double.parseDouble(token);
+            return !token.isEmpty() && (token.charAt(0) == '-' || Character.isDigit(token.charAt(0)));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.clear.solutions.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Growable UTF-8 JSON byte buffer. Each thread reuses one instance through {@link #acquire()};
+ * buffers that grew past {@link #RETAINED_CAPACITY} for a large list are dropped on the next acquire,
+ * so an occasional big response doesn't pin its buffer to the thread.
+ */
+final class JsonOutput {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<JsonOutput> CACHED = ThreadLocal.withInitial(JsonOutput::new);
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    /**
+     * Escape of each ASCII character: 0 for none, 'u' for a six-character escape, else the short escape.
+     */
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = 'u';
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['\t'] = 't';
+    }
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    static JsonOutput acquire() {
+        JsonOutput output = CACHED.get();
+        if (output.bytes.length > RETAINED_CAPACITY) {
+            output.bytes = new byte[INITIAL_CAPACITY];
+        }
+        output.size = 0;
+        return output;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    byte[] buffer() {
+        return bytes;
+    }
+
+    void writeByte(int b) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) b;
+    }
+
+    void writeRaw(byte[] raw) {
+        ensureCapacity(raw.length);
+        System.arraycopy(raw, 0, bytes, size, raw.length);
+        size += raw.length;
+    }
+
+    void writeNull() {
+        writeRaw(NULL);
+    }
+
+    void writeLong(long value) {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                writeRaw(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            writeByte('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = size + digits - 1; i >= size; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+    }
+
+    /**
+     * Writes {@code yyyy-MM-dd} as a string, the ISO form Jackson uses for a {@link LocalDate}.
+     */
+    void writeDate(LocalDate date) {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            writeString(date.toString());
+            return;
+        }
+        ensureCapacity(12);
+        bytes[size++] = '"';
+        writeDigits(year / 100);
+        writeDigits(year % 100);
+        bytes[size++] = '-';
+        writeDigits(date.getMonthValue());
+        bytes[size++] = '-';
+        writeDigits(date.getDayOfMonth());
+        bytes[size++] = '"';
+    }
+
+    /**
+     * Writes a quoted, escaped string, or {@code null}. Non-ASCII characters are written as UTF-8,
+     * control characters are escaped like Jackson does.
+     */
+    void writeString(String value) {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        int length = value.length();
+        // at most 6 bytes per escaped char, 3 per other char and 2 quotes
+        ensureCapacity(length * 6 + 2);
+        byte[] out = bytes;
+        int position = size;
+        out[position++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte escape = ESCAPES[c];
+                if (escape == 0) {
+                    out[position++] = (byte) c;
+                } else {
+                    out[position++] = '\\';
+                    out[position++] = escape;
+                    if (escape == 'u') {
+                        out[position++] = '0';
+                        out[position++] = '0';
+                        out[position++] = HEX[c >> 4];
+                        out[position++] = HEX[c & 0xF];
+                    }
+                }
+            } else if (c < 0x800) {
+                out[position++] = (byte) (0xC0 | c >> 6);
+                out[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out[position++] = (byte) (0xF0 | codePoint >> 18);
+                out[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                out[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                out[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else {
+                if (Character.isSurrogate(c)) {
+                    c = '\uFFFD';
+                }
+                out[position++] = (byte) (0xE0 | c >> 12);
+                out[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                out[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        out[position++] = '"';
+        size = position;
+    }
+
+    private void writeDigits(int twoDigits) {
+        bytes[size++] = (byte) ('0' + twoDigits / 10);
+        bytes[size++] = (byte) ('0' + twoDigits % 10);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+}
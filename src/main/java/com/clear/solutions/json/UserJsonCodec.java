@@ -0,0 +1,191 @@
+package com.clear.solutions.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import com.clear.solutions.model.User;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Hand-written JSON serialization of {@link User}, without reflection or a date formatter.
+ * <p>
+ * Writes the bytes Jackson writes for a user with Spring Boot's defaults: the properties in declaration
+ * order, {@code null}s included and the birth date as a {@code yyyy-MM-dd} string. Reads what Jackson reads:
+ * properties in any order, unknown ones skipped, and the birth date as an ISO string or
+ * {@code [year, month, day]} array. Output goes into a buffer reused by the calling thread.
+ */
+@UtilityClass
+public class UserJsonCodec {
+    /**
+     * Bytes after which a list being written is flushed to the stream, so the buffer stays small.
+     */
+    private static final int FLUSH_BYTES = 32 * 1024;
+
+    private static final int EMAIL = 0;
+    private static final int FIRST_NAME = 1;
+    private static final int LAST_NAME = 2;
+    private static final int BIRTH_DATE = 3;
+    private static final int ADDRESS = 4;
+    private static final int PHONE_NUMBER = 5;
+    private static final int VERSION = 6;
+    private static final byte[][] NAMES = names("email", "firstName", "lastName", "birthDate", "address",
+            "phoneNumber", "version");
+    private static final byte[][] FIELD_PREFIXES = fieldPrefixes();
+
+    public static byte[] toJson(User user) {
+        JsonOutput output = JsonOutput.acquire();
+        writeUser(user, output);
+        return output.toByteArray();
+    }
+
+    public static byte[] toJson(Collection<User> users) {
+        JsonOutput output = JsonOutput.acquire();
+        writeUsers(users, output);
+        return output.toByteArray();
+    }
+
+    public static void write(User user, OutputStream out) throws IOException {
+        JsonOutput output = JsonOutput.acquire();
+        writeUser(user, output);
+        output.writeTo(out);
+    }
+
+    /**
+     * Writes the users as a JSON array, flushing to {@code out} every {@link #FLUSH_BYTES} bytes or so.
+     */
+    public static void write(Collection<User> users, OutputStream out) throws IOException {
+        JsonOutput output = JsonOutput.acquire();
+        output.writeByte('[');
+        boolean first = true;
+        for (User user : users) {
+            if (!first) {
+                output.writeByte(',');
+            }
+            writeUser(user, output);
+            first = false;
+            if (output.size() >= FLUSH_BYTES) {
+                output.writeTo(out);
+                output = JsonOutput.acquire();
+            }
+        }
+        output.writeByte(']');
+        output.writeTo(out);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code json} is not a JSON object or a property has the wrong type
+     */
+    public static User readUser(byte[] json) {
+        JsonInput input = new JsonInput(json);
+        User user = readUser(input);
+        input.finish();
+        return user;
+    }
+
+    /**
+     * @return the users of a JSON array, as a mutable list
+     * @throws IllegalArgumentException if {@code json} is not a JSON array of user objects
+     */
+    public static List<User> readUsers(byte[] json) {
+        JsonInput input = new JsonInput(json);
+        List<User> users = new ArrayList<>();
+        if (!input.consumeNull()) {
+            input.expect('[');
+            if (!input.consume(']')) {
+                do {
+                    users.add(readUser(input));
+                } while (input.consume(','));
+                input.expect(']');
+            }
+        }
+        input.finish();
+        return users;
+    }
+
+    static void writeUsers(Collection<User> users, JsonOutput output) {
+        output.writeByte('[');
+        boolean first = true;
+        for (User user : users) {
+            if (!first) {
+                output.writeByte(',');
+            }
+            writeUser(user, output);
+            first = false;
+        }
+        output.writeByte(']');
+    }
+
+    static void writeUser(User user, JsonOutput output) {
+        if (user == null) {
+            output.writeNull();
+            return;
+        }
+        output.writeRaw(FIELD_PREFIXES[EMAIL]);
+        output.writeString(user.getEmail());
+        output.writeRaw(FIELD_PREFIXES[FIRST_NAME]);
+        output.writeString(user.getFirstName());
+        output.writeRaw(FIELD_PREFIXES[LAST_NAME]);
+        output.writeString(user.getLastName());
+        output.writeRaw(FIELD_PREFIXES[BIRTH_DATE]);
+        if (user.getBirthDate() != null) {
+            output.writeDate(user.getBirthDate());
+        } else {
+            output.writeNull();
+        }
+        output.writeRaw(FIELD_PREFIXES[ADDRESS]);
+        output.writeString(user.getAddress());
+        output.writeRaw(FIELD_PREFIXES[PHONE_NUMBER]);
+        output.writeString(user.getPhoneNumber());
+        output.writeRaw(FIELD_PREFIXES[VERSION]);
+        output.writeLong(user.getVersion());
+        output.writeByte('}');
+    }
+
+    private static User readUser(JsonInput input) {
+        if (input.consumeNull()) {
+            return null;
+        }
+        User.UserBuilder user = User.builder();
+        input.expect('{');
+        if (input.consume('}')) {
+            return user.build();
+        }
+        do {
+            switch (input.readFieldName(NAMES)) {
+                case EMAIL -> user.email(input.readText());
+                case FIRST_NAME -> user.firstName(input.readText());
+                case LAST_NAME -> user.lastName(input.readText());
+                case BIRTH_DATE -> user.birthDate(input.readDate());
+                case ADDRESS -> user.address(input.readText());
+                case PHONE_NUMBER -> user.phoneNumber(input.readText());
+                case VERSION -> user.version(input.consumeNull() ? 0 : input.readLong());
+                default -> input.skipValue();
+            }
+        } while (input.consume(','));
+        input.expect('}');
+        return user.build();
+    }
+
+    private static byte[][] names(String... names) {
+        byte[][] bytes = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            bytes[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return bytes;
+    }
+
+    /**
+     * Bytes written before each value: the opening brace or a comma, the quoted name and the colon.
+     */
+    private static byte[][] fieldPrefixes() {
+        byte[][] prefixes = new byte[NAMES.length][];
+        for (int i = 0; i < NAMES.length; i++) {
+            String name = new String(NAMES[i], StandardCharsets.US_ASCII);
+            prefixes[i] = ((i == 0 ? "{" : ",") + '"' + name + "\":").getBytes(StandardCharsets.US_ASCII);
+        }
+        return prefixes;
+    }
+}
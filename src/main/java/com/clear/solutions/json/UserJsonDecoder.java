@@ -0,0 +1,100 @@
+package com.clear.solutions.json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import com.clear.solutions.model.User;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux counterpart of {@link UserJsonHttpMessageConverter}: decodes users and collections of users with
+ * {@link UserJsonCodec}. The body is joined into one buffer of at most {@code maxInMemorySize} bytes first.
+ */
+public class UserJsonDecoder implements Decoder<Object> {
+    private static final List<MimeType> MIME_TYPES = List.of(MediaType.APPLICATION_JSON,
+            new MediaType("application", "*+json"));
+
+    private final int maxInMemorySize;
+
+    public UserJsonDecoder(int maxInMemorySize) {
+        this.maxInMemorySize = maxInMemorySize;
+    }
+
+    /**
+     * Decodes users and collections of users that an {@link ArrayList} can stand in for.
+     */
+    @Override
+    public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+        Class<?> raw = elementType.resolve();
+        return UserJsonEncoder.isUserType(elementType)
+                && (raw == User.class || raw.isAssignableFrom(ArrayList.class))
+                && (mimeType == null || MIME_TYPES.stream().anyMatch(type -> type.includes(mimeType)));
+    }
+
+    @Override
+    public List<MimeType> getDecodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    /**
+     * Decodes a {@code Flux<User>} from a JSON array or a single user object.
+     */
+    @Override
+    public Flux<Object> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                               MimeType mimeType, Map<String, Object> hints) {
+        return DataBufferUtils.join(inputStream, maxInMemorySize)
+                .flatMapMany(buffer -> {
+                    byte[] json = drain(buffer);
+                    if (elementType.resolve() == User.class && startsWithArray(json)) {
+                        return Flux.fromIterable((List<?>) read(json, true));
+                    }
+                    return Mono.justOrEmpty(read(json, elementType.resolve() != User.class));
+                });
+    }
+
+    @Override
+    public Mono<Object> decodeToMono(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                     MimeType mimeType, Map<String, Object> hints) {
+        return DataBufferUtils.join(inputStream, maxInMemorySize)
+                .flatMap(buffer -> Mono.justOrEmpty(decode(buffer, elementType, mimeType, hints)));
+    }
+
+    @Override
+    public Object decode(DataBuffer buffer, ResolvableType targetType, MimeType mimeType,
+                         Map<String, Object> hints) throws DecodingException {
+        return read(drain(buffer), targetType.resolve() != User.class);
+    }
+
+    private static byte[] drain(DataBuffer buffer) {
+        byte[] json = new byte[buffer.readableByteCount()];
+        buffer.read(json);
+        DataBufferUtils.release(buffer);
+        return json;
+    }
+
+    private static Object read(byte[] json, boolean collection) {
+        try {
+            return collection ? UserJsonCodec.readUsers(json) : UserJsonCodec.readUser(json);
+        } catch (IllegalArgumentException e) {
+            throw new DecodingException("JSON decoding error: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean startsWithArray(byte[] json) {
+        for (byte b : json) {
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                return b == '[';
+            }
+        }
+        return false;
+    }
+}
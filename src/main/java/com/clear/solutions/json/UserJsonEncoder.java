@@ -0,0 +1,99 @@
+package com.clear.solutions.json;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import com.clear.solutions.model.User;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux counterpart of {@link UserJsonHttpMessageConverter}: encodes users and collections of users with
+ * {@link UserJsonCodec}. A stream of users becomes a JSON array written {@value #USERS_PER_BUFFER} users
+ * per buffer, or one line per user for {@code application/x-ndjson}, flushed as it goes.
+ */
+public class UserJsonEncoder implements HttpMessageEncoder<Object> {
+    private static final int USERS_PER_BUFFER = 256;
+    private static final List<MimeType> MIME_TYPES = List.of(MediaType.APPLICATION_JSON,
+            new MediaType("application", "*+json"), MediaType.APPLICATION_NDJSON);
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return isUserType(elementType)
+                && (mimeType == null || MIME_TYPES.stream().anyMatch(type -> type.includes(mimeType)));
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return List.of(MediaType.APPLICATION_NDJSON);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        if (inputStream instanceof Mono<?> value) {
+            return value.map(user -> encodeValue(user, bufferFactory, elementType, mimeType, hints)).flux();
+        }
+        if (mimeType != null && MediaType.APPLICATION_NDJSON.isCompatibleWith(mimeType)) {
+            return Flux.from(inputStream).map(user -> {
+                JsonOutput output = JsonOutput.acquire();
+                write(user, output);
+                output.writeByte('\n');
+                return bufferFactory.wrap(output.toByteArray());
+            });
+        }
+        Flux<DataBuffer> elements = Flux.from(inputStream)
+                .buffer(USERS_PER_BUFFER)
+                .index()
+                .map(chunk -> {
+                    JsonOutput output = JsonOutput.acquire();
+                    for (int i = 0; i < chunk.getT2().size(); i++) {
+                        if (chunk.getT1() > 0 || i > 0) {
+                            output.writeByte(',');
+                        }
+                        write(chunk.getT2().get(i), output);
+                    }
+                    return bufferFactory.wrap(output.toByteArray());
+                });
+        return Flux.concat(Mono.fromSupplier(() -> bufferFactory.wrap(new byte[]{'['})), elements,
+                Mono.fromSupplier(() -> bufferFactory.wrap(new byte[]{']'})));
+    }
+
+    @Override
+    public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  MimeType mimeType, Map<String, Object> hints) {
+        JsonOutput output = JsonOutput.acquire();
+        write(value, output);
+        return bufferFactory.wrap(output.toByteArray());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void write(Object value, JsonOutput output) {
+        if (value instanceof Collection<?> users) {
+            UserJsonCodec.writeUsers((Collection<User>) users, output);
+        } else {
+            UserJsonCodec.writeUser((User) value, output);
+        }
+    }
+
+    static boolean isUserType(ResolvableType type) {
+        Class<?> raw = type.resolve();
+        if (raw == User.class) {
+            return true;
+        }
+        return raw != null && Collection.class.isAssignableFrom(raw)
+                && type.asCollection().resolveGeneric(0) == User.class;
+    }
+}
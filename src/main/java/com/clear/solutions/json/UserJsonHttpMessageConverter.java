@@ -0,0 +1,83 @@
+package com.clear.solutions.json;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import com.clear.solutions.model.User;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+/**
+ * Reads and writes {@link User} and collections of users with {@link UserJsonCodec}. Registered ahead of
+ * the Jackson converter, so it serves the user bodies of the servlet API; other types fall through to Jackson.
+ */
+public class UserJsonHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public UserJsonHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        setDefaultCharset(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == User.class;
+    }
+
+    /**
+     * Reads users and collections of users that an {@link ArrayList} can stand in for.
+     */
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return (type == User.class || isUserCollection(type, true)) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (clazz == User.class || type != null && isUserCollection(type, false)) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        byte[] body = inputMessage.getBody().readAllBytes();
+        try {
+            return type == User.class ? UserJsonCodec.readUser(body) : UserJsonCodec.readUsers(body);
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException("JSON parse error: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(clazz, null, inputMessage);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        if (value instanceof User user) {
+            UserJsonCodec.write(user, outputMessage.getBody());
+        } else {
+            UserJsonCodec.write((Collection<User>) value, outputMessage.getBody());
+        }
+    }
+
+    private static boolean isUserCollection(Type type, boolean reading) {
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+        ResolvableType resolved = ResolvableType.forType(type);
+        Class<?> raw = resolved.resolve();
+        if (raw == null || !Collection.class.isAssignableFrom(raw)
+                || reading && !raw.isAssignableFrom(ArrayList.class)) {
+            return false;
+        }
+        return resolved.asCollection().resolveGeneric(0) == User.class;
+    }
+}
@@ -0,0 +1,110 @@
+package com.clear.solutions.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import com.clear.solutions.exception.ValidationErrorCode;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hot-path meters of the user operations, registered once up front: a timer with a percentile
+ * histogram per {@code UserService} method and per validator check, and a counter per validation
+ * error code. Recording is a lookup in an {@link EnumMap} plus two clock reads, so it stays on permanently.
+ * <p>
+ * Callers take {@link #start()} and pass it to {@code record} in a {@code finally} block,
+ * which avoids allocating a lambda or a {@link Timer.Sample} per call.
+ */
+@Component
+public class UserMetrics {
+    public static final String SERVICE_TIMER = "user.service";
+    public static final String VALIDATION_TIMER = "user.validation";
+    public static final String VALIDATION_ERRORS = "user.validation.errors";
+
+    /**
+     * Meters that record nothing, for services created outside of Spring.
+     */
+    public static final UserMetrics NOOP = new UserMetrics(new CompositeMeterRegistry());
+
+    public enum Operation {
+        CREATE_USER("createUser"),
+        UPDATE_USER("updateUser"),
+        PATCH_USER("patchUser"),
+        DELETE_USER("deleteUser"),
+        SEARCH_USERS("searchUsers"),
+        SEARCH_USERS_PAGE("searchUsersPage"),
+        FILTER_USERS("filterUsers"),
+        FILTER_USERS_PAGE("filterUsersPage"),
+        STREAM_USERS("streamUsers"),
+        GET_BY_EMAIL("getByEmail"),
+        CREATE_USERS("createUsers"),
+        DELETE_USERS("deleteUsers");
+
+        private final String method;
+
+        Operation(String method) {
+            this.method = method;
+        }
+    }
+
+    public enum Check {
+        VALIDATE("validate"),
+        VALIDATE_USER("validateUser"),
+        VALIDATE_EMAIL("validateEmail");
+
+        private final String method;
+
+        Check(String method) {
+            this.method = method;
+        }
+    }
+
+    private final Clock clock;
+    private final Map<Operation, Timer> operations = new EnumMap<>(Operation.class);
+    private final Map<Check, Timer> checks = new EnumMap<>(Check.class);
+    private final Map<ValidationErrorCode, Counter> violations = new EnumMap<>(ValidationErrorCode.class);
+
+    public UserMetrics(MeterRegistry registry) {
+        this.clock = registry.config().clock();
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, Timer.builder(SERVICE_TIMER)
+                    .description("User service operations")
+                    .tag("method", operation.method)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        for (Check check : Check.values()) {
+            checks.put(check, Timer.builder(VALIDATION_TIMER)
+                    .description("User validator checks")
+                    .tag("check", check.method)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        for (ValidationErrorCode code : ValidationErrorCode.values()) {
+            violations.put(code, Counter.builder(VALIDATION_ERRORS)
+                    .description("Validation failures by error code")
+                    .tag("code", code.name())
+                    .register(registry));
+        }
+    }
+
+    public long start() {
+        return clock.monotonicTime();
+    }
+
+    public void record(Operation operation, long start) {
+        operations.get(operation).record(clock.monotonicTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    public void record(Check check, long start) {
+        checks.get(check).record(clock.monotonicTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    public void countViolation(ValidationErrorCode code) {
+        violations.get(code).increment();
+    }
+}
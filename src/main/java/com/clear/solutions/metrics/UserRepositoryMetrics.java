@@ -0,0 +1,41 @@
+package com.clear.solutions.metrics;
+
+import com.clear.solutions.repository.UserRepository;
+import com.clear.solutions.repository.UserRepository.AttributeIndex;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Store size, index size and change count of the {@link UserRepository}, read when the registry is scraped.
+ * The heap birth date index and the name indexes count their entries by traversal, so they're only sampled
+ * at scrape time.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserRepositoryMetrics implements MeterBinder {
+    private final UserRepository userRepository;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.store.size", userRepository, UserRepository::size)
+                .description("Number of stored users")
+                .register(registry);
+        Gauge.builder("user.index.size", userRepository, UserRepository::birthDateIndexSize)
+                .description("Number of entries of a secondary index")
+                .tag("index", "birthDate")
+                .register(registry);
+        for (AttributeIndex index : AttributeIndex.values()) {
+            Gauge.builder("user.index.size", userRepository, repository -> repository.attributeIndexSize(index))
+                    .description("Number of entries of a secondary index")
+                    .tag("index", index.parameter())
+                    .register(registry);
+        }
+        FunctionCounter.builder("user.store.modifications", userRepository, UserRepository::modificationCount)
+                .description("Changes applied to the store")
+                .register(registry);
+    }
+}
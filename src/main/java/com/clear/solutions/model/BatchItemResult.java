@@ -0,0 +1,30 @@
+package com.clear.solutions.model;
+
+import lombok.Value;
+
+/**
+ * Outcome of a single item of a batch request. {@code index} is the item position in the request,
+ * {@code error} holds the failure message and is {@code null} for successful items.
+ */
+@Value
+public class BatchItemResult {
+    int index;
+    String email;
+    boolean success;
+    String error;
+
+    public static BatchItemResult succeeded(int index, String email) {
+        return new BatchItemResult(index, email, true, null);
+    }
+
+    public static BatchItemResult failed(int index, String email, String error) {
+        return new BatchItemResult(index, email, false, error);
+    }
+
+    /**
+     * The item failed with {@code error}, the exception the single-item operation throws in the same case.
+     */
+    public static BatchItemResult failed(int index, String email, RuntimeException error) {
+        return failed(index, email, error.getMessage());
+    }
+}
@@ -3,18 +3,36 @@ package com.clear.solutions.model;
 import java.time.LocalDate;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+import lombok.With;
+import lombok.extern.jackson.Jacksonized;
 
-@Builder
-@Data
+/**
+ * Immutable user snapshot. Stored instances are never modified: changes are made on a copy
+ * via {@link #toBuilder()} or the {@code with*} methods and swapped in by the repository,
+ * so readers and serialization always see a complete version.
+ * <p>
+ * {@code version} is assigned by the repository on every stored change and is ignored on input;
+ * it takes no part in equality, which compares the user data only.
+ */
+@Value
+@With
+@Builder(toBuilder = true)
+@Jacksonized
 @AllArgsConstructor
-@NoArgsConstructor
 public class User {
-    private String email;
-    private String firstName;
-    private String lastName;
-    private LocalDate birthDate;
-    private String address;
-    private String phoneNumber;
+    String email;
+    String firstName;
+    String lastName;
+    LocalDate birthDate;
+    String address;
+    String phoneNumber;
+    @EqualsAndHashCode.Exclude
+    long version;
+
+    public User(String email, String firstName, String lastName, LocalDate birthDate, String address,
+                String phoneNumber) {
+        this(email, firstName, lastName, birthDate, address, phoneNumber, 0);
+    }
 }
@@ -0,0 +1,20 @@
+package com.clear.solutions.model;
+
+import lombok.Value;
+
+/**
+ * One applied change of a user. {@code sequence} numbers the changes of the store without gaps,
+ * {@code user} is the stored user and {@code null} for a deletion. A user moved to another email
+ * is reported as the deletion of the old email followed by the creation of the new one.
+ */
+@Value
+public class UserChangeEvent {
+    long sequence;
+    Type type;
+    String email;
+    User user;
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
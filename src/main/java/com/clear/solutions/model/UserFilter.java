@@ -0,0 +1,25 @@
+package com.clear.solutions.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Attribute criteria of a user search, all of which must match. Blank and {@code null} criteria are ignored;
+ * email domains match whole and case-insensitively, name prefixes case-insensitively.
+ */
+@Value
+@Builder
+public class UserFilter {
+    String emailDomain;
+    String firstNamePrefix;
+    String lastNamePrefix;
+    Boolean hasPhoneNumber;
+
+    public boolean isEmpty() {
+        return isBlank(emailDomain) && isBlank(firstNamePrefix) && isBlank(lastNamePrefix) && hasPhoneNumber == null;
+    }
+
+    private static boolean isBlank(String criterion) {
+        return criterion == null || criterion.isBlank();
+    }
+}
@@ -0,0 +1,14 @@
+package com.clear.solutions.model;
+
+import java.util.List;
+import lombok.Value;
+
+/**
+ * One page of a birth-date ordered user search.
+ * {@code nextCursor} is {@code null} when there are no further results.
+ */
+@Value
+public class UserPage {
+    List<User> users;
+    String nextCursor;
+}
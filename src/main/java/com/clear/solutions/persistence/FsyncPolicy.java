@@ -0,0 +1,19 @@
+package com.clear.solutions.persistence;
+
+/**
+ * When the write-ahead log forces appended records to the storage device.
+ */
+public enum FsyncPolicy {
+    /**
+     * Every group of records written together is forced before their writers are acknowledged.
+     */
+    PER_BATCH,
+    /**
+     * Records are forced at a fixed interval; writers are acknowledged without waiting.
+     */
+    INTERVAL,
+    /**
+     * Records are never forced explicitly; flushing is left to the operating system.
+     */
+    NONE
+}
@@ -0,0 +1,95 @@
+package com.clear.solutions.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import com.clear.solutions.model.User;
+
+/**
+ * Read-only, memory-mapped view of a snapshot written by {@link SnapshotStore}.
+ * Records are decoded straight from the mapping, and the offset table gives random access by index,
+ * so callers may load everything up front or page single users in on demand.
+ * Instances are not thread-safe.
+ */
+public class MappedSnapshot implements Closeable {
+    private final Path file;
+    private final FileChannel channel;
+    private final boolean versioned;
+    private final int count;
+    private final long tableOffset;
+    private final long lastVersion;
+    private final LongBuffer offsets;
+    private final byte[] scratch = new byte[1024];
+    private ByteBuffer window;
+    private long windowStart = -1;
+
+    MappedSnapshot(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                Math.min(channel.size(), SnapshotStore.HEADER_LENGTH));
+        int magic = header.getInt();
+        int formatVersion = header.getInt();
+        if (magic != SnapshotStore.MAGIC || (formatVersion != SnapshotStore.FORMAT_VERSION
+                && formatVersion != SnapshotStore.VERSIONED_FORMAT_VERSION
+                && formatVersion != SnapshotStore.UNVERSIONED_FORMAT_VERSION)) {
+            channel.close();
+            throw new IOException("Unsupported snapshot format: " + file);
+        }
+        versioned = formatVersion != SnapshotStore.UNVERSIONED_FORMAT_VERSION;
+        count = header.getInt();
+        header.getInt();
+        tableOffset = header.getLong();
+        // older formats only know the versions of the users they hold
+        lastVersion = formatVersion == SnapshotStore.FORMAT_VERSION ? header.getLong() : 0;
+        offsets = channel.map(FileChannel.MapMode.READ_ONLY, tableOffset, (long) count * Long.BYTES)
+                .asLongBuffer();
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * The last version the store had issued when the snapshot was written, {@code 0} for older formats.
+     */
+    public long lastVersion() {
+        return lastVersion;
+    }
+
+    /**
+     * Decodes the user at {@code index}, mapping the file window that holds it if needed.
+     */
+    public User get(int index) throws IOException {
+        long start = offsets.get(index);
+        long end = index + 1 < count ? offsets.get(index + 1) : tableOffset;
+        int length = (int) (end - start);
+        if (windowStart < 0 || start < windowStart || end > windowStart + window.capacity()) {
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                    Math.min(Math.max(SnapshotStore.WINDOW_SIZE, length), tableOffset - windowStart));
+        }
+        return UserRecordCodec.decode(window.position((int) (start - windowStart)), scratch, versioned);
+    }
+
+    public void forEach(Consumer<User> consumer) throws IOException {
+        for (int i = 0; i < count; i++) {
+            consumer.accept(get(i));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return "MappedSnapshot[" + file + ", " + count + " users]";
+    }
+}
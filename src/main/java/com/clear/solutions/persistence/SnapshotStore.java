@@ -0,0 +1,138 @@
+package com.clear.solutions.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import com.clear.solutions.model.User;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Compacted snapshots of the whole user store. A snapshot numbered {@code n} contains every change
+ * logged in write-ahead log segments older than {@code n}, so recovery loads it and replays
+ * segments from {@code n} on.
+ * <p>
+ * Layout: a header of magic, format version, user count, offset table position and the last version issued
+ * by the store, then the {@link UserRecordCodec} records back to back, then the offset table with the start
+ * of every record.
+ * Snapshots are written and read through memory-mapped windows, see {@link MappedSnapshot}.
+ */
+@UtilityClass
+public class SnapshotStore {
+    static final int MAGIC = 0x55534E50;
+    static final int FORMAT_VERSION = 4;
+    /**
+     * Same layout without the last issued version in the header.
+     */
+    static final int VERSIONED_FORMAT_VERSION = 3;
+    /**
+     * Same layout without the last issued version, with records that carry no version.
+     */
+    static final int UNVERSIONED_FORMAT_VERSION = 2;
+    static final int HEADER_LENGTH = 32;
+    static final long WINDOW_SIZE = 256L << 20;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    /**
+     * Writes the snapshot to a temporary file and atomically moves it into place,
+     * so a crash never leaves a partial snapshot behind.
+     */
+    public static Path write(Path directory, long segment, Collection<User> users, long lastVersion)
+            throws IOException {
+        Path target = snapshotPath(directory, segment);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long[] offsets = new long[Math.max(16, users.size())];
+            int count = 0;
+            long position = HEADER_LENGTH;
+            long windowStart = 0;
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, WINDOW_SIZE);
+            for (User user : users) {
+                byte[] record = UserRecordCodec.encode(user);
+                if (position + record.length > windowStart + WINDOW_SIZE) {
+                    windowStart = position;
+                    window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart,
+                            Math.max(WINDOW_SIZE, record.length));
+                }
+                window.put((int) (position - windowStart), record);
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+                offsets[count++] = position;
+                position += record.length;
+            }
+            long tableOffset = position;
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_WRITE, tableOffset, (long) count * Long.BYTES);
+            table.asLongBuffer().put(offsets, 0, count);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH)
+                    .putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putInt(count)
+                    .putInt(0)
+                    .putLong(tableOffset)
+                    .putLong(lastVersion)
+                    .flip();
+            channel.write(header, 0);
+            channel.truncate(tableOffset + (long) count * Long.BYTES);
+            channel.force(true);
+        }
+        return Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static MappedSnapshot open(Path directory, long segment) throws IOException {
+        return new MappedSnapshot(snapshotPath(directory, segment));
+    }
+
+    public static void read(Path directory, long segment, Consumer<User> consumer) throws IOException {
+        try (MappedSnapshot snapshot = open(directory, segment)) {
+            snapshot.forEach(consumer);
+        }
+    }
+
+    /**
+     * @return the segment number of the newest snapshot, if any
+     */
+    public static Optional<Long> latest(Path directory) throws IOException {
+        List<Long> snapshots = list(directory);
+        return snapshots.isEmpty() ? Optional.empty() : Optional.of(snapshots.get(snapshots.size() - 1));
+    }
+
+    public static void deleteOlderThan(Path directory, long segment) throws IOException {
+        for (long existing : list(directory)) {
+            if (existing < segment) {
+                Files.deleteIfExists(snapshotPath(directory, existing));
+            }
+        }
+    }
+
+    private static List<Long> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(),
+                            name.length() - SNAPSHOT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static Path snapshotPath(Path directory, long segment) {
+        return directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+    }
+}
@@ -0,0 +1,223 @@
+package com.clear.solutions.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import com.clear.solutions.model.User;
+import com.clear.solutions.repository.UserChangeListener;
+import com.clear.solutions.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Makes the {@link UserRepository} durable. On startup it rebuilds the store from the newest
+ * snapshot plus the write-ahead log tail, then logs every change and periodically writes
+ * a compacted snapshot so that replay time stays bounded.
+ * <p>
+ * A change is logged before it is applied: the writer waits, holding the lock of the user, until its record
+ * is written, and a record that can't be written rejects the change. Under {@link FsyncPolicy#PER_BATCH}
+ * writers also wait for the fsync, which happens after the repository locks have been released.
+ * <p>
+ * The log writer and snapshots run on virtual threads when {@code spring.threads.virtual.enabled}
+ * is set and the JVM supports them, otherwise on platform daemon threads.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "user.persistence.enabled", havingValue = "true")
+public class UserPersistenceService implements UserChangeListener {
+    private final UserRepository userRepository;
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final Duration fsyncInterval;
+    private final Duration snapshotInterval;
+    private final long segmentMaxBytes;
+    private final ThreadLocal<CompletableFuture<Void>> lastAppend = new ThreadLocal<>();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private boolean virtualThreads;
+    private WriteAheadLog.SegmentOpener segmentOpener = WriteAheadLog::openForAppend;
+
+    private WriteAheadLog writeAheadLog;
+    private ScheduledExecutorService snapshotScheduler;
+
+    public UserPersistenceService(UserRepository userRepository,
+                                  @Value("${user.persistence.directory}") Path directory,
+                                  @Value("${user.persistence.fsync-policy}") FsyncPolicy fsyncPolicy,
+                                  @Value("${user.persistence.fsync-interval-ms}") long fsyncIntervalMs,
+                                  @Value("${user.persistence.snapshot-interval-ms}") long snapshotIntervalMs,
+                                  @Value("${user.persistence.segment-max-bytes}") long segmentMaxBytes) {
+        this.userRepository = userRepository;
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncInterval = Duration.ofMillis(fsyncIntervalMs);
+        this.snapshotInterval = Duration.ofMillis(snapshotIntervalMs);
+        this.segmentMaxBytes = segmentMaxBytes;
+    }
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    void setSegmentOpener(WriteAheadLog.SegmentOpener segmentOpener) {
+        this.segmentOpener = segmentOpener;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        long nextSegment = recover();
+        writeAheadLog = new WriteAheadLog(directory, nextSegment, fsyncPolicy, fsyncInterval, segmentMaxBytes,
+                threadFactory("user-wal-"), segmentOpener);
+        userRepository.addChangeListener(this);
+
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory("user-snapshot-"));
+        long periodMs = snapshotInterval.toMillis();
+        snapshotScheduler.scheduleWithFixedDelay(this::snapshotQuietly, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+        }
+    }
+
+    @Override
+    public void beforeChange(User previous, User current) {
+        WriteAheadLog.Append append;
+        if (current == null) {
+            append = writeAheadLog.appendDelete(previous.getEmail(), previous.getVersion());
+        } else {
+            if (previous != null && !UserRepository.normalizeEmail(previous.getEmail())
+                    .equals(UserRepository.normalizeEmail(current.getEmail()))) {
+                awaitWritten(writeAheadLog.appendDelete(previous.getEmail(), previous.getVersion()));
+            }
+            append = writeAheadLog.appendPut(current);
+        }
+        awaitWritten(append);
+        lastAppend.set(append.durable());
+    }
+
+    @Override
+    public void onChange(User previous, User current) {
+        // logged in beforeChange
+    }
+
+    @Override
+    public void afterWrite() {
+        CompletableFuture<Void> appended = lastAppend.get();
+        if (appended == null) {
+            return;
+        }
+        lastAppend.remove();
+        if (fsyncPolicy == FsyncPolicy.PER_BATCH) {
+            appended.join();
+        }
+    }
+
+    /**
+     * Writes a compacted snapshot and drops the log segments and snapshots it supersedes.
+     * Records are idempotent puts and deletes, so the snapshot may safely include changes that
+     * are also present in the segments replayed after it. A change is logged before it's stored, so the log is
+     * rotated while no write holds a lock; otherwise a record logged to a dropped segment could be stored only
+     * after the snapshot read past its user.
+     * Guarded by a lock instead of a monitor, so a virtual thread writing the snapshot doesn't pin its carrier.
+     */
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            // rotated holding every lock: a change logged to the segments this snapshot drops is stored by then
+            long segment = userRepository.inBatch(() -> writeAheadLog.rotate().join());
+            // read after the rotation, so it covers the removals logged in the segments this snapshot drops
+            long lastVersion = userRepository.lastVersion();
+            SnapshotStore.write(directory, segment, userRepository.findAll(), lastVersion);
+            WriteAheadLog.deleteSegmentsBefore(directory, segment);
+            SnapshotStore.deleteOlderThan(directory, segment);
+            log.info("User snapshot {} written with {} users", segment, userRepository.size());
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of the first segment to append to
+     */
+    private long recover() throws IOException {
+        long snapshot = SnapshotStore.latest(directory).orElse(0L);
+        if (snapshot > 0) {
+            try (MappedSnapshot mapped = SnapshotStore.open(directory, snapshot)) {
+                userRepository.restoreVersion(mapped.lastVersion());
+                mapped.forEach(userRepository::restore);
+            }
+        }
+        WriteAheadLog.Visitor replay = new WriteAheadLog.Visitor() {
+            @Override
+            public void put(User user) {
+                userRepository.restore(user);
+            }
+
+            @Override
+            public void delete(String email, long version) {
+                userRepository.restoreVersion(version);
+                userRepository.restoreRemoval(email);
+            }
+        };
+        List<Long> segments = WriteAheadLog.listSegments(directory);
+        long lastSegment = snapshot;
+        for (long segment : segments) {
+            if (segment >= snapshot) {
+                WriteAheadLog.replay(directory, segment, replay);
+            }
+            lastSegment = Math.max(lastSegment, segment);
+        }
+        log.info("Recovered {} users from snapshot {} and {} log segments",
+                userRepository.size(), snapshot, segments.size());
+        return lastSegment + 1;
+    }
+
+    private static void awaitWritten(WriteAheadLog.Append append) {
+        try {
+            append.written().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Failed to write a user snapshot", e);
+        }
+    }
+
+    private ThreadFactory threadFactory(String prefix) {
+        if (virtualThreads && Runtime.version().feature() >= 21) {
+            return new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory();
+        }
+        return daemonThreadFactory(prefix);
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+}
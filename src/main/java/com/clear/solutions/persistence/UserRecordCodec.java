@@ -0,0 +1,122 @@
+package com.clear.solutions.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import com.clear.solutions.model.User;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Compact binary form of a {@link User}: the string fields as length-prefixed UTF-8
+ * (length {@code -1} for {@code null}) followed by the birth date as an epoch day and the version.
+ * Records written before versions existed end after the birth date and are read as version {@code 0}.
+ * The epoch day is an int, so only birth dates from {@link #MIN_EPOCH_DAY} on can be stored.
+ */
+@UtilityClass
+public class UserRecordCodec {
+    public static final int NO_BIRTH_DATE = Integer.MIN_VALUE;
+    /**
+     * Earliest epoch day of a birth date that can be stored; the one before it stands for no birth date.
+     */
+    public static final long MIN_EPOCH_DAY = NO_BIRTH_DATE + 1L;
+    private static final int NULL_LENGTH = -1;
+
+    public static byte[] encode(User user) {
+        byte[] email = utf8(user.getEmail());
+        byte[] firstName = utf8(user.getFirstName());
+        byte[] lastName = utf8(user.getLastName());
+        byte[] address = utf8(user.getAddress());
+        byte[] phoneNumber = utf8(user.getPhoneNumber());
+        ByteBuffer buffer = ByteBuffer.allocate(encodedLength(email) + encodedLength(firstName)
+                + encodedLength(lastName) + encodedLength(address) + encodedLength(phoneNumber)
+                + Integer.BYTES + Long.BYTES);
+        putString(buffer, email);
+        putString(buffer, firstName);
+        putString(buffer, lastName);
+        putString(buffer, address);
+        putString(buffer, phoneNumber);
+        buffer.putInt(epochDay(user.getBirthDate()));
+        buffer.putLong(user.getVersion());
+        return buffer.array();
+    }
+
+    /**
+     * Reads one user starting at the buffer position and advances the position past it.
+     */
+    public static User decode(ByteBuffer buffer) {
+        return decode(buffer, null);
+    }
+
+    /**
+     * Same as {@link #decode(ByteBuffer)}; string bytes of direct buffers are copied through
+     * {@code scratch} when they fit, instead of a fresh array per field.
+     */
+    public static User decode(ByteBuffer buffer, byte[] scratch) {
+        return decode(buffer, scratch, true);
+    }
+
+    /**
+     * @param versioned {@code false} for records written without the trailing version
+     */
+    public static User decode(ByteBuffer buffer, byte[] scratch, boolean versioned) {
+        String email = getString(buffer, scratch);
+        String firstName = getString(buffer, scratch);
+        String lastName = getString(buffer, scratch);
+        String address = getString(buffer, scratch);
+        String phoneNumber = getString(buffer, scratch);
+        int epochDay = buffer.getInt();
+        LocalDate birthDate = epochDay != NO_BIRTH_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+        long version = versioned ? buffer.getLong() : 0;
+        return new User(email, firstName, lastName, birthDate, address, phoneNumber, version);
+    }
+
+    /**
+     * @return the epoch day of {@code birthDate}, or {@link #NO_BIRTH_DATE} if it's {@code null}
+     * @throws IllegalArgumentException if the birth date is out of the int epoch day range
+     */
+    public static int epochDay(LocalDate birthDate) {
+        if (birthDate == null) {
+            return NO_BIRTH_DATE;
+        }
+        long epochDay = birthDate.toEpochDay();
+        if (epochDay < MIN_EPOCH_DAY || epochDay > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Birth date can't be stored: " + birthDate);
+        }
+        return (int) epochDay;
+    }
+
+    public static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    public static void putString(ByteBuffer buffer, byte[] utf8) {
+        if (utf8 == null) {
+            buffer.putInt(NULL_LENGTH);
+            return;
+        }
+        buffer.putInt(utf8.length);
+        buffer.put(utf8);
+    }
+
+    public static String getString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = scratch != null && scratch.length >= length ? scratch : new byte[length];
+            buffer.get(bytes, 0, length);
+            value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    public static int encodedLength(byte[] utf8) {
+        return Integer.BYTES + (utf8 != null ? utf8.length : 0);
+    }
+}
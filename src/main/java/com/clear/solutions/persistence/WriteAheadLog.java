@@ -0,0 +1,430 @@
+package com.clear.solutions.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import com.clear.solutions.model.User;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only log of user mutations, split into numbered segment files.
+ * <p>
+ * Appends only enqueue the record; a single writer thread drains everything queued so far and
+ * writes it with one gathering write, then forces it according to the {@link FsyncPolicy}
+ * (group commit). A write that fails is cut off the segment again, so a record whose append failed
+ * is never replayed. A segment that reaches its maximum size is closed and the next one started.
+ * Each record is {@code [payload length][CRC32 of payload][payload]}, where the
+ * payload is an operation byte followed by a {@link UserRecordCodec} user, or by the last version of a
+ * removed user and its UTF-8 email.
+ */
+@Slf4j
+public class WriteAheadLog implements Closeable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    /**
+     * Put of a record without the version, only replayed from segments written by older releases.
+     */
+    private static final byte LEGACY_PUT = 1;
+    /**
+     * Delete without the version, only replayed from segments written by older releases.
+     */
+    private static final byte LEGACY_DELETE = 2;
+    private static final byte PUT = 3;
+    private static final byte DELETE = 4;
+    private static final int HEADER_LENGTH = Integer.BYTES * 2;
+    private static final int MAX_GROUP_SIZE = 4096;
+    private static final long IDLE_POLL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final long segmentMaxBytes;
+    private final SegmentOpener segmentOpener;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    // owned by the writer thread
+    private FileChannel channel;
+    private long segment;
+    private long segmentBytes;
+    private boolean unforced;
+    private long lastForceNanos = System.nanoTime();
+
+    public WriteAheadLog(Path directory, long firstSegment, FsyncPolicy fsyncPolicy, Duration fsyncInterval,
+                         long segmentMaxBytes, ThreadFactory threadFactory) throws IOException {
+        this(directory, firstSegment, fsyncPolicy, fsyncInterval, segmentMaxBytes, threadFactory,
+                WriteAheadLog::openForAppend);
+    }
+
+    WriteAheadLog(Path directory, long firstSegment, FsyncPolicy fsyncPolicy, Duration fsyncInterval,
+                  long segmentMaxBytes, ThreadFactory threadFactory, SegmentOpener segmentOpener) throws IOException {
+        this.directory = directory;
+        this.segmentOpener = segmentOpener;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.segmentMaxBytes = segmentMaxBytes;
+        Files.createDirectories(directory);
+        openSegment(firstSegment);
+        writer = threadFactory.newThread(this::run);
+        writer.start();
+    }
+
+    public Append appendPut(User user) {
+        return append(PUT, UserRecordCodec.encode(user));
+    }
+
+    public Append appendDelete(String email, long version) {
+        byte[] utf8 = email.getBytes(StandardCharsets.UTF_8);
+        return append(DELETE, ByteBuffer.allocate(Long.BYTES + utf8.length).putLong(version).put(utf8).array());
+    }
+
+    /**
+     * Starts a new segment. Every record appended before this call ends up in an older segment.
+     *
+     * @return the number of the new segment
+     */
+    public CompletableFuture<Long> rotate() {
+        CompletableFuture<Long> rotated = new CompletableFuture<>();
+        enqueue(new Entry(null, null, rotated));
+        return rotated;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    /**
+     * Writes and forces everything appended so far, then stops the writer thread.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // wakes the writer up; it exits once the queue is drained
+        queue.add(new Entry(ByteBuffer.allocate(0), newAppend(), null));
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static List<Long> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    public static void deleteSegmentsBefore(Path directory, long segment) throws IOException {
+        for (long existing : listSegments(directory)) {
+            if (existing < segment) {
+                Files.deleteIfExists(segmentPath(directory, existing));
+            }
+        }
+    }
+
+    /**
+     * Replays one segment in append order, mapping it one window of at most
+     * {@link SnapshotStore#WINDOW_SIZE} bytes at a time. A torn or corrupted tail, left by a crash in the
+     * middle of a write, ends the replay of that segment.
+     */
+    public static void replay(Path directory, long segment, Visitor visitor) throws IOException {
+        replay(directory, segment, SnapshotStore.WINDOW_SIZE, visitor);
+    }
+
+    static void replay(Path directory, long segment, long windowSize, Visitor visitor) throws IOException {
+        Path file = segmentPath(directory, segment);
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            long start = 0;
+            long windowStart = 0;
+            MappedByteBuffer window = null;
+            CRC32 crc = new CRC32();
+            while (size - start >= HEADER_LENGTH) {
+                if (window == null || start + HEADER_LENGTH > windowStart + window.capacity()) {
+                    windowStart = start;
+                    window = map(in, windowStart, Math.max(windowSize, HEADER_LENGTH), size);
+                }
+                int length = window.getInt((int) (start - windowStart));
+                int checksum = window.getInt((int) (start - windowStart) + Integer.BYTES);
+                if (length <= 0 || length > size - start - HEADER_LENGTH) {
+                    log.warn("Write-ahead log {} ends with a torn record at offset {}", file, start);
+                    return;
+                }
+                long end = start + HEADER_LENGTH + length;
+                if (end > windowStart + window.capacity()) {
+                    windowStart = start;
+                    window = map(in, windowStart, Math.max(windowSize, HEADER_LENGTH + (long) length), size);
+                }
+                ByteBuffer payload = window.slice((int) (start - windowStart) + HEADER_LENGTH, length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Write-ahead log {} has a corrupted record at offset {}", file, start);
+                    return;
+                }
+                start = end;
+                byte operation = payload.get();
+                if (operation == PUT || operation == LEGACY_PUT) {
+                    visitor.put(UserRecordCodec.decode(payload, null, operation == PUT));
+                } else {
+                    long version = operation == DELETE ? payload.getLong() : 0;
+                    byte[] email = new byte[payload.remaining()];
+                    payload.get(email);
+                    visitor.delete(new String(email, StandardCharsets.UTF_8), version);
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps {@code length} bytes from {@code start}, or up to the end of the file.
+     */
+    private static MappedByteBuffer map(FileChannel in, long start, long length, long size) throws IOException {
+        return in.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length, size - start));
+    }
+
+    private static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    static FileChannel openForAppend(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Append append(byte operation, byte[] body) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_LENGTH + 1 + body.length);
+        record.putInt(1 + body.length);
+        record.putInt(0);
+        record.put(operation);
+        record.put(body);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_LENGTH, 1 + body.length);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        record.flip();
+
+        Append append = newAppend();
+        enqueue(new Entry(record, append, null));
+        return append;
+    }
+
+    private Append newAppend() {
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        return new Append(written, fsyncPolicy == FsyncPolicy.PER_BATCH ? new CompletableFuture<>() : written);
+    }
+
+    private void enqueue(Entry entry) {
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        queue.add(entry);
+    }
+
+    private void run() {
+        List<Entry> group = new ArrayList<>();
+        long pollNanos = fsyncPolicy == FsyncPolicy.INTERVAL ? fsyncIntervalNanos : IDLE_POLL_NANOS;
+        while (!(closed && queue.isEmpty())) {
+            try {
+                Entry first = queue.poll(pollNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    group.add(first);
+                    queue.drainTo(group, MAX_GROUP_SIZE - 1);
+                    writeGroup(group);
+                    if (segmentBytes >= segmentMaxBytes) {
+                        nextSegment();
+                    }
+                }
+                forceIfDue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failGroup(group, e);
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to write the write-ahead log segment {}", segment, e);
+                failGroup(group, e);
+            }
+            group.clear();
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            log.error("Failed to close the write-ahead log segment {}", segment, e);
+        }
+    }
+
+    private void writeGroup(List<Entry> group) throws IOException {
+        int pendingFrom = 0;
+        for (int i = 0; i < group.size(); i++) {
+            Entry entry = group.get(i);
+            if (entry.record == null) {
+                write(group, pendingFrom, i);
+                pendingFrom = i + 1;
+                nextSegment();
+                entry.rotated.complete(segment);
+            }
+        }
+        write(group, pendingFrom, group.size());
+    }
+
+    private void write(List<Entry> group, int from, int to) throws IOException {
+        if (from >= to) {
+            return;
+        }
+        ByteBuffer[] records = new ByteBuffer[to - from];
+        long remaining = 0;
+        for (int i = from; i < to; i++) {
+            records[i - from] = group.get(i).record;
+            remaining += records[i - from].remaining();
+        }
+        long start = -1;
+        try {
+            start = channel.size();
+            while (remaining > 0) {
+                long written = channel.write(records);
+                remaining -= written;
+                segmentBytes += written;
+            }
+        } catch (IOException | RuntimeException e) {
+            discardFrom(start, e);
+            throw e;
+        }
+        // the writers may apply their changes now, while the records are forced
+        for (int i = from; i < to; i++) {
+            group.get(i).append.written.complete(null);
+        }
+        if (fsyncPolicy == FsyncPolicy.PER_BATCH) {
+            channel.force(false);
+            lastForceNanos = System.nanoTime();
+            for (int i = from; i < to; i++) {
+                group.get(i).append.durable.complete(null);
+            }
+        } else {
+            unforced = true;
+        }
+    }
+
+    /**
+     * Cuts a failed write off the segment, as its writers are told that their records weren't logged.
+     * If that can't be done, the following records go to a new segment, so they don't come after a torn
+     * record that ends the replay of the segment.
+     *
+     * @param start size of the segment before the write, {@code -1} if unknown
+     */
+    private void discardFrom(long start, Exception failure) {
+        if (start >= 0) {
+            try {
+                channel.truncate(start);
+                segmentBytes = start;
+                return;
+            } catch (IOException | RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+        }
+        try {
+            channel.close();
+            openSegment(segment + 1);
+        } catch (IOException | RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private void forceIfDue() throws IOException {
+        if (fsyncPolicy == FsyncPolicy.INTERVAL && unforced
+                && System.nanoTime() - lastForceNanos >= fsyncIntervalNanos) {
+            channel.force(false);
+            unforced = false;
+            lastForceNanos = System.nanoTime();
+        }
+    }
+
+    private void failGroup(List<Entry> group, Exception cause) {
+        UncheckedIOException failure = new UncheckedIOException(
+                new IOException("Write-ahead log append failed", cause));
+        for (Entry entry : group) {
+            if (entry.record != null) {
+                entry.append.written.completeExceptionally(failure);
+                entry.append.durable.completeExceptionally(failure);
+            } else {
+                entry.rotated.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void nextSegment() throws IOException {
+        channel.force(false);
+        unforced = false;
+        lastForceNanos = System.nanoTime();
+        channel.close();
+        openSegment(segment + 1);
+    }
+
+    private void openSegment(long number) throws IOException {
+        segment = number;
+        channel = segmentOpener.open(segmentPath(directory, number));
+        segmentBytes = channel.size();
+    }
+
+    /**
+     * Completion of an appended record.
+     *
+     * @param written completed once the record is written to the segment
+     * @param durable completed once the record is also forced under {@link FsyncPolicy#PER_BATCH};
+     *                the same as {@code written} under the other policies
+     */
+    public record Append(CompletableFuture<Void> written, CompletableFuture<Void> durable) {
+    }
+
+    /**
+     * Opens the channel a segment is appended to.
+     */
+    interface SegmentOpener {
+        FileChannel open(Path file) throws IOException;
+    }
+
+    /**
+     * Receives replayed records.
+     */
+    public interface Visitor {
+        void put(User user);
+
+        /**
+         * @param version last version of the removed user, {@code 0} if the record doesn't carry it
+         */
+        void delete(String email, long version);
+    }
+
+    /**
+     * A queued record, or a segment rotation when {@code record} is {@code null}.
+     */
+    private record Entry(ByteBuffer record, Append append, CompletableFuture<Long> rotated) {
+    }
+}
@@ -0,0 +1,360 @@
+package com.clear.solutions.repository;
+
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import com.clear.solutions.exception.UserAlreadyExistsException;
+import com.clear.solutions.exception.VersionMismatchException;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+
+/**
+ * Write protocol shared by the {@link UserRepository} backends: writes are serialized per email
+ * through a {@link StripedLock}, so writes to different users proceed in parallel while
+ * check-then-act sequences on one user are atomic, and {@link #inBatch(Supplier)} takes every stripe.
+ * <p>
+ * Subclasses only provide the storage primitives; {@link #store}, {@link #delete} and
+ * {@link #clearStorage()} are always called holding the lock of the affected keys. Each backend keeps the
+ * {@link UserAttributeIndex} of {@link #findByFilter} next to its birth date index, over the same entries.
+ * <p>
+ * Backends that split users into partitions pass their count and override {@link #partitionOf(String)};
+ * every partition then gets lock stripes and a version sequence of its own, so writes to different
+ * partitions share no lock or counter.
+ */
+public abstract class AbstractUserRepository implements UserRepository {
+    public static final int DEFAULT_LOCK_STRIPES = 64;
+    /**
+     * Longs from one version sequence to the next, so the sequences of two partitions never share a cache line.
+     */
+    private static final int VERSION_STRIDE = 16;
+
+    private final int partitions;
+    private final StripedLock locks;
+    private final List<UserChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Boolean> batchInProgress = ThreadLocal.withInitial(() -> false);
+    /**
+     * Sequence of partition {@code p} at {@code p * VERSION_STRIDE}; its n-th version is {@code n * partitions + p}.
+     */
+    private final AtomicLongArray versions;
+    /**
+     * Spreads concurrent increments over several cells. It's only ever incremented, so a sum read
+     * after a change was counted still includes it.
+     */
+    private final LongAdder modificationCount = new LongAdder();
+    private final long modificationEpoch = System.currentTimeMillis();
+
+    protected AbstractUserRepository() {
+        this(1);
+    }
+
+    protected AbstractUserRepository(int partitions) {
+        this.partitions = partitions;
+        locks = new StripedLock(partitions, DEFAULT_LOCK_STRIPES, this::partitionOf);
+        versions = new AtomicLongArray(partitions * VERSION_STRIDE);
+    }
+
+    /**
+     * @return the partition of the normalized {@code key}, from {@code 0} to the partition count minus one
+     */
+    protected int partitionOf(String key) {
+        return 0;
+    }
+
+    /**
+     * @return the user stored under the normalized {@code key}, or {@code null}
+     */
+    protected abstract User load(String key);
+
+    /**
+     * Stores {@code user} under {@code key}, replacing {@code current} if it is not {@code null}.
+     */
+    protected abstract void store(String key, User current, User user);
+
+    /**
+     * Removes {@code current}, which is stored under {@code key}.
+     */
+    protected abstract void delete(String key, User current);
+
+    protected abstract void clearStorage();
+
+    /**
+     * Users matching every criterion of a non-empty {@code filter} within {@code range}, in birth date order.
+     */
+    abstract Iterator<User> find(UserFilter filter, BirthDateRange range);
+
+    @Override
+    public void addChangeListener(UserChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public long modificationCount() {
+        return modificationCount.sum();
+    }
+
+    @Override
+    public long modificationEpoch() {
+        return modificationEpoch;
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return Optional.ofNullable(load(UserRepository.normalizeEmail(email)));
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return load(UserRepository.normalizeEmail(email)) != null;
+    }
+
+    @Override
+    public User insertIfAbsent(User user) {
+        String key = UserRepository.normalizeEmail(user.getEmail());
+        return written(locks.withLock(key, () -> {
+            if (load(key) != null) {
+                return null;
+            }
+            User stored = nextVersion(key, user);
+            changing(null, stored);
+            store(key, null, stored);
+            modified(null, stored);
+            return stored;
+        }));
+    }
+
+    @Override
+    public User save(User user) {
+        String key = UserRepository.normalizeEmail(user.getEmail());
+        return written(locks.withLock(key, () -> {
+            User current = load(key);
+            User stored = nextVersion(key, user);
+            changing(current, stored);
+            store(key, current, stored);
+            modified(current, stored);
+            return current;
+        }));
+    }
+
+    @Override
+    public User replace(String email, User user, long expectedVersion) {
+        String oldKey = UserRepository.normalizeEmail(email);
+        String newKey = UserRepository.normalizeEmail(user.getEmail());
+        return written(locks.withLocks(oldKey, newKey, () -> {
+            User current = load(oldKey);
+            if (current == null) {
+                return null;
+            }
+            if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+                throw new VersionMismatchException(email);
+            }
+            if (!oldKey.equals(newKey) && load(newKey) != null) {
+                throw new UserAlreadyExistsException(user.getEmail());
+            }
+            User stored = nextVersion(newKey, user);
+            changing(current, stored);
+            move(oldKey, newKey, current, stored);
+            modified(current, stored);
+            return stored;
+        }));
+    }
+
+    @Override
+    public User update(String email, UnaryOperator<User> update) {
+        String key = UserRepository.normalizeEmail(email);
+        return written(locks.withLock(key, () -> {
+            User current = load(key);
+            if (current == null) {
+                return null;
+            }
+            User updated = update.apply(current);
+            if (!key.equals(UserRepository.normalizeEmail(updated.getEmail()))) {
+                throw new IllegalArgumentException("Email can't be changed by an update, email: " + email);
+            }
+            User stored = nextVersion(key, updated);
+            changing(current, stored);
+            store(key, current, stored);
+            modified(current, stored);
+            return stored;
+        }));
+    }
+
+    @Override
+    public User remove(String email) {
+        String key = UserRepository.normalizeEmail(email);
+        return written(locks.withLock(key, () -> {
+            User current = load(key);
+            if (current != null) {
+                changing(current, null);
+                delete(key, current);
+                modified(current, null);
+            }
+            return current;
+        }));
+    }
+
+    @Override
+    public Collection<User> findByFilter(LocalDate from, LocalDate to, UserFilter filter, BirthDateKey after) {
+        if (filter.isEmpty()) {
+            return findByBirthDateBetween(from, to, after);
+        }
+        BirthDateRange range = BirthDateRange.of(from, to, after);
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<User> iterator() {
+                return find(filter, range);
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (Iterator<User> users = iterator(); users.hasNext(); users.next()) {
+                    size++;
+                }
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public <T> T inBatch(Supplier<T> batch) {
+        if (batchInProgress.get()) {
+            return locks.withAllLocks(batch);
+        }
+        batchInProgress.set(true);
+        try {
+            return locks.withAllLocks(batch);
+        } finally {
+            batchInProgress.set(false);
+            afterWrite();
+        }
+    }
+
+    @Override
+    public void restore(User user) {
+        String key = UserRepository.normalizeEmail(user.getEmail());
+        locks.withLock(key, () -> {
+            // versions of the key are only ever taken from its own partition
+            raiseVersion(partitionOf(key), user.getVersion());
+            store(key, load(key), user);
+            reset();
+            return null;
+        });
+    }
+
+    @Override
+    public void restoreRemoval(String email) {
+        String key = UserRepository.normalizeEmail(email);
+        locks.withLock(key, () -> {
+            User current = load(key);
+            if (current != null) {
+                delete(key, current);
+                reset();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void restoreVersion(long version) {
+        for (int partition = 0; partition < partitions; partition++) {
+            raiseVersion(partition, version);
+        }
+    }
+
+    @Override
+    public long lastVersion() {
+        long last = 0;
+        for (int partition = 0; partition < partitions; partition++) {
+            long sequence = versions.get(partition * VERSION_STRIDE);
+            if (sequence > 0) {
+                last = Math.max(last, sequence * partitions + partition);
+            }
+        }
+        return last;
+    }
+
+    @Override
+    public void clear() {
+        inBatch(() -> {
+            clearStorage();
+            reset();
+            return null;
+        });
+    }
+
+    private <T> T written(T result) {
+        if (!batchInProgress.get()) {
+            afterWrite();
+        }
+        return result;
+    }
+
+    private void afterWrite() {
+        for (UserChangeListener listener : listeners) {
+            listener.afterWrite();
+        }
+    }
+
+    private User nextVersion(String key, User user) {
+        int partition = partitionOf(key);
+        return user.withVersion(versions.incrementAndGet(partition * VERSION_STRIDE) * partitions + partition);
+    }
+
+    /**
+     * Makes every version {@code partition} issues from now on greater than {@code version}.
+     */
+    private void raiseVersion(int partition, long version) {
+        versions.accumulateAndGet(partition * VERSION_STRIDE, version / partitions, Math::max);
+    }
+
+    /**
+     * Reports a change about to be stored to the listeners, any of which may reject it by throwing.
+     */
+    private void changing(User previous, User current) {
+        for (UserChangeListener listener : listeners) {
+            listener.beforeChange(previous, current);
+        }
+    }
+
+    /**
+     * Counts a change that is stored bypassing {@link #modified(User, User)} and tells the listeners to drop
+     * what they derived from the stored users.
+     */
+    private void reset() {
+        modificationCount.increment();
+        for (UserChangeListener listener : listeners) {
+            listener.onReset();
+        }
+    }
+
+    /**
+     * Counts a change that is already stored and reports it to the listeners.
+     */
+    private void modified(User previous, User current) {
+        modificationCount.increment();
+        for (UserChangeListener listener : listeners) {
+            listener.onChange(previous, current);
+        }
+    }
+
+    /**
+     * Moves {@code current} stored under {@code oldKey} to {@code newKey}, which must be free unless it is
+     * {@code oldKey}. Must be called holding the locks of both keys.
+     */
+    private void move(String oldKey, String newKey, User current, User user) {
+        if (oldKey.equals(newKey)) {
+            store(oldKey, current, user);
+            return;
+        }
+        store(newKey, null, user);
+        delete(oldKey, current);
+    }
+}
@@ -0,0 +1,55 @@
+package com.clear.solutions.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import com.clear.solutions.exception.InvalidRequestException;
+import com.clear.solutions.exception.RequestErrorCode;
+
+/**
+ * Ordering key of the birth-date index: epoch day first, normalized email as a tie-break,
+ * so that users sharing a birth date still get unique, stable positions.
+ */
+public record BirthDateKey(long epochDay, String email) implements Comparable<BirthDateKey> {
+
+    public static BirthDateKey of(LocalDate birthDate, String normalizedEmail) {
+        return new BirthDateKey(birthDate.toEpochDay(), normalizedEmail);
+    }
+
+    /**
+     * Key sorting before every user born on {@code epochDay}.
+     */
+    public static BirthDateKey lowest(long epochDay) {
+        return new BirthDateKey(epochDay, "");
+    }
+
+    /**
+     * Decodes a key previously produced by {@link #toCursor()}.
+     *
+     * @throws InvalidRequestException if the cursor is malformed
+     */
+    public static BirthDateKey fromCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+            return new BirthDateKey(Long.parseLong(decoded.substring(0, separator)),
+                    decoded.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new InvalidRequestException(RequestErrorCode.CURSOR_INVALID);
+        }
+    }
+
+    /**
+     * Opaque, URL-safe representation of this key, used as a pagination cursor.
+     */
+    public String toCursor() {
+        byte[] raw = (epochDay + ":" + email).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    @Override
+    public int compareTo(BirthDateKey other) {
+        int byDay = Long.compare(epochDay, other.epochDay);
+        return byDay != 0 ? byDay : email.compareTo(other.email);
+    }
+}
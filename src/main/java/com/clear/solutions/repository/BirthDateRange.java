@@ -0,0 +1,71 @@
+package com.clear.solutions.repository;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+
+/**
+ * Bounds of a birth date index search: users born strictly after {@code from} and strictly before {@code to},
+ * ordered strictly after the cursor key {@code after}. {@code null} bounds are open.
+ */
+record BirthDateRange(BirthDateKey lower, boolean lowerInclusive, BirthDateKey upper) {
+
+    static BirthDateRange of(LocalDate from, LocalDate to, BirthDateKey after) {
+        BirthDateKey lower = from == null ? null : BirthDateKey.lowest(from.toEpochDay() + 1);
+        boolean lowerInclusive = true;
+        if (after != null && (lower == null || after.compareTo(lower) >= 0)) {
+            lower = after;
+            lowerInclusive = false;
+        }
+        return new BirthDateRange(lower, lowerInclusive, to == null ? null : BirthDateKey.lowest(to.toEpochDay()));
+    }
+
+    boolean isEmpty() {
+        return lower != null && upper != null && lower.compareTo(upper) >= 0;
+    }
+
+    boolean contains(BirthDateKey key) {
+        if (lower != null) {
+            int byLower = key.compareTo(lower);
+            if (byLower < 0 || byLower == 0 && !lowerInclusive) {
+                return false;
+            }
+        }
+        return upper == null || key.compareTo(upper) < 0;
+    }
+
+    /**
+     * Live view of the entries of {@code index} within the range.
+     */
+    <V> NavigableMap<BirthDateKey, V> of(NavigableMap<BirthDateKey, V> index) {
+        if (isEmpty()) {
+            return Collections.emptyNavigableMap();
+        }
+        NavigableMap<BirthDateKey, V> range = index;
+        if (lower != null) {
+            range = range.tailMap(lower, lowerInclusive);
+        }
+        if (upper != null) {
+            range = range.headMap(upper, false);
+        }
+        return range;
+    }
+
+    /**
+     * Live view of the keys of {@code index} within the range.
+     */
+    NavigableSet<BirthDateKey> of(NavigableSet<BirthDateKey> index) {
+        if (isEmpty()) {
+            return Collections.emptyNavigableSet();
+        }
+        NavigableSet<BirthDateKey> range = index;
+        if (lower != null) {
+            range = range.tailSet(lower, lowerInclusive);
+        }
+        if (upper != null) {
+            range = range.headSet(upper, false);
+        }
+        return range;
+    }
+}
@@ -0,0 +1,45 @@
+package com.clear.solutions.repository;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Number of users born on each epoch day, kept next to a birth date index so that a range can be split into
+ * parts of about equal size by walking one entry per day instead of one per user. Writes must be serialized
+ * per key by the caller; counts of one day are merged atomically and days without users are dropped.
+ */
+final class BirthDayCounts {
+    private final ConcurrentNavigableMap<Long, Long> counts = new ConcurrentSkipListMap<>();
+
+    void add(long epochDay) {
+        counts.merge(epochDay, 1L, Long::sum);
+    }
+
+    void remove(long epochDay) {
+        counts.merge(epochDay, -1L, (count, change) -> count + change == 0 ? null : count + change);
+    }
+
+    void clear() {
+        counts.clear();
+    }
+
+    /**
+     * Read-only live view of the days strictly after {@code from} and strictly before {@code to}.
+     */
+    NavigableMap<Long, Long> range(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.toEpochDay() >= to.toEpochDay()) {
+            return Collections.emptyNavigableMap();
+        }
+        NavigableMap<Long, Long> range = counts;
+        if (from != null) {
+            range = range.tailMap(from.toEpochDay(), false);
+        }
+        if (to != null) {
+            range = range.headMap(to.toEpochDay(), false);
+        }
+        return Collections.unmodifiableNavigableMap(range);
+    }
+}
@@ -0,0 +1,184 @@
+package com.clear.solutions.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import com.clear.solutions.repository.UserRepository.AttributeIndex;
+
+/**
+ * Heap storage of a set of users: a concurrent primary index keyed by normalized email, a sorted secondary
+ * index by birth date with its per-day counts and the attribute indexes over its keys. Writes must be serialized
+ * per key by the caller.
+ */
+final class HeapUserPartition {
+    /**
+     * Joins a name and the email it belongs to into a name index key; sorts before any name character.
+     */
+    private static final char SEPARATOR = '\u0000';
+
+    private final ConcurrentMap<String, User> usersByEmail = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<BirthDateKey, User> usersByBirthDate = new ConcurrentSkipListMap<>();
+    private final Attributes attributes = new Attributes();
+    private final BirthDayCounts birthDayCounts = new BirthDayCounts();
+
+    User get(String key) {
+        return usersByEmail.get(key);
+    }
+
+    void put(String key, User current, User user) {
+        if (current != null) {
+            unindex(key, current);
+        }
+        usersByEmail.put(key, user);
+        index(key, user);
+    }
+
+    void remove(String key, User current) {
+        usersByEmail.remove(key);
+        unindex(key, current);
+    }
+
+    void clear() {
+        usersByEmail.clear();
+        usersByBirthDate.clear();
+        attributes.clear();
+        birthDayCounts.clear();
+    }
+
+    int size() {
+        return usersByEmail.size();
+    }
+
+    int birthDateIndexSize() {
+        return usersByBirthDate.size();
+    }
+
+    long attributeIndexSize(AttributeIndex index) {
+        return attributes.size(index);
+    }
+
+    Collection<User> values() {
+        return Collections.unmodifiableCollection(usersByEmail.values());
+    }
+
+    /**
+     * Live view of the birth date index entries matching
+     * {@link UserRepository#findByBirthDateBetween(LocalDate, LocalDate, BirthDateKey)}.
+     * It's backed by the index itself, so callers must wrap it before handing it out.
+     */
+    NavigableMap<BirthDateKey, User> range(LocalDate from, LocalDate to, BirthDateKey after) {
+        return BirthDateRange.of(from, to, after).of(usersByBirthDate);
+    }
+
+    NavigableMap<Long, Long> countByBirthDay(LocalDate from, LocalDate to) {
+        return birthDayCounts.range(from, to);
+    }
+
+    /**
+     * @see UserAttributeIndex#find(UserFilter, BirthDateRange)
+     */
+    Iterator<User> find(UserFilter filter, BirthDateRange range) {
+        return attributes.find(filter, range);
+    }
+
+    private void index(String key, User user) {
+        if (user.getBirthDate() != null) {
+            BirthDateKey entry = BirthDateKey.of(user.getBirthDate(), key);
+            usersByBirthDate.put(entry, user);
+            attributes.add(key, entry, user);
+            birthDayCounts.add(entry.epochDay());
+        }
+    }
+
+    private void unindex(String key, User user) {
+        if (user.getBirthDate() != null) {
+            BirthDateKey entry = BirthDateKey.of(user.getBirthDate(), key);
+            usersByBirthDate.remove(entry);
+            attributes.remove(key, entry, user);
+            birthDayCounts.remove(entry.epochDay());
+        }
+    }
+
+    private static String nameKey(String name, String key) {
+        return UserAttributeIndex.normalize(name) + SEPARATOR + key;
+    }
+
+    /**
+     * Attribute indexes over the birth date keys, shared with the birth date index, and name indexes keyed by
+     * the normalized name and the email.
+     */
+    private final class Attributes extends UserAttributeIndex<BirthDateKey> {
+        private final ConcurrentNavigableMap<String, BirthDateKey> byFirstName = new ConcurrentSkipListMap<>();
+        private final ConcurrentNavigableMap<String, BirthDateKey> byLastName = new ConcurrentSkipListMap<>();
+
+        Attributes() {
+            super(ConcurrentSkipListSet::new);
+        }
+
+        @Override
+        User user(BirthDateKey entry) {
+            User user = usersByEmail.get(entry.email());
+            return user != null && user.getBirthDate() != null && user.getBirthDate().toEpochDay() == entry.epochDay()
+                    ? user
+                    : null;
+        }
+
+        @Override
+        NavigableSet<BirthDateKey> entries() {
+            return usersByBirthDate.navigableKeySet();
+        }
+
+        @Override
+        NavigableSet<BirthDateKey> within(NavigableSet<BirthDateKey> posting, BirthDateRange range) {
+            return range.of(posting);
+        }
+
+        @Override
+        Predicate<BirthDateKey> within(BirthDateRange range) {
+            return range::contains;
+        }
+
+        @Override
+        void addNames(BirthDateKey entry, User user) {
+            byFirstName.put(nameKey(user.getFirstName(), entry.email()), entry);
+            byLastName.put(nameKey(user.getLastName(), entry.email()), entry);
+        }
+
+        @Override
+        void removeNames(BirthDateKey entry, User user) {
+            byFirstName.remove(nameKey(user.getFirstName(), entry.email()));
+            byLastName.remove(nameKey(user.getLastName(), entry.email()));
+        }
+
+        @Override
+        void clearNames() {
+            byFirstName.clear();
+            byLastName.clear();
+        }
+
+        @Override
+        Collection<BirthDateKey> names(AttributeIndex index, String prefix) {
+            return names(index).subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+        }
+
+        @Override
+        int namesSize(AttributeIndex index) {
+            return names(index).size();
+        }
+
+        private ConcurrentNavigableMap<String, BirthDateKey> names(AttributeIndex index) {
+            return index == AttributeIndex.FIRST_NAME ? byFirstName : byLastName;
+        }
+    }
+}
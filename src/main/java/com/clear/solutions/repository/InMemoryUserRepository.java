@@ -0,0 +1,78 @@
+package com.clear.solutions.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Heap user store with a concurrent primary index keyed by normalized email
+ * and a sorted secondary index by birth date.
+ * Lookups and single-user mutations are O(1) on the primary index and O(log n) on the secondary one;
+ * birth-date range queries cost O(log n + k).
+ */
+@Repository
+@ConditionalOnProperty(name = "user.repository.storage", havingValue = "heap", matchIfMissing = true)
+public class InMemoryUserRepository extends AbstractUserRepository {
+    private final HeapUserPartition users = new HeapUserPartition();
+
+    @Override
+    public Collection<User> findAll() {
+        return users.values();
+    }
+
+    @Override
+    public Collection<User> findByBirthDateBetween(LocalDate from, LocalDate to, BirthDateKey after) {
+        return Collections.unmodifiableCollection(users.range(from, to, after).values());
+    }
+
+    @Override
+    public int size() {
+        return users.size();
+    }
+
+    @Override
+    public int birthDateIndexSize() {
+        return users.birthDateIndexSize();
+    }
+
+    @Override
+    public NavigableMap<Long, Long> countByBirthDay(LocalDate from, LocalDate to) {
+        return users.countByBirthDay(from, to);
+    }
+
+    @Override
+    public long attributeIndexSize(AttributeIndex index) {
+        return users.attributeIndexSize(index);
+    }
+
+    @Override
+    Iterator<User> find(UserFilter filter, BirthDateRange range) {
+        return users.find(filter, range);
+    }
+
+    @Override
+    protected User load(String key) {
+        return users.get(key);
+    }
+
+    @Override
+    protected void store(String key, User current, User user) {
+        users.put(key, current, user);
+    }
+
+    @Override
+    protected void delete(String key, User current) {
+        users.remove(key, current);
+    }
+
+    @Override
+    protected void clearStorage() {
+        users.clear();
+    }
+}
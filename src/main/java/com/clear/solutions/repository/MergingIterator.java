@@ -0,0 +1,72 @@
+package com.clear.solutions.repository;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import com.clear.solutions.model.User;
+
+/**
+ * Merges iterators, each ordered by birth date key, into one ordered sequence of users
+ * by keeping the next element of every iterator in a heap.
+ */
+final class MergingIterator<T> implements Iterator<User> {
+    private final PriorityQueue<Head<T>> heads;
+    private final Function<T, BirthDateKey> keyOf;
+    private final Function<T, User> userOf;
+
+    private MergingIterator(List<? extends Iterator<T>> sources, Function<T, BirthDateKey> keyOf,
+                            Function<T, User> userOf) {
+        this.keyOf = keyOf;
+        this.userOf = userOf;
+        heads = new PriorityQueue<>(Math.max(1, sources.size()));
+        for (Iterator<T> source : sources) {
+            advance(source);
+        }
+    }
+
+    /**
+     * Merges iterators of birth date index entries.
+     */
+    static Iterator<User> ofEntries(List<? extends Iterator<Map.Entry<BirthDateKey, User>>> sources) {
+        return new MergingIterator<>(sources, Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    /**
+     * Merges iterators of users ordered by {@link UserRepository#birthDateKey(User)}.
+     */
+    static Iterator<User> ofUsers(List<? extends Iterator<User>> sources) {
+        return new MergingIterator<>(sources, UserRepository::birthDateKey, Function.identity());
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public User next() {
+        Head<T> head = heads.poll();
+        if (head == null) {
+            throw new NoSuchElementException();
+        }
+        advance(head.source());
+        return userOf.apply(head.element());
+    }
+
+    private void advance(Iterator<T> source) {
+        if (source.hasNext()) {
+            T element = source.next();
+            heads.add(new Head<>(keyOf.apply(element), element, source));
+        }
+    }
+
+    private record Head<T>(BirthDateKey key, T element, Iterator<T> source) implements Comparable<Head<T>> {
+        @Override
+        public int compareTo(Head<T> other) {
+            return key.compareTo(other.key);
+        }
+    }
+}
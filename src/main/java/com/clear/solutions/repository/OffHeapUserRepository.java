@@ -0,0 +1,132 @@
+package com.clear.solutions.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.concurrent.locks.StampedLock;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * User store that keeps users off-heap in columnar form, see {@link OffHeapUserStore}.
+ * The heap only holds primitive columns and the entries of the ordered and attribute indexes, so GC work
+ * no longer grows with the field data of every user; {@link User} instances are decoded on each read.
+ * <p>
+ * Besides the per-email stripes, writes take the exclusive side of a {@link StampedLock}, because
+ * the arena and the primary table are single-writer structures. Lookups read the table optimistically
+ * and only fall back to the read lock when a write raced with them. Once dead versions outweigh live
+ * ones, the next write compacts the store into a new generation; views handed out earlier keep
+ * reading the generation they were created from.
+ */
+@Repository
+@ConditionalOnProperty(name = "user.repository.storage", havingValue = "off-heap")
+public class OffHeapUserRepository extends AbstractUserRepository {
+    private final StampedLock storeLock = new StampedLock();
+    private volatile OffHeapUserStore store = new OffHeapUserStore();
+
+    @Override
+    public Collection<User> findAll() {
+        return store.all();
+    }
+
+    @Override
+    public Collection<User> findByBirthDateBetween(LocalDate from, LocalDate to, BirthDateKey after) {
+        return store.range(BirthDateRange.of(from, to, after));
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public int birthDateIndexSize() {
+        return store.datedSize();
+    }
+
+    @Override
+    public NavigableMap<Long, Long> countByBirthDay(LocalDate from, LocalDate to) {
+        return store.countByBirthDay(from, to);
+    }
+
+    @Override
+    public long attributeIndexSize(AttributeIndex index) {
+        return store.attributeIndexSize(index);
+    }
+
+    @Override
+    Iterator<User> find(UserFilter filter, BirthDateRange range) {
+        return store.find(filter, range);
+    }
+
+    @Override
+    protected User load(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = OffHeapUserStore.hash(key);
+        long stamp = storeLock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                OffHeapUserStore current = store;
+                int slot = current.find(keyBytes, hash);
+                if (storeLock.validate(stamp)) {
+                    return slot < 0 ? null : current.user(slot);
+                }
+            } catch (RuntimeException e) {
+                // a racing write left the table inconsistent; retried under the read lock
+                if (storeLock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = storeLock.readLock();
+        try {
+            OffHeapUserStore current = store;
+            int slot = current.find(keyBytes, hash);
+            return slot < 0 ? null : current.user(slot);
+        } finally {
+            storeLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    protected void store(String key, User current, User user) {
+        long stamp = storeLock.writeLock();
+        try {
+            store.put(key, current, user);
+            compactIfNeeded();
+        } finally {
+            storeLock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    protected void delete(String key, User current) {
+        long stamp = storeLock.writeLock();
+        try {
+            store.remove(key, current);
+            compactIfNeeded();
+        } finally {
+            storeLock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    protected void clearStorage() {
+        long stamp = storeLock.writeLock();
+        try {
+            store = new OffHeapUserStore();
+        } finally {
+            storeLock.unlockWrite(stamp);
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (store.needsCompaction()) {
+            store = store.compact();
+        }
+    }
+}
@@ -0,0 +1,590 @@
+package com.clear.solutions.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import com.clear.solutions.persistence.UserRecordCodec;
+import com.clear.solutions.repository.UserRepository.AttributeIndex;
+
+/**
+ * One generation of the {@link OffHeapUserRepository} storage.
+ * <p>
+ * Every stored user version gets a slot. Its normalized email, its lower-cased first and last name and its
+ * {@link UserRecordCodec} record live in direct-memory chunks, and the slot columns hold the record address,
+ * record length, email hash and birth epoch day as primitives. Slots are append-only: a replaced or removed version
+ * stays in the arena as dead bytes until the repository compacts into a new generation, so published
+ * slot data never changes and lock-free readers can decode it at any time.
+ * <p>
+ * The primary index is an open-addressing table of slots. The ordered index is a skip list of
+ * {@code (epochDay << 32 | slot)} longs, compared by day and then by the email bytes in the arena. The
+ * {@link UserAttributeIndex} postings hold the same entries, and its name indexes order them by the name
+ * bytes in the arena, so no email or name of a user is kept on the heap.
+ * Writers must be serialized by the caller; the table may only be read under the caller's lock
+ * or optimistically, while the ordered index and the arena are safe to read concurrently.
+ */
+final class OffHeapUserStore {
+    static final int CHUNK_SIZE = 16 << 20;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int EMPTY = 0;
+    private static final int TOMBSTONE = -1;
+    private static final int NO_BIRTH_DATE = UserRecordCodec.NO_BIRTH_DATE;
+    private static final byte[] NO_KEY = new byte[0];
+    private static final Probe FIRST_DATED = new Probe(NO_BIRTH_DATE + 1L, NO_KEY);
+    /**
+     * Never part of UTF-8, so a name probe of a prefix followed by it sorts after every name with the prefix.
+     */
+    private static final byte NAME_END = (byte) 0xFF;
+
+    private final NavigableSet<Object> byBirthDate = new ConcurrentSkipListSet<>(this::compareEntries);
+    private final Attributes attributes = new Attributes();
+    private final BirthDayCounts birthDayCounts = new BirthDayCounts();
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+    private volatile int size;
+    private volatile int undated;
+
+    // owned by the serialized writer
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+    private int tombstones;
+    private int slotCount;
+    private int chunkPosition;
+    private long liveBytes;
+    private long deadBytes;
+
+    static int hash(String key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return the slot stored under {@code key}, or {@code -1}
+     */
+    int find(byte[] key, int hash) {
+        int[] slots = table;
+        int mask = slots.length - 1;
+        for (int i = hash & mask, probes = 0; probes < slots.length; i = (i + 1) & mask, probes++) {
+            int value = slots[i];
+            if (value == EMPTY) {
+                return -1;
+            }
+            if (value != TOMBSTONE && columns.keyHash[value - 1] == hash && keyEquals(value - 1, key)) {
+                return value - 1;
+            }
+        }
+        return -1;
+    }
+
+    User user(int slot) {
+        ByteBuffer record = chunk(slot).duplicate();
+        int lastName = nameOffset(slot, AttributeIndex.LAST_NAME);
+        record.position(lastName + Integer.BYTES + record.getInt(lastName));
+        return UserRecordCodec.decode(record);
+    }
+
+    /**
+     * Stores {@code user} under {@code key}, replacing {@code current} if it is not {@code null}.
+     */
+    void put(String key, User current, User user) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        int slot = append(keyBytes, utf8Name(user.getFirstName()), utf8Name(user.getLastName()),
+                UserRecordCodec.encode(user), hash, UserRecordCodec.epochDay(user.getBirthDate()));
+        int position = position(keyBytes, hash);
+        if (position >= 0) {
+            int previous = table[position] - 1;
+            table[position] = slot + 1;
+            retire(key, previous, current != null ? current : user(previous));
+        } else {
+            insert(slot, hash);
+            size++;
+        }
+        Long entry = entry(slot);
+        if (columns.epochDay[slot] == NO_BIRTH_DATE) {
+            undated++;
+        } else {
+            attributes.add(key, entry, user);
+            birthDayCounts.add(columns.epochDay[slot]);
+        }
+        byBirthDate.add(entry);
+    }
+
+    /**
+     * Removes {@code current}, which is stored under {@code key}.
+     */
+    void remove(String key, User current) {
+        int position = position(key.getBytes(StandardCharsets.UTF_8), hash(key));
+        if (position < 0) {
+            return;
+        }
+        int slot = table[position] - 1;
+        table[position] = TOMBSTONE;
+        tombstones++;
+        size--;
+        retire(key, slot, current);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int datedSize() {
+        return size - undated;
+    }
+
+    NavigableMap<Long, Long> countByBirthDay(LocalDate from, LocalDate to) {
+        return birthDayCounts.range(from, to);
+    }
+
+    long attributeIndexSize(AttributeIndex index) {
+        return attributes.size(index);
+    }
+
+    /**
+     * Worth compacting once dead versions take more memory than live ones.
+     */
+    boolean needsCompaction() {
+        return deadBytes > Math.max(liveBytes, CHUNK_SIZE);
+    }
+
+    /**
+     * @return a new generation holding only the live users
+     */
+    OffHeapUserStore compact() {
+        OffHeapUserStore compacted = new OffHeapUserStore();
+        for (Object entry : byBirthDate) {
+            int slot = slot((Long) entry);
+            compacted.put(key(slot), null, user(slot));
+        }
+        return compacted;
+    }
+
+    Collection<User> all() {
+        return users(byBirthDate);
+    }
+
+    /**
+     * Users within {@code range}. Users without a birth date are never included.
+     */
+    Collection<User> range(BirthDateRange range) {
+        return users(within(byBirthDate, range));
+    }
+
+    /**
+     * @see UserAttributeIndex#find(UserFilter, BirthDateRange)
+     */
+    Iterator<User> find(UserFilter filter, BirthDateRange range) {
+        return attributes.find(filter, range);
+    }
+
+    /**
+     * Live view of the dated entries of {@code entries} within {@code range}.
+     */
+    private NavigableSet<Object> within(NavigableSet<Object> entries, BirthDateRange range) {
+        if (range.isEmpty()) {
+            return Collections.emptyNavigableSet();
+        }
+        NavigableSet<Object> within = range.lower() == null
+                ? entries.tailSet(FIRST_DATED, true)
+                : entries.tailSet(probe(range.lower()), range.lowerInclusive());
+        if (range.upper() != null) {
+            within = within.headSet(probe(range.upper()), false);
+        }
+        return within;
+    }
+
+    private Predicate<Object> inRange(BirthDateRange range) {
+        Probe lower = range.lower() == null ? FIRST_DATED : probe(range.lower());
+        boolean lowerInclusive = range.lower() == null || range.lowerInclusive();
+        Probe upper = range.upper() == null ? null : probe(range.upper());
+        return entry -> {
+            int byLower = compareWithProbe(entry, lower);
+            return (byLower > 0 || byLower == 0 && lowerInclusive)
+                    && (upper == null || compareWithProbe(entry, upper) < 0);
+        };
+    }
+
+    private Collection<User> users(NavigableSet<Object> entries) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<User> iterator() {
+                Iterator<Object> iterator = entries.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public User next() {
+                        return user(slot((Long) iterator.next()));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    private int append(byte[] key, byte[] firstName, byte[] lastName, byte[] record, int hash, int epochDay) {
+        int length = 3 * Integer.BYTES + key.length + firstName.length + lastName.length + record.length;
+        if (chunks.length == 0 || chunkPosition + length > chunks[chunks.length - 1].capacity()) {
+            ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[chunks.length] = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, length));
+            chunks = grown;
+            chunkPosition = 0;
+        }
+        int chunk = chunks.length - 1;
+        ByteBuffer buffer = chunks[chunk];
+        int position = chunkPosition;
+        for (byte[] field : new byte[][] {key, firstName, lastName}) {
+            buffer.putInt(position, field.length);
+            buffer.put(position + Integer.BYTES, field);
+            position += Integer.BYTES + field.length;
+        }
+        buffer.put(position, record);
+
+        int slot = slotCount++;
+        Columns current = columns;
+        if (slot == current.address.length) {
+            current = current.grow();
+        }
+        current.address[slot] = (long) chunk << 32 | chunkPosition;
+        current.length[slot] = length;
+        current.keyHash[slot] = hash;
+        current.epochDay[slot] = epochDay;
+        // publishes the new slot to readers that got it from the ordered index
+        columns = current;
+        chunkPosition += length;
+        liveBytes += length;
+        return slot;
+    }
+
+    private void retire(String key, int slot, User current) {
+        Long entry = entry(slot);
+        byBirthDate.remove(entry);
+        if (columns.epochDay[slot] == NO_BIRTH_DATE) {
+            undated--;
+        } else {
+            attributes.remove(key, entry, current);
+            birthDayCounts.remove(columns.epochDay[slot]);
+        }
+        liveBytes -= columns.length[slot];
+        deadBytes += columns.length[slot];
+    }
+
+    private int position(byte[] key, int hash) {
+        int mask = table.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int value = table[i];
+            if (value == EMPTY) {
+                return -1;
+            }
+            if (value != TOMBSTONE && columns.keyHash[value - 1] == hash && keyEquals(value - 1, key)) {
+                return i;
+            }
+        }
+    }
+
+    private void insert(int slot, int hash) {
+        if ((size + tombstones + 1) * 2 > table.length) {
+            rehash(Math.max(table.length, Integer.highestOneBit(Math.max(size, 1) * 4)));
+        }
+        int mask = table.length - 1;
+        int i = hash & mask;
+        while (table[i] != EMPTY && table[i] != TOMBSTONE) {
+            i = (i + 1) & mask;
+        }
+        if (table[i] == TOMBSTONE) {
+            tombstones--;
+        }
+        table[i] = slot + 1;
+    }
+
+    private void rehash(int capacity) {
+        int[] rehashed = new int[capacity];
+        int mask = capacity - 1;
+        for (int value : table) {
+            if (value != EMPTY && value != TOMBSTONE) {
+                int i = columns.keyHash[value - 1] & mask;
+                while (rehashed[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                rehashed[i] = value;
+            }
+        }
+        table = rehashed;
+        tombstones = 0;
+    }
+
+    private String key(int slot) {
+        ByteBuffer buffer = chunk(slot);
+        int offset = offset(slot);
+        byte[] key = new byte[buffer.getInt(offset)];
+        buffer.get(offset + Integer.BYTES, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private boolean keyEquals(int slot, byte[] key) {
+        return compareKey(slot, key) == 0;
+    }
+
+    private int compareKey(int slot, byte[] key) {
+        return compareField(chunk(slot), offset(slot), key);
+    }
+
+    private int compareKeys(int leftSlot, int rightSlot) {
+        return compareFields(chunk(leftSlot), offset(leftSlot), chunk(rightSlot), offset(rightSlot));
+    }
+
+    private int compareEntries(Object left, Object right) {
+        if (left instanceof Long leftEntry && right instanceof Long rightEntry) {
+            int byDay = Integer.compare(day(leftEntry), day(rightEntry));
+            if (byDay != 0 || leftEntry.equals(rightEntry)) {
+                return byDay;
+            }
+            return compareKeys(slot(leftEntry), slot(rightEntry));
+        }
+        if (left instanceof Probe probe) {
+            return -compareWithProbe(right, probe);
+        }
+        return compareWithProbe(left, (Probe) right);
+    }
+
+    private int compareWithProbe(Object entry, Probe probe) {
+        if (entry instanceof Probe other) {
+            int byDay = Long.compare(other.epochDay, probe.epochDay);
+            return byDay != 0 ? byDay : Arrays.compareUnsigned(other.key, probe.key);
+        }
+        long key = (Long) entry;
+        int byDay = Long.compare(day(key), probe.epochDay);
+        return byDay != 0 ? byDay : compareKey(slot(key), probe.key);
+    }
+
+    /**
+     * Orders entries by the {@code index} name and then by email, both as bytes in the arena.
+     */
+    private int compareNames(AttributeIndex index, Object left, Object right) {
+        if (left instanceof Long leftEntry && right instanceof Long rightEntry) {
+            if (leftEntry.equals(rightEntry)) {
+                return 0;
+            }
+            int leftSlot = slot(leftEntry);
+            int rightSlot = slot(rightEntry);
+            int byName = compareFields(chunk(leftSlot), nameOffset(leftSlot, index),
+                    chunk(rightSlot), nameOffset(rightSlot, index));
+            return byName != 0 ? byName : compareKeys(leftSlot, rightSlot);
+        }
+        if (left instanceof NameProbe probe) {
+            return -compareWithNameProbe(index, right, probe);
+        }
+        return compareWithNameProbe(index, left, (NameProbe) right);
+    }
+
+    /**
+     * A probe sorts before the entries with its name.
+     */
+    private int compareWithNameProbe(AttributeIndex index, Object entry, NameProbe probe) {
+        if (entry instanceof NameProbe other) {
+            return Arrays.compareUnsigned(other.name, probe.name);
+        }
+        int slot = slot((Long) entry);
+        int byName = compareField(chunk(slot), nameOffset(slot, index), probe.name);
+        return byName != 0 ? byName : 1;
+    }
+
+    private ByteBuffer chunk(int slot) {
+        return chunks[(int) (columns.address[slot] >>> 32)];
+    }
+
+    /**
+     * Offset of the slot's email in its chunk, which is followed by the first name, the last name and the record.
+     */
+    private int offset(int slot) {
+        return (int) columns.address[slot];
+    }
+
+    private int nameOffset(int slot, AttributeIndex index) {
+        ByteBuffer buffer = chunk(slot);
+        int offset = offset(slot);
+        int firstName = offset + Integer.BYTES + buffer.getInt(offset);
+        return index == AttributeIndex.FIRST_NAME ? firstName : firstName + Integer.BYTES + buffer.getInt(firstName);
+    }
+
+    private static Probe probe(BirthDateKey key) {
+        return new Probe(key.epochDay(), key.email().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] utf8Name(String name) {
+        return UserAttributeIndex.normalize(name).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Unsigned byte order of the length-prefixed field at {@code offset} and {@code bytes}. On UTF-8 it
+     * matches the code point order of the strings.
+     */
+    private static int compareField(ByteBuffer buffer, int offset, byte[] bytes) {
+        int length = buffer.getInt(offset);
+        int common = Math.min(length, bytes.length);
+        for (int i = 0; i < common; i++) {
+            int byByte = Integer.compare(buffer.get(offset + Integer.BYTES + i) & 0xFF, bytes[i] & 0xFF);
+            if (byByte != 0) {
+                return byByte;
+            }
+        }
+        return Integer.compare(length, bytes.length);
+    }
+
+    private static int compareFields(ByteBuffer left, int leftOffset, ByteBuffer right, int rightOffset) {
+        int leftLength = left.getInt(leftOffset);
+        int rightLength = right.getInt(rightOffset);
+        int common = Math.min(leftLength, rightLength);
+        for (int i = 0; i < common; i++) {
+            int byByte = Integer.compare(left.get(leftOffset + Integer.BYTES + i) & 0xFF,
+                    right.get(rightOffset + Integer.BYTES + i) & 0xFF);
+            if (byByte != 0) {
+                return byByte;
+            }
+        }
+        return Integer.compare(leftLength, rightLength);
+    }
+
+    private Long entry(int slot) {
+        return (long) columns.epochDay[slot] << 32 | (slot & 0xFFFFFFFFL);
+    }
+
+    private static int day(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    private static int slot(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Search bound of the ordered index; {@code key} is a UTF-8 normalized email.
+     */
+    private record Probe(long epochDay, byte[] key) {
+    }
+
+    /**
+     * Search bound of a name index; {@code name} is a UTF-8 lower-cased name.
+     */
+    private record NameProbe(byte[] name) {
+    }
+
+    /**
+     * Attribute indexes over the ordered index entries, with name indexes ordered by the names in the arena.
+     */
+    private final class Attributes extends UserAttributeIndex<Object> {
+        private final NavigableSet<Object> byFirstName =
+                new ConcurrentSkipListSet<>((left, right) -> compareNames(AttributeIndex.FIRST_NAME, left, right));
+        private final NavigableSet<Object> byLastName =
+                new ConcurrentSkipListSet<>((left, right) -> compareNames(AttributeIndex.LAST_NAME, left, right));
+
+        Attributes() {
+            super(() -> new ConcurrentSkipListSet<>(OffHeapUserStore.this::compareEntries));
+        }
+
+        /**
+         * A slot keeps the version it was written with, so a reader racing with a write may see the previous one.
+         */
+        @Override
+        User user(Object entry) {
+            return OffHeapUserStore.this.user(slot((Long) entry));
+        }
+
+        /**
+         * Undated users are left out by {@link #within(NavigableSet, BirthDateRange)}.
+         */
+        @Override
+        NavigableSet<Object> entries() {
+            return byBirthDate;
+        }
+
+        @Override
+        NavigableSet<Object> within(NavigableSet<Object> posting, BirthDateRange range) {
+            return OffHeapUserStore.this.within(posting, range);
+        }
+
+        @Override
+        Predicate<Object> within(BirthDateRange range) {
+            return inRange(range);
+        }
+
+        @Override
+        void addNames(Object entry, User user) {
+            byFirstName.add(entry);
+            byLastName.add(entry);
+        }
+
+        @Override
+        void removeNames(Object entry, User user) {
+            byFirstName.remove(entry);
+            byLastName.remove(entry);
+        }
+
+        @Override
+        void clearNames() {
+            byFirstName.clear();
+            byLastName.clear();
+        }
+
+        @Override
+        Collection<Object> names(AttributeIndex index, String prefix) {
+            byte[] lower = prefix.getBytes(StandardCharsets.UTF_8);
+            byte[] upper = Arrays.copyOf(lower, lower.length + 1);
+            upper[lower.length] = NAME_END;
+            return names(index).subSet(new NameProbe(lower), true, new NameProbe(upper), false);
+        }
+
+        @Override
+        int namesSize(AttributeIndex index) {
+            return names(index).size();
+        }
+
+        private NavigableSet<Object> names(AttributeIndex index) {
+            return index == AttributeIndex.FIRST_NAME ? byFirstName : byLastName;
+        }
+    }
+
+    private static final class Columns {
+        final long[] address;
+        final int[] length;
+        final int[] keyHash;
+        final int[] epochDay;
+
+        Columns(int capacity) {
+            address = new long[capacity];
+            length = new int[capacity];
+            keyHash = new int[capacity];
+            epochDay = new int[capacity];
+        }
+
+        private Columns(long[] address, int[] length, int[] keyHash, int[] epochDay) {
+            this.address = address;
+            this.length = length;
+            this.keyHash = keyHash;
+            this.epochDay = epochDay;
+        }
+
+        Columns grow() {
+            int capacity = address.length * 2;
+            return new Columns(Arrays.copyOf(address, capacity), Arrays.copyOf(length, capacity),
+                    Arrays.copyOf(keyHash, capacity), Arrays.copyOf(epochDay, capacity));
+        }
+    }
+}
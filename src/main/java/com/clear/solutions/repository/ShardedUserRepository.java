@@ -0,0 +1,182 @@
+package com.clear.solutions.repository;
+
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Heap user store split into shards chosen by email hash, each with its own primary, birth date and attribute
+ * index, lock stripes and version sequence, so writes to users of different shards share no lock, index
+ * structure or counter.
+ * <p>
+ * Range queries k-way merge the shard indexes back into birth date order: views merge lazily while
+ * they are iterated, {@link #listByBirthDateBetween} copies the shard ranges in parallel first.
+ * A user re-keyed to an email of another shard moves between the shards under the locks of both emails.
+ */
+@Repository
+@ConditionalOnProperty(name = "user.repository.storage", havingValue = "sharded")
+public class ShardedUserRepository extends AbstractUserRepository {
+    private final HeapUserPartition[] shards;
+
+    /**
+     * @param shardCount number of shards, or {@code 0} for one per available core
+     */
+    public ShardedUserRepository(@Value("${user.repository.shards:0}") int shardCount) {
+        super(resolveShardCount(shardCount));
+        shards = new HeapUserPartition[resolveShardCount(shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new HeapUserPartition();
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<User> iterator() {
+                return Arrays.stream(shards).flatMap(shard -> shard.values().stream()).iterator();
+            }
+
+            @Override
+            public int size() {
+                return ShardedUserRepository.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Collection<User> findByBirthDateBetween(LocalDate from, LocalDate to, BirthDateKey after) {
+        List<NavigableMap<BirthDateKey, User>> ranges = new ArrayList<>(shards.length);
+        for (HeapUserPartition shard : shards) {
+            ranges.add(shard.range(from, to, after));
+        }
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<User> iterator() {
+                return MergingIterator.ofEntries(ranges.stream().map(range -> range.entrySet().iterator()).toList());
+            }
+
+            @Override
+            public int size() {
+                return ranges.stream().mapToInt(Map::size).sum();
+            }
+        };
+    }
+
+    /**
+     * Copies the matching range of every shard on the common fork-join pool and merges the copies.
+     */
+    @Override
+    public List<User> listByBirthDateBetween(LocalDate from, LocalDate to) {
+        List<List<Map.Entry<BirthDateKey, User>>> ranges = Arrays.stream(shards)
+                .parallel()
+                .map(shard -> List.copyOf(shard.range(from, to, null).entrySet()))
+                .toList();
+        List<User> users = new ArrayList<>(ranges.stream().mapToInt(List::size).sum());
+        MergingIterator.ofEntries(ranges.stream().map(List::iterator).toList()).forEachRemaining(users::add);
+        return users;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (HeapUserPartition shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public int birthDateIndexSize() {
+        int size = 0;
+        for (HeapUserPartition shard : shards) {
+            size += shard.birthDateIndexSize();
+        }
+        return size;
+    }
+
+    /**
+     * Sums the counts of every shard into a copy.
+     */
+    @Override
+    public NavigableMap<Long, Long> countByBirthDay(LocalDate from, LocalDate to) {
+        NavigableMap<Long, Long> counts = new TreeMap<>();
+        for (HeapUserPartition shard : shards) {
+            shard.countByBirthDay(from, to).forEach((day, count) -> counts.merge(day, count, Long::sum));
+        }
+        return counts;
+    }
+
+    @Override
+    public long attributeIndexSize(AttributeIndex index) {
+        long size = 0;
+        for (HeapUserPartition shard : shards) {
+            size += shard.attributeIndexSize(index);
+        }
+        return size;
+    }
+
+    @Override
+    Iterator<User> find(UserFilter filter, BirthDateRange range) {
+        List<Iterator<User>> matches = new ArrayList<>(shards.length);
+        for (HeapUserPartition shard : shards) {
+            matches.add(shard.find(filter, range));
+        }
+        return MergingIterator.ofUsers(matches);
+    }
+
+    @Override
+    protected User load(String key) {
+        return shardOf(key).get(key);
+    }
+
+    @Override
+    protected void store(String key, User current, User user) {
+        shardOf(key).put(key, current, user);
+    }
+
+    @Override
+    protected void delete(String key, User current) {
+        shardOf(key).remove(key, current);
+    }
+
+    @Override
+    protected void clearStorage() {
+        for (HeapUserPartition shard : shards) {
+            shard.clear();
+        }
+    }
+
+    @Override
+    protected int partitionOf(String key) {
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    private HeapUserPartition shardOf(String key) {
+        return shards[partitionOf(key)];
+    }
+
+    private static int resolveShardCount(int shardCount) {
+        if (shardCount < 0) {
+            throw new IllegalArgumentException("Shard count must not be negative: " + shardCount);
+        }
+        return shardCount == 0 ? Runtime.getRuntime().availableProcessors() : shardCount;
+    }
+}
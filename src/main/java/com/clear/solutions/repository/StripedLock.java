@@ -0,0 +1,102 @@
+package com.clear.solutions.repository;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Fixed set of locks selected by key hash. Writes to different keys mostly take different locks
+ * and proceed in parallel; multi-key sections take their stripes in ascending order to avoid deadlocks.
+ * <p>
+ * Keys may be split into partitions, each with stripes of its own, so keys of different partitions never
+ * share a lock.
+ */
+public class StripedLock {
+    /**
+     * Odd multiplier of Fibonacci hashing; picks the stripe from other hash bits than a partition function
+     * that takes the hash modulo the partition count.
+     */
+    private static final int STRIPE_MULTIPLIER = 0x9E3779B9;
+
+    private final ReentrantLock[] stripes;
+    private final int stripesPerPartition;
+    private final int mask;
+    private final ToIntFunction<String> partitionOf;
+
+    public StripedLock(int minStripes) {
+        this(1, minStripes, key -> 0);
+    }
+
+    /**
+     * @param partitionOf partition of a key, from {@code 0} to {@code partitions - 1}
+     */
+    public StripedLock(int partitions, int minStripesPerPartition, ToIntFunction<String> partitionOf) {
+        int size = 1;
+        while (size < minStripesPerPartition) {
+            size <<= 1;
+        }
+        stripes = new ReentrantLock[partitions * size];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        stripesPerPartition = size;
+        mask = size - 1;
+        this.partitionOf = partitionOf;
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    public <T> T withLock(String key, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeOf(key)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public <T> T withLocks(String firstKey, String secondKey, Supplier<T> action) {
+        int first = stripeOf(firstKey);
+        int second = stripeOf(secondKey);
+        if (first == second) {
+            return withLock(firstKey, action);
+        }
+        ReentrantLock lower = stripes[Math.min(first, second)];
+        ReentrantLock upper = stripes[Math.max(first, second)];
+        lower.lock();
+        try {
+            upper.lock();
+            try {
+                return action.get();
+            } finally {
+                upper.unlock();
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+
+    public <T> T withAllLocks(Supplier<T> action) {
+        int locked = 0;
+        try {
+            for (ReentrantLock stripe : stripes) {
+                stripe.lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    private int stripeOf(String key) {
+        int hash = key.hashCode();
+        int stripe = ((hash ^ (hash >>> 16)) * STRIPE_MULTIPLIER >>> 16) & mask;
+        return partitionOf.applyAsInt(key) * stripesPerPartition + stripe;
+    }
+}
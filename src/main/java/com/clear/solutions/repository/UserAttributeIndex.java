@@ -0,0 +1,307 @@
+package com.clear.solutions.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import com.clear.solutions.repository.UserRepository.AttributeIndex;
+
+/**
+ * Inverted indexes behind {@link UserRepository#findByFilter}, over the birth date index entries {@code E} of
+ * a backend's users with a birth date: a posting set per email domain and the sets of users with and without
+ * a phone number, all ordered like the birth date index, and name indexes sorted by lower-cased first and
+ * last name for prefix ranges, which each backend keeps in a form of its own. Writes must be serialized per key
+ * by the caller; reads take no locks and are weakly consistent, like the birth date index.
+ * <p>
+ * A search walks the smallest posting of its criteria, or the whole birth date index if it has only name
+ * prefixes, from the lower bound of the birth date range and checks each candidate against the other criteria,
+ * so a page of k matches costs O(log n + k') for the k' candidates up to the last match. A name prefix with
+ * fewer names than that posting and than {@link #MAX_SORTED_NAMES} is collected within the range and sorted
+ * instead, so a page costs at most O(m log m) for m below that bound.
+ *
+ * @param <E> entry of the backend's birth date index
+ */
+abstract class UserAttributeIndex<E> {
+    /**
+     * Most names of a prefix that a search collects and sorts rather than walking the birth date order.
+     */
+    static final int MAX_SORTED_NAMES = 4096;
+
+    private final Supplier<NavigableSet<E>> newPosting;
+    private final ConcurrentMap<String, Posting<E>> byDomain = new ConcurrentHashMap<>();
+    private final Posting<E> withPhoneNumber;
+    private final Posting<E> withoutPhoneNumber;
+
+    /**
+     * @param newPosting creates an empty set ordered like the birth date index
+     */
+    UserAttributeIndex(Supplier<NavigableSet<E>> newPosting) {
+        this.newPosting = newPosting;
+        withPhoneNumber = new Posting<>(newPosting.get());
+        withoutPhoneNumber = new Posting<>(newPosting.get());
+    }
+
+    /**
+     * @return the user stored under {@code entry}, or {@code null} if it's gone or stored under another entry
+     */
+    abstract User user(E entry);
+
+    /**
+     * Live view of every entry of the birth date index, ordered like the postings; {@link #within} leaves out
+     * entries of users without a birth date.
+     */
+    abstract NavigableSet<E> entries();
+
+    /**
+     * Live view of the entries of {@code posting} within {@code range}.
+     */
+    abstract NavigableSet<E> within(NavigableSet<E> posting, BirthDateRange range);
+
+    abstract Predicate<E> within(BirthDateRange range);
+
+    abstract void addNames(E entry, User user);
+
+    abstract void removeNames(E entry, User user);
+
+    abstract void clearNames();
+
+    /**
+     * Entries of the {@link AttributeIndex#FIRST_NAME} or {@link AttributeIndex#LAST_NAME} index whose
+     * {@link #normalize(String) normalized} name starts with {@code prefix}, in name order.
+     */
+    abstract Collection<E> names(AttributeIndex index, String prefix);
+
+    abstract int namesSize(AttributeIndex index);
+
+    /**
+     * Indexes {@code entry} of {@code user}, which has a birth date and is stored under {@code key}.
+     */
+    final void add(String key, E entry, User user) {
+        // added within compute, so it can't land in a posting that a removal of the last key has just dropped
+        byDomain.compute(domain(key), (domain, posting) -> {
+            Posting<E> domainPosting = posting != null ? posting : new Posting<>(newPosting.get());
+            domainPosting.add(entry);
+            return domainPosting;
+        });
+        addNames(entry, user);
+        (hasPhoneNumber(user) ? withPhoneNumber : withoutPhoneNumber).add(entry);
+    }
+
+    final void remove(String key, E entry, User current) {
+        byDomain.computeIfPresent(domain(key), (domain, posting) -> {
+            posting.remove(entry);
+            return posting.isEmpty() ? null : posting;
+        });
+        removeNames(entry, current);
+        (hasPhoneNumber(current) ? withPhoneNumber : withoutPhoneNumber).remove(entry);
+    }
+
+    final void clear() {
+        byDomain.clear();
+        clearNames();
+        withPhoneNumber.clear();
+        withoutPhoneNumber.clear();
+    }
+
+    final long size(AttributeIndex index) {
+        return switch (index) {
+            case EMAIL_DOMAIN -> byDomain.values().stream().mapToLong(Posting::size).sum();
+            case PHONE_NUMBER -> withPhoneNumber.size() + withoutPhoneNumber.size();
+            case FIRST_NAME, LAST_NAME -> namesSize(index);
+        };
+    }
+
+    /**
+     * Users matching every criterion of a non-empty {@code filter} within {@code range}, in birth date order.
+     */
+    final Iterator<User> find(UserFilter filter, BirthDateRange range) {
+        Criteria criteria = Criteria.of(filter);
+        if (range.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        Posting<E> smallest = null;
+        if (criteria.domain() != null) {
+            smallest = byDomain.get(criteria.domain());
+            if (smallest == null) {
+                return Collections.emptyIterator();
+            }
+        }
+        if (criteria.hasPhoneNumber() != null) {
+            Posting<E> phone = criteria.hasPhoneNumber() ? withPhoneNumber : withoutPhoneNumber;
+            smallest = smallest == null || phone.size() < smallest.size() ? phone : smallest;
+        }
+        long limit = Math.min(MAX_SORTED_NAMES,
+                smallest != null ? smallest.size() : withPhoneNumber.size() + withoutPhoneNumber.size());
+        Predicate<E> inRange = within(range);
+        Prefix<E> names = null;
+        if (criteria.firstNamePrefix() != null) {
+            names = prefixIfSmaller(names(AttributeIndex.FIRST_NAME, criteria.firstNamePrefix()), inRange, limit);
+        }
+        if (criteria.lastNamePrefix() != null) {
+            Prefix<E> lastNames = prefixIfSmaller(names(AttributeIndex.LAST_NAME, criteria.lastNamePrefix()),
+                    inRange, names != null ? names.walked() : limit);
+            names = lastNames != null ? lastNames : names;
+        }
+        Iterator<E> candidates = names != null
+                ? names.entries().iterator()
+                : within(smallest != null ? smallest.entries : entries(), range).iterator();
+        return new Matches(candidates, criteria);
+    }
+
+    /**
+     * @return the {@code names} within the range sorted like the postings, or {@code null} if there are
+     *         {@code limit} names or more
+     */
+    private Prefix<E> prefixIfSmaller(Collection<E> names, Predicate<E> inRange, long limit) {
+        List<E> entries = new ArrayList<>();
+        long walked = 0;
+        for (E entry : names) {
+            if (++walked >= limit) {
+                return null;
+            }
+            if (inRange.test(entry)) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(withPhoneNumber.entries.comparator());
+        return new Prefix<>(entries, walked);
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String domain(String key) {
+        return key.substring(key.lastIndexOf('@') + 1);
+    }
+
+    private static boolean hasPhoneNumber(User user) {
+        return !isBlank(user.getPhoneNumber());
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * Normalized criteria of a filter, each {@code null} if not given.
+     */
+    private record Criteria(String domain, Boolean hasPhoneNumber, String firstNamePrefix, String lastNamePrefix) {
+
+        static Criteria of(UserFilter filter) {
+            String domain = isBlank(filter.getEmailDomain()) ? null : normalize(filter.getEmailDomain());
+            if (domain != null && domain.startsWith("@")) {
+                domain = domain.substring(1);
+            }
+            Criteria criteria = new Criteria(domain, filter.getHasPhoneNumber(),
+                    isBlank(filter.getFirstNamePrefix()) ? null : normalize(filter.getFirstNamePrefix()),
+                    isBlank(filter.getLastNamePrefix()) ? null : normalize(filter.getLastNamePrefix()));
+            if (criteria.equals(new Criteria(null, null, null, null))) {
+                throw new IllegalArgumentException("Filter has no criteria");
+            }
+            return criteria;
+        }
+
+        /**
+         * Checks the stored user rather than the index, whose postings of one user are updated one after another.
+         */
+        boolean matches(User user) {
+            return (domain == null || domain.equals(UserAttributeIndex.domain(
+                    UserRepository.normalizeEmail(user.getEmail()))))
+                    && (hasPhoneNumber == null || hasPhoneNumber == UserAttributeIndex.hasPhoneNumber(user))
+                    && (firstNamePrefix == null || normalize(user.getFirstName()).startsWith(firstNamePrefix))
+                    && (lastNamePrefix == null || normalize(user.getLastName()).startsWith(lastNamePrefix));
+        }
+    }
+
+    /**
+     * Entries of the names starting with a prefix that are within a birth date range, sorted by birth date.
+     *
+     * @param walked number of names with the prefix, in or out of the range
+     */
+    private record Prefix<E>(List<E> entries, long walked) {
+    }
+
+    /**
+     * Birth date ordered entries of the users matching one criterion, with a size that costs no walk.
+     */
+    private static final class Posting<E> {
+        final NavigableSet<E> entries;
+        final LongAdder size = new LongAdder();
+
+        Posting(NavigableSet<E> entries) {
+            this.entries = entries;
+        }
+
+        void add(E entry) {
+            if (entries.add(entry)) {
+                size.increment();
+            }
+        }
+
+        void remove(E entry) {
+            if (entries.remove(entry)) {
+                size.decrement();
+            }
+        }
+
+        void clear() {
+            entries.clear();
+            size.reset();
+        }
+
+        boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        long size() {
+            return size.sum();
+        }
+    }
+
+    /**
+     * Users of the candidate entries that are still stored under them and match the criteria.
+     */
+    private final class Matches implements Iterator<User> {
+        private final Iterator<E> candidates;
+        private final Criteria criteria;
+        private User next;
+
+        Matches(Iterator<E> candidates, Criteria criteria) {
+            this.candidates = candidates;
+            this.criteria = criteria;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && candidates.hasNext()) {
+                User user = user(candidates.next());
+                if (user != null && criteria.matches(user)) {
+                    next = user;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public User next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            User user = next;
+            next = null;
+            return user;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.clear.solutions.repository;
+
+import com.clear.solutions.model.User;
+
+/**
+ * Observer of every change applied to the {@link UserRepository}.
+ */
+public interface UserChangeListener {
+
+    /**
+     * Called before a change is applied, while the lock of the changed user is held. Throwing rejects
+     * the change: nothing is stored, no listener is told about it and the exception reaches the writer.
+     *
+     * @param previous the user to be replaced or removed, {@code null} for an insert
+     * @param current  the user to be stored, {@code null} for a removal
+     */
+    default void beforeChange(User previous, User current) {
+    }
+
+    /**
+     * Called after a change has been applied, while the lock of the changed user is still held,
+     * so changes of one user are observed in the order they were applied. Must not block for long.
+     *
+     * @param previous the replaced or removed user, {@code null} for an insert
+     * @param current  the stored user, {@code null} for a removal; its email differs from the
+     *                 email of {@code previous} when the user was re-keyed
+     */
+    void onChange(User previous, User current);
+
+    /**
+     * Called on the writing thread once the write, or the whole batch, has released its locks.
+     * This is the place to wait for slow side effects such as an fsync.
+     */
+    default void afterWrite() {
+    }
+
+    /**
+     * Called after the repository changed without reporting the change to {@link #onChange(User, User)}:
+     * by {@code clear} or by one of the {@code restore} methods. Listeners keeping state derived from the
+     * stored users must drop it. Called while the changed users are still locked.
+     */
+    default void onReset() {
+    }
+}
@@ -1,14 +1,225 @@
 package com.clear.solutions.repository;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import com.clear.solutions.model.User;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import org.springframework.stereotype.Repository;
-
-@Repository
-@Data
-@AllArgsConstructor
-public class UserRepository {
-    private List<User> users;
+import com.clear.solutions.model.UserFilter;
+
+/**
+ * User store keyed by normalized email with a secondary ordering by birth date and email.
+ * <p>
+ * Writes to one user are atomic and ordered; reads take no locks and see either the previous
+ * or the next stored version of a user. Every applied change is reported to the registered
+ * {@link UserChangeListener}s; the {@code restore} methods and {@link #clear()} bypass them, only calling
+ * {@link UserChangeListener#onReset()}, and are meant for rebuilding the store on startup.
+ * <p>
+ * Every stored change assigns the user a new {@link User#getVersion() version} taken from a sequence that all
+ * writes to its email draw from, so versions grow per email and are never reused, even after a user is
+ * removed and re-added. A partitioned store keeps one sequence per partition, so versions of users in
+ * different partitions aren't ordered.
+ * Listeners and the returned results see the versioned instances; the ones returned by a write are the
+ * instances it stored, so their versions are those of that write even if another one followed it.
+ */
+public interface UserRepository {
+    /**
+     * Expected version that matches any stored user.
+     */
+    long ANY_VERSION = -1;
+
+    /**
+     * Secondary indexes of {@link #findByFilter}, named after the search parameters they answer.
+     */
+    enum AttributeIndex {
+        EMAIL_DOMAIN("emailDomain"),
+        FIRST_NAME("firstName"),
+        LAST_NAME("lastName"),
+        PHONE_NUMBER("phoneNumber");
+
+        private final String parameter;
+
+        AttributeIndex(String parameter) {
+            this.parameter = parameter;
+        }
+
+        public String parameter() {
+            return parameter;
+        }
+    }
+
+    void addChangeListener(UserChangeListener listener);
+
+    Optional<User> findByEmail(String email);
+
+    boolean existsByEmail(String email);
+
+    /**
+     * Stores the user only if no user with the same email exists.
+     *
+     * @return the stored, versioned user, or {@code null} if a user with the same email exists
+     */
+    User insertIfAbsent(User user);
+
+    /**
+     * Inserts the user or replaces the one stored under the same email.
+     *
+     * @return the previous user, or {@code null} if the user was added
+     */
+    User save(User user);
+
+    /**
+     * Replaces the user stored under {@code email}. The replacement may carry a different email,
+     * in which case it is re-keyed; the new email must not belong to another user.
+     *
+     * @return the stored, versioned replacement, or {@code null} if nothing was stored under {@code email}
+     */
+    default User replace(String email, User user) {
+        return replace(email, user, ANY_VERSION);
+    }
+
+    /**
+     * Same as {@link #replace(String, User)}, applied only if the stored user has {@code expectedVersion}.
+     *
+     * @throws com.clear.solutions.exception.VersionMismatchException if the stored user has another version
+     */
+    User replace(String email, User user, long expectedVersion);
+
+    /**
+     * Atomically replaces the user stored under {@code email} with {@code update.apply(current)}.
+     * The function runs under the lock of the user, so concurrent updates of the same user never
+     * overwrite each other. It must not change the email.
+     *
+     * @return the stored result, or {@code null} if nothing was stored under {@code email}
+     */
+    User update(String email, UnaryOperator<User> update);
+
+    /**
+     * @return the removed user, or {@code null} if nothing was stored under {@code email}
+     */
+    User remove(String email);
+
+    /**
+     * Runs {@code batch} as one critical section: no other write is applied while it runs,
+     * so concurrent writers observe either none or all of its changes.
+     * Single-user methods of this repository may be called from within the batch.
+     */
+    <T> T inBatch(Supplier<T> batch);
+
+    /**
+     * Stores the user without reporting the change to listeners; they are only {@link UserChangeListener#onReset()
+     * reset}.
+     */
+    void restore(User user);
+
+    /**
+     * Removes the user without reporting the change to listeners; they are only {@link UserChangeListener#onReset()
+     * reset}.
+     */
+    void restoreRemoval(String email);
+
+    /**
+     * Makes every version issued from now on greater than {@code version}, which was issued before a restart,
+     * possibly to a user that is gone since.
+     */
+    void restoreVersion(long version);
+
+    /**
+     * The greatest version issued so far, which a later {@link #restoreVersion(long)} keeps from being reused.
+     */
+    long lastVersion();
+
+    /**
+     * Read-only, weakly consistent view of all stored users.
+     */
+    Collection<User> findAll();
+
+    /**
+     * Read-only view of users born strictly after {@code from} and strictly before {@code to},
+     * ordered by birth date and email. A {@code null} bound leaves that side of the range open.
+     */
+    default Collection<User> findByBirthDateBetween(LocalDate from, LocalDate to) {
+        return findByBirthDateBetween(from, to, null);
+    }
+
+    /**
+     * Same as {@link #findByBirthDateBetween(LocalDate, LocalDate)}, restricted to users ordered
+     * strictly after {@code after}. Used to resume a paginated search from a cursor.
+     */
+    Collection<User> findByBirthDateBetween(LocalDate from, LocalDate to, BirthDateKey after);
+
+    /**
+     * Copy of {@link #findByBirthDateBetween(LocalDate, LocalDate)}, for callers that need the whole range.
+     */
+    default List<User> listByBirthDateBetween(LocalDate from, LocalDate to) {
+        return new ArrayList<>(findByBirthDateBetween(from, to));
+    }
+
+    /**
+     * Number of users born on each day strictly after {@code from} and strictly before {@code to}, keyed by
+     * epoch day in ascending order; a {@code null} bound leaves that side open and days without users are left
+     * out. The counts are kept up to date on every write, so the last key is the latest birth date stored and
+     * a range can be split by size at the cost of one entry per day.
+     */
+    NavigableMap<Long, Long> countByBirthDay(LocalDate from, LocalDate to);
+
+    /**
+     * Read-only view of the users matching every criterion of {@code filter} among those of
+     * {@link #findByBirthDateBetween(LocalDate, LocalDate, BirthDateKey)}, in the same order. Each criterion is
+     * looked up in an index of its own, which is walked from the lower bound of the range as the view is
+     * iterated, so reading a page doesn't visit the matches after it. Counting the view walks it.
+     */
+    Collection<User> findByFilter(LocalDate from, LocalDate to, UserFilter filter, BirthDateKey after);
+
+    /**
+     * Copy of the users matching every criterion of {@code filter}, ordered by birth date and email;
+     * users without a birth date are left out, as in the range searches.
+     */
+    default List<User> listByFilter(UserFilter filter) {
+        List<User> users = new ArrayList<>();
+        // iterated once; copying the collection would walk it to count it first
+        findByFilter(null, null, filter, null).forEach(users::add);
+        return users;
+    }
+
+    int size();
+
+    int birthDateIndexSize();
+
+    /**
+     * Number of entries of an attribute index, one per user with a birth date. Name indexes count their
+     * entries by traversal.
+     */
+    long attributeIndexSize(AttributeIndex index);
+
+    /**
+     * Number of changes applied so far. A change is counted only once it is visible to readers,
+     * so results read after observing a count reflect at least the changes it includes.
+     */
+    long modificationCount();
+
+    /**
+     * Identifies this run of the store. {@link #modificationCount()} restarts with every run and counts the
+     * replayed changes as well, so only the pair of both tells states of different runs apart.
+     */
+    long modificationEpoch();
+
+    /**
+     * Removes every user without reporting the changes to listeners; they are only
+     * {@link UserChangeListener#onReset() reset}.
+     */
+    void clear();
+
+    static BirthDateKey birthDateKey(User user) {
+        return BirthDateKey.of(user.getBirthDate(), normalizeEmail(user.getEmail()));
+    }
+
+    static String normalizeEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
 }
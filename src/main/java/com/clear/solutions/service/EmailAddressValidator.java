@@ -0,0 +1,58 @@
+package com.clear.solutions.service;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Single-pass, allocation-free equivalent of {@link UserValidatorService#VALID_EMAIL_ADDRESS_REGEX}:
+ * a non-empty local part of ASCII letters, digits and {@code ._%+-}, one {@code @}, then a domain of
+ * ASCII letters, digits, {@code .} and {@code -} whose last dot has at least one character before it
+ * and is followed by a top-level domain of 2 to 6 ASCII letters.
+ */
+@UtilityClass
+public class EmailAddressValidator {
+    private static final int MIN_TLD_LENGTH = 2;
+    private static final int MAX_TLD_LENGTH = 6;
+
+    public static boolean isValid(CharSequence email) {
+        int length = email.length();
+        int at = 0;
+        while (at < length && email.charAt(at) != '@') {
+            if (!isLocalPartChar(email.charAt(at))) {
+                return false;
+            }
+            at++;
+        }
+        if (at == 0 || at == length) {
+            return false;
+        }
+
+        int lastDot = -1;
+        boolean lettersAfterLastDot = true;
+        for (int i = at + 1; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                lastDot = i;
+                lettersAfterLastDot = true;
+            } else if (isDigit(c) || c == '-') {
+                lettersAfterLastDot = false;
+            } else if (!isLetter(c)) {
+                return false;
+            }
+        }
+        int tldLength = length - lastDot - 1;
+        return lastDot > at + 1 && lettersAfterLastDot
+                && tldLength >= MIN_TLD_LENGTH && tldLength <= MAX_TLD_LENGTH;
+    }
+
+    private static boolean isLocalPartChar(char c) {
+        return isLetter(c) || isDigit(c) || c == '.' || c == '_' || c == '%' || c == '+' || c == '-';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,120 @@
+package com.clear.solutions.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import com.clear.solutions.model.User;
+import com.clear.solutions.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Materializes birth date range searches. The first {@code user.search.parallel-threshold} users are
+ * copied on the calling thread, so small searches never leave it. If the range holds more, the rest of it
+ * is split by the stored per-day counts into chunks of birth days holding about as many users each, which are
+ * copied concurrently on a dedicated {@link ForkJoinPool} of {@code user.search.parallelism} threads and
+ * appended in order.
+ */
+@Component
+public class ParallelRangeSearch {
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final int threshold;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parallelism search threads, or {@code 0} for one per available core
+     */
+    public ParallelRangeSearch(@Value("${user.search.parallel-threshold}") int threshold,
+                               @Value("${user.search.parallelism}") int parallelism) {
+        if (threshold < 1 || parallelism < 0) {
+            throw new IllegalArgumentException("Search threshold must be positive and parallelism not negative");
+        }
+        this.threshold = threshold;
+        this.pool = new ForkJoinPool(parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism,
+                ParallelRangeSearch::newWorker, null, false);
+    }
+
+    /**
+     * Same users in the same order as {@link UserRepository#findByBirthDateBetween(LocalDate, LocalDate)}.
+     */
+    public List<User> search(UserRepository userRepository, LocalDate from, LocalDate to) {
+        ArrayList<User> users = new ArrayList<>();
+        Iterator<User> matches = userRepository.findByBirthDateBetween(from, to).iterator();
+        while (matches.hasNext()) {
+            User user = matches.next();
+            // the chunks start at a day boundary, so the day of the last copied user is finished first
+            if (users.size() >= threshold && !user.getBirthDate().equals(users.get(users.size() - 1).getBirthDate())) {
+                appendInParallel(userRepository, user.getBirthDate().minusDays(1), to, users);
+                break;
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Appends the users born strictly after {@code after} and strictly before {@code to}. The days of the range
+     * are cut into chunks of about equal numbers of users by {@link UserRepository#countByBirthDay}, which ends
+     * at the latest birth date stored; the last chunk stays open to {@code to}, so users written since are kept.
+     */
+    private void appendInParallel(UserRepository userRepository, LocalDate after, LocalDate to,
+                                  ArrayList<User> users) {
+        NavigableMap<Long, Long> counts = userRepository.countByBirthDay(after, to);
+        long expected = 0;
+        for (long count : counts.values()) {
+            expected += count;
+        }
+        int chunkCount = (int) Math.max(1, Math.min((long) pool.getParallelism() * CHUNKS_PER_THREAD, counts.size()));
+
+        List<ForkJoinTask<List<User>>> chunks = new ArrayList<>(chunkCount);
+        LocalDate chunkAfter = after;
+        long counted = 0;
+        for (Map.Entry<Long, Long> day : counts.entrySet()) {
+            if (chunks.size() == chunkCount - 1) {
+                break;
+            }
+            counted += day.getValue();
+            if (counted * chunkCount >= expected * (chunks.size() + 1)) {
+                LocalDate lastDay = LocalDate.ofEpochDay(day.getKey());
+                chunks.add(submit(userRepository, chunkAfter, lastDay.plusDays(1)));
+                chunkAfter = lastDay;
+            }
+        }
+        chunks.add(submit(userRepository, chunkAfter, to));
+
+        List<List<User>> copies = new ArrayList<>(chunks.size());
+        int total = users.size();
+        for (ForkJoinTask<List<User>> chunk : chunks) {
+            List<User> copy = chunk.join();
+            copies.add(copy);
+            total += copy.size();
+        }
+        users.ensureCapacity(total);
+        for (List<User> copy : copies) {
+            users.addAll(copy);
+        }
+    }
+
+    private ForkJoinTask<List<User>> submit(UserRepository userRepository, LocalDate after, LocalDate to) {
+        return pool.submit(() -> userRepository.listByBirthDateBetween(after, to));
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        worker.setName("user-search-" + worker.getPoolIndex());
+        return worker;
+    }
+}
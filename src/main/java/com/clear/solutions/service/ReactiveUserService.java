@@ -0,0 +1,131 @@
+package com.clear.solutions.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import com.clear.solutions.cache.UserJson;
+import com.clear.solutions.cache.UserJsonCache;
+import com.clear.solutions.changes.UserChangeLog;
+import com.clear.solutions.exception.ChangesExpiredException;
+import com.clear.solutions.model.BatchItemResult;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserChangeEvent;
+import com.clear.solutions.model.UserFilter;
+import com.clear.solutions.model.UserPage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking facade of {@link UserService} for the WebFlux stack.
+ * <p>
+ * Reads never block, since the repository serves them without locks, so they run on the calling thread.
+ * Writes may wait for repository locks and, depending on the fsync policy, for the write-ahead log,
+ * so they are moved off the event loop to {@link Schedulers#boundedElastic()}.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserService {
+    private final UserService userService;
+    private final UserJsonCache userJsonCache;
+    private final UserChangeLog changeLog;
+    private final Scheduler writeScheduler;
+
+    public ReactiveUserService(UserService userService, UserJsonCache userJsonCache, UserChangeLog changeLog) {
+        this.userService = userService;
+        this.userJsonCache = userJsonCache;
+        this.changeLog = changeLog;
+        this.writeScheduler = Schedulers.boundedElastic();
+    }
+
+    public Mono<User> createUser(User user) {
+        return write(() -> userService.createUser(user));
+    }
+
+    public Mono<User> updateUser(String email, User updatedUser, long expectedVersion) {
+        return write(() -> userService.updateUser(email, updatedUser, expectedVersion));
+    }
+
+    public Mono<User> patchUser(String email, Map<String, String> updates, long expectedVersion) {
+        return write(() -> userService.patchUser(email, updates, expectedVersion));
+    }
+
+    public Mono<Boolean> deleteUser(String email) {
+        return write(() -> userService.deleteUser(email));
+    }
+
+    public Mono<List<BatchItemResult>> createUsers(List<User> users, boolean upsert) {
+        return write(() -> userService.createUsers(users, upsert));
+    }
+
+    public Mono<List<BatchItemResult>> deleteUsers(List<String> emails) {
+        return write(() -> userService.deleteUsers(emails));
+    }
+
+    /**
+     * Users ordered by birth date, emitted while the birth date index is iterated and only as fast
+     * as they are requested. Cancelling the subscription stops the iteration.
+     */
+    public Flux<User> searchUsers(LocalDate from, LocalDate to) {
+        return Flux.fromStream(() -> userService.streamUsers(from, to));
+    }
+
+    public Mono<UserPage> searchUsers(LocalDate from, LocalDate to, String cursor, int limit) {
+        return Mono.fromSupplier(() -> userService.searchUsers(from, to, cursor, limit));
+    }
+
+    /**
+     * Users matching the filter, looked up in the attribute indexes as a whole before the first is emitted.
+     */
+    public Flux<User> searchUsers(LocalDate from, LocalDate to, UserFilter filter) {
+        return Mono.fromSupplier(() -> userService.searchUsers(from, to, filter)).flatMapIterable(users -> users);
+    }
+
+    public Mono<UserPage> searchUsers(LocalDate from, LocalDate to, UserFilter filter, String cursor, int limit) {
+        return Mono.fromSupplier(() -> userService.searchUsers(from, to, filter, cursor, limit));
+    }
+
+    public Mono<User> getByEmail(String email) {
+        return Mono.fromSupplier(() -> userService.getByEmail(email));
+    }
+
+    /**
+     * @return the serialized user from the response cache
+     */
+    public Mono<UserJson> getJsonByEmail(String email) {
+        return Mono.fromSupplier(() -> userJsonCache.get(email, () -> userService.getByEmail(email)));
+    }
+
+    /**
+     * Changes applied after {@code since}, polled from the change log. Polls without demand are dropped,
+     * so a slow consumer falls behind and the flux ends with a {@link ChangesExpiredException}.
+     *
+     * @throws ChangesExpiredException right away if the changes after {@code since} are no longer buffered
+     */
+    public Flux<UserChangeEvent> changes(Long since) {
+        UserChangeLog.Cursor cursor = changeLog.follow(since);
+        return Flux.interval(changeLog.getPollInterval())
+                .onBackpressureDrop()
+                .concatMapIterable(tick -> cursor.poll());
+    }
+
+    public Map<String, Object> cacheStats() {
+        return userJsonCache.stats();
+    }
+
+    public long modificationCount() {
+        return userService.modificationCount();
+    }
+
+    public long modificationEpoch() {
+        return userService.modificationEpoch();
+    }
+
+    private <T> Mono<T> write(Callable<T> write) {
+        return Mono.fromCallable(write).subscribeOn(writeScheduler);
+    }
+}
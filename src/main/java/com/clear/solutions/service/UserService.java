@@ -3,19 +3,66 @@ package com.clear.solutions.service;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
+import com.clear.solutions.model.BatchItemResult;
 import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import com.clear.solutions.model.UserPage;
+import com.clear.solutions.repository.UserRepository;
 
 public interface UserService {
+    int MAX_PAGE_SIZE = 1000;
+    int MAX_BATCH_SIZE = 100_000;
 
     User createUser(User user);
 
-    User updateUser(String email, User updatedUser);
+    default User updateUser(String email, User updatedUser) {
+        return updateUser(email, updatedUser, UserRepository.ANY_VERSION);
+    }
 
-    User patchUser(String email, Map<String, String> updates);
+    /**
+     * @param expectedVersion version the stored user must have, or {@link UserRepository#ANY_VERSION}
+     */
+    User updateUser(String email, User updatedUser, long expectedVersion);
+
+    default User patchUser(String email, Map<String, String> updates) {
+        return patchUser(email, updates, UserRepository.ANY_VERSION);
+    }
+
+    /**
+     * @param expectedVersion version the stored user must have, or {@link UserRepository#ANY_VERSION}
+     */
+    User patchUser(String email, Map<String, String> updates, long expectedVersion);
 
     boolean deleteUser(String email);
 
     List<User> searchUsers(LocalDate from, LocalDate to);
 
+    UserPage searchUsers(LocalDate from, LocalDate to, String cursor, int limit);
+
+    /**
+     * Users born within the range that match every criterion of a non-empty {@code filter}, ordered by birth
+     * date like the range search, found through the attribute indexes rather than the birth date range.
+     */
+    List<User> searchUsers(LocalDate from, LocalDate to, UserFilter filter);
+
+    UserPage searchUsers(LocalDate from, LocalDate to, UserFilter filter, String cursor, int limit);
+
+    Stream<User> streamUsers(LocalDate from, LocalDate to);
+
     User getByEmail(String email);
+
+    List<BatchItemResult> createUsers(List<User> users, boolean upsert);
+
+    List<BatchItemResult> deleteUsers(List<String> emails);
+
+    /**
+     * @see UserRepository#modificationCount()
+     */
+    long modificationCount();
+
+    /**
+     * @see UserRepository#modificationEpoch()
+     */
+    long modificationEpoch();
 }
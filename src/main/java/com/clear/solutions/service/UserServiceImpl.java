@@ -1,10 +1,26 @@
 package com.clear.solutions.service;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.stream.Stream;
+import com.clear.solutions.exception.InvalidRequestException;
+import com.clear.solutions.exception.RequestErrorCode;
+import com.clear.solutions.exception.UserAlreadyExistsException;
+import com.clear.solutions.exception.UserNotFoundException;
+import com.clear.solutions.exception.UserValidationException;
+import com.clear.solutions.exception.ValidationErrorCode;
+import com.clear.solutions.exception.VersionMismatchException;
+import com.clear.solutions.metrics.UserMetrics;
+import com.clear.solutions.metrics.UserMetrics.Operation;
+import com.clear.solutions.model.BatchItemResult;
 import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import com.clear.solutions.model.UserPage;
+import com.clear.solutions.repository.BirthDateKey;
 import com.clear.solutions.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,75 +31,277 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
+    private final UserValidatorService validatorService;
+    private final UserMetrics metrics;
+    private final ParallelRangeSearch rangeSearch;
 
     @Override
     public User createUser(User user) {
-        checkEmailIsAlreadyExisted(user.getEmail());
-        userRepository.getUsers().add(user);
-        return user;
+        long start = metrics.start();
+        try {
+            User createdUser = userRepository.insertIfAbsent(user);
+            if (createdUser == null) {
+                throw new UserAlreadyExistsException(user.getEmail());
+            }
+            return createdUser;
+        } finally {
+            metrics.record(Operation.CREATE_USER, start);
+        }
     }
 
     @Override
-    public User updateUser(String email, User updatedUser) {
-        int userIndex = userRepository.getUsers().indexOf(getUserByEmail(email));
-        userRepository.getUsers().set(userIndex, updatedUser);
-        return updatedUser;
+    public User updateUser(String email, User updatedUser, long expectedVersion) {
+        long start = metrics.start();
+        try {
+            User replacedUser = userRepository.replace(email, updatedUser, expectedVersion);
+            if (replacedUser == null) {
+                throw userNotFound(email);
+            }
+            return replacedUser;
+        } finally {
+            metrics.record(Operation.UPDATE_USER, start);
+        }
     }
 
     @Override
-    public User patchUser(String email, Map<String, String> updates) {
-        User existingUser = getUserByEmail(email);
-
-        for (String key : updates.keySet()) {
-            switch (key) {
-                case "firstName" -> existingUser.setFirstName(updates.get(key));
-                case "lastName" -> existingUser.setLastName(updates.get(key));
-                case "birthDate" -> existingUser.setBirthDate(LocalDate.parse(updates.get(key)));
-                case "address" -> existingUser.setAddress(updates.get(key));
-                case "phoneNumber" -> existingUser.setPhoneNumber(updates.get(key));
-                default -> log.info("User field: {} doesn't exist", key);
+    public User patchUser(String email, Map<String, String> updates, long expectedVersion) {
+        long start = metrics.start();
+        try {
+            User patchedUser = userRepository.update(email, existingUser -> {
+                if (expectedVersion != UserRepository.ANY_VERSION && existingUser.getVersion() != expectedVersion) {
+                    throw new VersionMismatchException(email);
+                }
+                User patched = applyPatch(existingUser, updates);
+                validatorService.validateUser(patched);
+                return patched;
+            });
+            if (patchedUser == null) {
+                throw userNotFound(email);
             }
+            return patchedUser;
+        } finally {
+            metrics.record(Operation.PATCH_USER, start);
         }
-        return existingUser;
     }
 
     @Override
     public boolean deleteUser(String email) {
-        return userRepository.getUsers().remove(getUserByEmail(email));
+        long start = metrics.start();
+        try {
+            if (userRepository.remove(email) == null) {
+                throw userNotFound(email);
+            }
+            return true;
+        } finally {
+            metrics.record(Operation.DELETE_USER, start);
+        }
     }
 
     @Override
     public List<User> searchUsers(LocalDate from, LocalDate to) {
-        if (from != null && to != null && from.isAfter(to)) {
-            throw new IllegalArgumentException("From date must be before To date");
+        long start = metrics.start();
+        try {
+            checkDateRange(from, to);
+            return rangeSearch.search(userRepository, from, to);
+        } finally {
+            metrics.record(Operation.SEARCH_USERS, start);
         }
-        List<User> results = new ArrayList<>();
-        for (User user : userRepository.getUsers()) {
-            if ((from == null || user.getBirthDate().isAfter(from))
-                    && (to == null || user.getBirthDate().isBefore(to))) {
-                results.add(user);
-            }
+    }
+
+    @Override
+    public UserPage searchUsers(LocalDate from, LocalDate to, String cursor, int limit) {
+        long start = metrics.start();
+        try {
+            checkDateRange(from, to);
+            checkLimit(limit);
+            return page(userRepository.findByBirthDateBetween(from, to, afterCursor(cursor)).iterator(), limit);
+        } finally {
+            metrics.record(Operation.SEARCH_USERS_PAGE, start);
+        }
+    }
+
+    @Override
+    public List<User> searchUsers(LocalDate from, LocalDate to, UserFilter filter) {
+        long start = metrics.start();
+        try {
+            checkDateRange(from, to);
+            List<User> users = new ArrayList<>();
+            userRepository.findByFilter(from, to, filter, null).forEach(users::add);
+            return users;
+        } finally {
+            metrics.record(Operation.FILTER_USERS, start);
+        }
+    }
+
+    @Override
+    public UserPage searchUsers(LocalDate from, LocalDate to, UserFilter filter, String cursor, int limit) {
+        long start = metrics.start();
+        try {
+            checkDateRange(from, to);
+            checkLimit(limit);
+            return page(userRepository.findByFilter(from, to, filter, afterCursor(cursor)).iterator(), limit);
+        } finally {
+            metrics.record(Operation.FILTER_USERS_PAGE, start);
+        }
+    }
+
+    @Override
+    public Stream<User> streamUsers(LocalDate from, LocalDate to) {
+        long start = metrics.start();
+        try {
+            checkDateRange(from, to);
+            return userRepository.findByBirthDateBetween(from, to).stream();
+        } finally {
+            metrics.record(Operation.STREAM_USERS, start);
         }
-        return results;
     }
 
     @Override
     public User getByEmail(String email) {
-        int index = userRepository.getUsers().indexOf(getUserByEmail(email));
-        return userRepository.getUsers().get(index);
+        long start = metrics.start();
+        try {
+            return getUserByEmail(email);
+        } finally {
+            metrics.record(Operation.GET_BY_EMAIL, start);
+        }
+    }
+
+    @Override
+    public List<BatchItemResult> createUsers(List<User> users, boolean upsert) {
+        long start = metrics.start();
+        try {
+            checkBatchSize(users.size());
+            BatchItemResult[] results = new BatchItemResult[users.size()];
+            for (int i = 0; i < users.size(); i++) {
+                ValidationResult validation = validatorService.validate(users.get(i));
+                if (!validation.isValid()) {
+                    results[i] = BatchItemResult.failed(i, emailOf(users.get(i)), validation.getMessage());
+                }
+            }
+            userRepository.inBatch(() -> {
+                for (int i = 0; i < results.length; i++) {
+                    if (results[i] != null) {
+                        continue;
+                    }
+                    User user = users.get(i);
+                    if (upsert) {
+                        userRepository.save(user);
+                    } else if (userRepository.insertIfAbsent(user) == null) {
+                        results[i] = BatchItemResult.failed(i, user.getEmail(),
+                                new UserAlreadyExistsException(user.getEmail()));
+                        continue;
+                    }
+                    results[i] = BatchItemResult.succeeded(i, user.getEmail());
+                }
+                return null;
+            });
+            return List.of(results);
+        } finally {
+            metrics.record(Operation.CREATE_USERS, start);
+        }
+    }
+
+    @Override
+    public List<BatchItemResult> deleteUsers(List<String> emails) {
+        long start = metrics.start();
+        try {
+            checkBatchSize(emails.size());
+            BatchItemResult[] results = new BatchItemResult[emails.size()];
+            userRepository.inBatch(() -> {
+                for (int i = 0; i < results.length; i++) {
+                    String email = emails.get(i);
+                    results[i] = userRepository.remove(email) != null
+                            ? BatchItemResult.succeeded(i, email)
+                            : BatchItemResult.failed(i, email, userNotFound(email));
+                }
+                return null;
+            });
+            return List.of(results);
+        } finally {
+            metrics.record(Operation.DELETE_USERS, start);
+        }
+    }
+
+    @Override
+    public long modificationCount() {
+        return userRepository.modificationCount();
+    }
+
+    @Override
+    public long modificationEpoch() {
+        return userRepository.modificationEpoch();
+    }
+
+    private User applyPatch(User existingUser, Map<String, String> updates) {
+        User.UserBuilder patchedUser = existingUser.toBuilder();
+
+        for (String key : updates.keySet()) {
+            switch (key) {
+                case "firstName" -> patchedUser.firstName(updates.get(key));
+                case "lastName" -> patchedUser.lastName(updates.get(key));
+                case "birthDate" -> patchedUser.birthDate(parseBirthDate(updates.get(key)));
+                case "address" -> patchedUser.address(updates.get(key));
+                case "phoneNumber" -> patchedUser.phoneNumber(updates.get(key));
+                default -> log.info("User field: {} doesn't exist", key);
+            }
+        }
+        return patchedUser.build();
     }
 
-    private void checkEmailIsAlreadyExisted(String email) {
-        if (userRepository.getUsers().stream()
-                .anyMatch(u -> u.getEmail().equals(email))) {
-            throw new IllegalArgumentException("User already exist, email:" + email);
+    private LocalDate parseBirthDate(String birthDate) {
+        try {
+            return LocalDate.parse(birthDate);
+        } catch (DateTimeParseException e) {
+            throw new UserValidationException(ValidationErrorCode.BIRTH_DATE_INVALID);
+        }
+    }
+
+    /**
+     * The first {@code limit} matches, with the cursor of the next page if there are more.
+     */
+    private UserPage page(Iterator<User> matches, int limit) {
+        List<User> users = new ArrayList<>(Math.min(limit, 64));
+        while (users.size() < limit && matches.hasNext()) {
+            users.add(matches.next());
+        }
+        String nextCursor = matches.hasNext()
+                ? UserRepository.birthDateKey(users.get(users.size() - 1)).toCursor()
+                : null;
+        return new UserPage(users, nextCursor);
+    }
+
+    private BirthDateKey afterCursor(String cursor) {
+        return cursor == null || cursor.isEmpty() ? null : BirthDateKey.fromCursor(cursor);
+    }
+
+    private void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidRequestException(RequestErrorCode.LIMIT_OUT_OF_RANGE, MAX_PAGE_SIZE);
+        }
+    }
+
+    private void checkBatchSize(int size) {
+        if (size > MAX_BATCH_SIZE) {
+            throw new InvalidRequestException(RequestErrorCode.BATCH_TOO_LARGE, MAX_BATCH_SIZE);
+        }
+    }
+
+    private String emailOf(User user) {
+        return user != null ? user.getEmail() : null;
+    }
+
+    private void checkDateRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new InvalidRequestException(RequestErrorCode.DATE_RANGE_INVALID);
         }
     }
 
     private User getUserByEmail(String email) {
-        return userRepository.getUsers().stream()
-                .filter(u -> u.getEmail().equals(email))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("User not found, email: " + email));
+        return userRepository.findByEmail(email)
+                .orElseThrow(() -> userNotFound(email));
+    }
+
+    private UserNotFoundException userNotFound(String email) {
+        return new UserNotFoundException(email);
     }
 }
@@ -1,60 +1,201 @@
 package com.clear.solutions.service;
 
+import java.time.Clock;
 import java.time.LocalDate;
-import java.util.regex.Matcher;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 import com.clear.solutions.exception.UserValidationException;
+import com.clear.solutions.exception.ValidationErrorCode;
+import com.clear.solutions.metrics.UserMetrics;
+import com.clear.solutions.metrics.UserMetrics.Check;
 import com.clear.solutions.model.User;
+import com.clear.solutions.persistence.UserRecordCodec;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class UserValidatorService {
+    /**
+     * Reference definition of a valid email; validation itself runs through {@link EmailAddressValidator}.
+     */
     public static final Pattern VALID_EMAIL_ADDRESS_REGEX =
             Pattern.compile("^[A-Z0-9._%+-]+@[A-Z0-9.-]+\\.[A-Z]{2,6}$",
                     Pattern.CASE_INSENSITIVE);
 
+    private static final Map<ValidationErrorCode, UserValidationException> VIOLATIONS =
+            new EnumMap<>(ValidationErrorCode.class);
+
+    static {
+        for (ValidationErrorCode code : ValidationErrorCode.values()) {
+            if (code != ValidationErrorCode.UNDER_AGE) {
+                VIOLATIONS.put(code, new UserValidationException(code));
+            }
+        }
+    }
+
+    private final Clock clock;
+    private final AtomicReference<AgeLimits> ageLimits = new AtomicReference<>();
+    private UserMetrics metrics = UserMetrics.NOOP;
+
+    public UserValidatorService() {
+        this(Clock.systemDefaultZone());
+    }
+
+    @Autowired(required = false)
+    public UserValidatorService(Clock clock) {
+        this.clock = clock;
+        ageLimits.set(ageLimits(0, null));
+    }
+
+    public int getMinAge() {
+        return ageLimits.get().minAge();
+    }
+
+    /**
+     * Applies a new minimum age, also when {@code user.minAge} is reloaded at runtime.
+     */
     @Value("${user.minAge}")
-    public int minAge;
+    public void setMinAge(int minAge) {
+        ageLimits.set(ageLimits(minAge, null));
+    }
+
+    @Autowired(required = false)
+    public void setMetrics(UserMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Checks every rule and reports all violations without throwing.
+     */
+    public ValidationResult validate(User user) {
+        long start = metrics.start();
+        ValidationResult result;
+        if (user == null) {
+            result = ValidationResult.of(violation(ValidationErrorCode.USER_NULL));
+        } else {
+            result = ValidationResult.VALID
+                    .and(emailViolation(user.getEmail()))
+                    .and(nameViolation(user))
+                    .and(ageViolation(user.getBirthDate()));
+        }
+        if (!result.isValid()) {
+            for (UserValidationException violation : result.getViolations()) {
+                metrics.countViolation(violation.getCode());
+            }
+        }
+        metrics.record(Check.VALIDATE, start);
+        return result;
+    }
 
+    /**
+     * @throws UserValidationException with the first violated rule
+     */
     public void validateUser(User user) {
+        long start = metrics.start();
+        UserValidationException violation;
         if (user == null) {
-            throw new UserValidationException("User is null");
+            violation = violation(ValidationErrorCode.USER_NULL);
+        } else {
+            violation = emailViolation(user.getEmail());
+            if (violation == null) {
+                violation = nameViolation(user);
+            }
+            if (violation == null) {
+                violation = ageViolation(user.getBirthDate());
+            }
         }
-        validateEmail(user.getEmail());
-        validateName(user);
-        validateAge(user.getBirthDate());
+        finish(Check.VALIDATE_USER, start, violation);
     }
 
     public void validateEmail(String email) {
-        if (email == null || email.isEmpty()) {
-            throw new UserValidationException("Email is null or empty");
+        long start = metrics.start();
+        finish(Check.VALIDATE_EMAIL, start, emailViolation(email));
+    }
+
+    private void finish(Check check, long start, UserValidationException violation) {
+        if (violation != null) {
+            metrics.countViolation(violation.getCode());
+        }
+        metrics.record(check, start);
+        if (violation != null) {
+            throw violation;
         }
+    }
 
-        Matcher matcher = VALID_EMAIL_ADDRESS_REGEX.matcher(email);
-        if (!matcher.matches()) {
-            throw new UserValidationException("Email format is invalid");
+    private UserValidationException emailViolation(String email) {
+        if (email == null || email.isEmpty()) {
+            return violation(ValidationErrorCode.EMAIL_EMPTY);
         }
+        if (!EmailAddressValidator.isValid(email)) {
+            return violation(ValidationErrorCode.EMAIL_INVALID);
+        }
+        return null;
     }
 
-    private void validateName(User user) {
+    private UserValidationException nameViolation(User user) {
         if (isNullOrEmpty(user.getFirstName())
                 || isNullOrEmpty(user.getLastName())) {
-            throw new UserValidationException("First name or last name is null or empty");
+            return violation(ValidationErrorCode.NAME_EMPTY);
+        }
+        return null;
+    }
+
+    private UserValidationException ageViolation(LocalDate birthDate) {
+        if (birthDate == null) {
+            return violation(ValidationErrorCode.BIRTH_DATE_INVALID);
+        }
+        AgeLimits limits = currentAgeLimits();
+        long birthDay = birthDate.toEpochDay();
+        // stores keep birth dates as int epoch days, the earliest of which is millions of years ago
+        if (birthDay > limits.today() || birthDay < UserRecordCodec.MIN_EPOCH_DAY) {
+            return violation(ValidationErrorCode.BIRTH_DATE_INVALID);
         }
+        if (birthDay > limits.latestAllowedBirthDay()) {
+            return limits.underAge();
+        }
+        return null;
     }
 
-    private void validateAge(LocalDate birthDate) {
-        if (birthDate == null || LocalDate.now().isBefore(birthDate)) {
-            throw new UserValidationException("Birth date is invalid.");
+    private UserValidationException violation(ValidationErrorCode code) {
+        return VIOLATIONS.get(code);
+    }
+
+    /**
+     * Refreshes the limits once the day they were computed for is over. The swap only succeeds if
+     * the minimum age hasn't been changed meanwhile, so a stale day never overwrites a new minimum age.
+     */
+    private AgeLimits currentAgeLimits() {
+        AgeLimits limits = ageLimits.get();
+        if (clock.millis() < limits.expiresAtMillis()) {
+            return limits;
         }
+        ageLimits.compareAndSet(limits, ageLimits(limits.minAge(), limits.underAge()));
+        return ageLimits.get();
+    }
 
-        if (LocalDate.now().minusYears(minAge).isBefore(birthDate)) {
-            throw new UserValidationException("User is less then " + minAge + " years");
+    private AgeLimits ageLimits(int minAge, UserValidationException underAge) {
+        LocalDate today = LocalDate.now(clock);
+        if (underAge == null) {
+            ValidationErrorCode code = ValidationErrorCode.UNDER_AGE;
+            underAge = new UserValidationException(code, String.format(code.getMessage(), minAge));
         }
+        return new AgeLimits(minAge, today.toEpochDay(), today.minusYears(minAge).toEpochDay(),
+                today.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli(), underAge);
     }
 
     private boolean isNullOrEmpty(String value) {
         return value == null || value.isEmpty();
     }
+
+    /**
+     * Age checks precomputed for one day: birth dates after {@code today} are invalid and birth dates
+     * after {@code latestAllowedBirthDay} are under age. Valid until {@code expiresAtMillis}, the next
+     * midnight in the clock's zone.
+     */
+    private record AgeLimits(int minAge, long today, long latestAllowedBirthDay, long expiresAtMillis,
+                             UserValidationException underAge) {
+    }
 }
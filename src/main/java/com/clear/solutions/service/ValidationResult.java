@@ -0,0 +1,58 @@
+package com.clear.solutions.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import com.clear.solutions.exception.UserValidationException;
+
+/**
+ * Every rule a user violates, in the order the rules are checked. A valid result is a shared
+ * constant, so validating a correct user allocates nothing.
+ */
+public final class ValidationResult {
+    public static final ValidationResult VALID = new ValidationResult(List.of());
+
+    private final List<UserValidationException> violations;
+
+    private ValidationResult(List<UserValidationException> violations) {
+        this.violations = violations;
+    }
+
+    public static ValidationResult of(UserValidationException violation) {
+        return new ValidationResult(List.of(violation));
+    }
+
+    /**
+     * @return this result with {@code violation} added, or this result if {@code violation} is {@code null}
+     */
+    public ValidationResult and(UserValidationException violation) {
+        if (violation == null) {
+            return this;
+        }
+        List<UserValidationException> combined = new ArrayList<>(violations.size() + 1);
+        combined.addAll(violations);
+        combined.add(violation);
+        return new ValidationResult(Collections.unmodifiableList(combined));
+    }
+
+    public boolean isValid() {
+        return violations.isEmpty();
+    }
+
+    public List<UserValidationException> getViolations() {
+        return violations;
+    }
+
+    /**
+     * @return the messages of all violations, separated by {@code "; "}
+     */
+    public String getMessage() {
+        return violations.stream().map(UserValidationException::getMessage).collect(Collectors.joining("; "));
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "ValidationResult[valid]" : "ValidationResult[" + getMessage() + "]";
+    }
+}
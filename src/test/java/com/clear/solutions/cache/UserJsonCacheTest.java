@@ -0,0 +1,105 @@
+package com.clear.solutions.cache;
+
+import static com.clear.solutions.util.UserTestUtils.buildDefaultUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.clear.solutions.model.User;
+import com.clear.solutions.repository.InMemoryUserRepository;
+import com.clear.solutions.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UserJsonCacheTest {
+    private final UserRepository userRepository = new InMemoryUserRepository();
+    private final AtomicInteger loads = new AtomicInteger();
+    private UserJsonCache userJsonCache;
+
+    @BeforeEach
+    void setUp() {
+        userJsonCache = new UserJsonCache(userRepository, 1 << 20);
+        userJsonCache.start();
+        userRepository.insertIfAbsent(buildDefaultUser());
+    }
+
+    @Test
+    public void get_afterRepositoryChange_shouldReloadUser() {
+        //given
+        String email = buildDefaultUser().getEmail();
+        get(email);
+        get(email);
+        //when
+        userRepository.update(email, user -> user.withFirstName("Alice"));
+        //then
+        assertTrue(get(email).contains("\"firstName\":\"Alice\""));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void get_afterReKey_shouldInvalidateBothEmails() {
+        //given
+        User user = buildDefaultUser();
+        User renamed = user.withEmail("renamed@email.com");
+        get(user.getEmail());
+        //when
+        userRepository.replace(user.getEmail(), renamed);
+        //then
+        assertThrows(RuntimeException.class, () -> get(user.getEmail()));
+        assertTrue(get(renamed.getEmail()).contains("renamed@email.com"));
+    }
+
+    @Test
+    public void get_missingUser_shouldNotCacheFailure() {
+        //when
+        assertThrows(RuntimeException.class, () -> get("missing@email.com"));
+        userRepository.insertIfAbsent(buildDefaultUser().withEmail("missing@email.com"));
+        //then
+        assertTrue(get("missing@email.com").contains("missing@email.com"));
+    }
+
+    @Test
+    public void get_afterClear_shouldNotServeClearedUser() {
+        //given
+        String email = buildDefaultUser().getEmail();
+        get(email);
+        //when
+        userRepository.clear();
+        //then
+        assertThrows(RuntimeException.class, () -> get(email));
+    }
+
+    @Test
+    public void get_afterRestore_shouldReloadUser() {
+        //given
+        User user = buildDefaultUser();
+        get(user.getEmail());
+        //when
+        userRepository.restore(user.withFirstName("Alice").withVersion(user.getVersion() + 1));
+        //then
+        assertTrue(get(user.getEmail()).contains("\"firstName\":\"Alice\""));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void get_afterRestoredRemoval_shouldNotServeRemovedUser() {
+        //given
+        String email = buildDefaultUser().getEmail();
+        get(email);
+        //when
+        userRepository.restoreRemoval(email);
+        //then
+        assertThrows(RuntimeException.class, () -> get(email));
+    }
+
+    private String get(String email) {
+        UserJson user = userJsonCache.get(email, () -> {
+            loads.incrementAndGet();
+            return userRepository.findByEmail(email)
+                    .orElseThrow(() -> new RuntimeException("User not found, email: " + email));
+        });
+        return new String(user.json(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,127 @@
+package com.clear.solutions.changes;
+
+import static com.clear.solutions.util.UserTestUtils.buildDefaultUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import com.clear.solutions.exception.ChangesExpiredException;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserChangeEvent;
+import com.clear.solutions.model.UserChangeEvent.Type;
+import com.clear.solutions.repository.InMemoryUserRepository;
+import com.clear.solutions.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UserChangeLogTest {
+    private static final int CAPACITY = 16;
+
+    private final UserRepository userRepository = new InMemoryUserRepository();
+    private UserChangeLog changeLog;
+
+    @BeforeEach
+    void setUp() {
+        changeLog = new UserChangeLog(userRepository, CAPACITY, 10);
+        changeLog.start();
+    }
+
+    @Test
+    public void poll_shouldReturnChangesInSequenceOrder() {
+        //given
+        User user = buildDefaultUser();
+        UserChangeLog.Cursor cursor = changeLog.follow(0L);
+        //when
+        userRepository.insertIfAbsent(user);
+        userRepository.update(user.getEmail(), current -> current.withFirstName("Alice"));
+        userRepository.replace(user.getEmail(), user.withEmail("moved@email.com"));
+        userRepository.remove("moved@email.com");
+        List<UserChangeEvent> events = cursor.poll();
+        //then
+        assertEquals(List.of(Type.CREATED, Type.UPDATED, Type.DELETED, Type.CREATED, Type.DELETED),
+                events.stream().map(UserChangeEvent::getType).toList());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), events.stream().map(UserChangeEvent::getSequence).toList());
+        assertEquals("Alice", events.get(1).getUser().getFirstName());
+        assertEquals(user.getEmail(), events.get(2).getEmail());
+        assertNull(events.get(2).getUser());
+        assertEquals("moved@email.com", events.get(3).getEmail());
+        assertEquals(5, cursor.position());
+        assertTrue(cursor.poll().isEmpty());
+    }
+
+    @Test
+    public void follow_withoutSince_shouldStartAtTheCurrentChange() {
+        //given
+        userRepository.insertIfAbsent(buildDefaultUser());
+        //when
+        UserChangeLog.Cursor cursor = changeLog.follow(null);
+        userRepository.remove(buildDefaultUser().getEmail());
+        //then
+        assertEquals(List.of(2L), cursor.poll().stream().map(UserChangeEvent::getSequence).toList());
+    }
+
+    @Test
+    public void follow_sinceNoLongerBufferedOrAhead_shouldRequireResync() {
+        //given
+        for (int i = 0; i < CAPACITY + 2; i++) {
+            userRepository.insertIfAbsent(buildDefaultUser().withEmail("user" + i + "@email.com"));
+        }
+        //then
+        ChangesExpiredException expired = assertThrows(ChangesExpiredException.class, () -> changeLog.follow(1L));
+        assertEquals(CAPACITY + 2, expired.getLastSequence());
+        assertThrows(ChangesExpiredException.class, () -> changeLog.follow(CAPACITY + 3L));
+        assertEquals(CAPACITY, changeLog.follow(2L).poll().size());
+    }
+
+    @Test
+    public void poll_consumerLappedByWriters_shouldRequireResync() {
+        //given
+        UserChangeLog.Cursor cursor = changeLog.follow(null);
+        //when
+        for (int i = 0; i < CAPACITY + 1; i++) {
+            userRepository.insertIfAbsent(buildDefaultUser().withEmail("user" + i + "@email.com"));
+        }
+        //then
+        assertThrows(ChangesExpiredException.class, cursor::poll);
+    }
+
+    @Test
+    public void poll_concurrentWriters_shouldSeeEveryChangeOnce() throws Exception {
+        //given
+        changeLog = new UserChangeLog(userRepository, 1 << 16, 10);
+        changeLog.start();
+        UserChangeLog.Cursor cursor = changeLog.follow(null);
+        long first = cursor.position() + 1;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        //when
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < 8; w++) {
+            int writer = w;
+            writers.add(executor.submit(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    userRepository.save(buildDefaultUser().withEmail("user" + writer + "-" + i + "@email.com"));
+                }
+            }));
+        }
+        List<UserChangeEvent> events = new ArrayList<>();
+        while (events.size() < 8_000) {
+            events.addAll(cursor.poll());
+        }
+        for (Future<?> writer : writers) {
+            writer.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        //then
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(first + i, events.get(i).getSequence());
+        }
+        assertEquals(8_000, events.stream().map(UserChangeEvent::getEmail).distinct().count());
+    }
+}
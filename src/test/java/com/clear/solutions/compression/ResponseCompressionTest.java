@@ -0,0 +1,99 @@
+package com.clear.solutions.compression;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import com.clear.solutions.compression.ResponseCompression.Decision;
+import org.junit.jupiter.api.Test;
+
+class ResponseCompressionTest {
+    private final ResponseCompression compression = new ResponseCompression(6, 1024,
+            new String[]{"application/json", " application/x-ndjson"});
+
+    @Test
+    public void accepts_shouldHonourGzipAndWildcardQualities() {
+        //then
+        assertTrue(compression.accepts("gzip, deflate, br"));
+        assertTrue(compression.accepts("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(compression.accepts("*"));
+        assertFalse(compression.accepts(null));
+        assertFalse(compression.accepts("identity"));
+        assertFalse(compression.accepts("gzip;q=0"));
+        assertFalse(compression.accepts("gzip;q=0.0, *"));
+        assertFalse(compression.accepts("*;q=0"));
+    }
+
+    @Test
+    public void isCompressible_shouldMatchConfiguredTypesIgnoringParameters() {
+        //then
+        assertTrue(compression.isCompressible("application/json"));
+        assertTrue(compression.isCompressible("application/json;charset=UTF-8"));
+        assertTrue(compression.isCompressible("application/x-ndjson"));
+        assertFalse(compression.isCompressible("text/event-stream"));
+        assertFalse(compression.isCompressible("application/cbor"));
+        assertFalse(compression.isCompressible("not a type"));
+        assertFalse(compression.isCompressible(null));
+    }
+
+    @Test
+    public void decide_shouldCompressOnlyCompressibleBodiesOfMinimumSize() {
+        //then
+        assertEquals(Decision.GZIP, compression.decide("application/json", null, 1024, 0));
+        assertEquals(Decision.IDENTITY, compression.decide("application/json", null, 1023, 0));
+        assertEquals(Decision.UNDECIDED, compression.decide("application/json", null, -1, 1023));
+        assertEquals(Decision.GZIP, compression.decide("application/json", null, -1, 1024));
+        assertEquals(Decision.IDENTITY, compression.decide("application/json", "br", -1, 4096));
+        assertEquals(Decision.IDENTITY, compression.decide("text/event-stream", null, -1, 0));
+        assertEquals(Decision.IDENTITY, compression.decide(null, null, 4096, 4096));
+    }
+
+    @Test
+    public void gzipETag_shouldSuffixStrongTagsAndBeUndoneOnConditions() {
+        //then
+        assertEquals("\"5-gzip\"", compression.gzipETag("\"5\""));
+        assertEquals("W/\"5\"", compression.gzipETag("W/\"5\""));
+        assertEquals(null, compression.gzipETag(null));
+        assertEquals("\"5\", \"6\", *", compression.identityETags("\"5-gzip\", \"6\", *"));
+        assertTrue(compression.namesGzipETag("\"4\", \"5-gzip\"", "\"5\""));
+        assertFalse(compression.namesGzipETag("\"5\"", "\"5\""));
+        assertFalse(compression.namesGzipETag("W/\"5\"", "W/\"5\""));
+        assertFalse(compression.namesGzipETag(null, "\"5\""));
+    }
+
+    @Test
+    public void constructor_levelOutOfRange_shouldThrow() {
+        //then
+        assertThrows(IllegalArgumentException.class, () -> new ResponseCompression(0, 0, new String[0]));
+        assertThrows(IllegalArgumentException.class, () -> new ResponseCompression(10, 0, new String[0]));
+        assertThrows(IllegalArgumentException.class, () -> new ResponseCompression(1, -1, new String[0]));
+    }
+
+    @Test
+    public void gzip_flush_shouldEmitEverythingWrittenSoFar() throws IOException {
+        //given
+        byte[] line = "{\"email\":\"email@email.com\"}\n".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = compression.gzip(out);
+        //when
+        gzip.write(line);
+        gzip.flush();
+        byte[] flushed = out.toByteArray();
+        gzip.write(line);
+        gzip.finish();
+        //then
+        byte[] partial = new byte[line.length];
+        new GZIPInputStream(new ByteArrayInputStream(flushed)).readNBytes(partial, 0, partial.length);
+        assertArrayEquals(line, partial);
+        byte[] whole = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes();
+        assertEquals(new String(line, StandardCharsets.UTF_8).repeat(2), new String(whole, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,796 @@
+package com.clear.solutions.controller;
+
+import static com.clear.solutions.util.UserTestUtils.buildDefaultUser;
+import static com.clear.solutions.util.UserTestUtils.buildUserWithUpdates;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_CBOR;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import com.clear.solutions.cache.UserJsonCache;
+import com.clear.solutions.exception.InvalidRequestException;
+import com.clear.solutions.exception.RequestErrorCode;
+import com.clear.solutions.exception.UserNotFoundException;
+import com.clear.solutions.exception.UserValidationException;
+import com.clear.solutions.exception.ValidationErrorCode;
+import com.clear.solutions.exception.VersionMismatchException;
+import com.clear.solutions.model.BatchItemResult;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import com.clear.solutions.model.UserPage;
+import com.clear.solutions.repository.UserRepository;
+import com.clear.solutions.service.UserService;
+import com.clear.solutions.service.UserValidatorService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * The {@code /users} contract, run against both web stacks by the subclasses.
+ */
+abstract class AbstractUserControllerIntegrationTest {
+    private static final String NOT_EXISTING_EMAIL = "notExistingEmail";
+    private static final ObjectMapper CBOR_MAPPER = new ObjectMapper(new CBORFactory())
+            .registerModule(new JavaTimeModule());
+    private static final ObjectMapper SMILE_MAPPER = new ObjectMapper(new SmileFactory())
+            .registerModule(new JavaTimeModule());
+    @Autowired
+    private UserJsonCache userJsonCache;
+    @MockBean
+    protected UserService userService;
+    @MockBean
+    protected UserValidatorService validatorService;
+    @MockBean
+    private UserRepository userRepository;
+
+    private WebTestClient client;
+
+    protected abstract WebTestClient createClient();
+
+    @BeforeEach
+    void setUp() {
+        client = createClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userJsonCache.invalidateAll();
+    }
+
+    @Test
+    void test_createUser_validInput() throws Exception {
+        //given
+        User user = buildDefaultUser();
+        String jsonUser = mapUserToJson(user);
+        //when
+        when(userService.createUser(any(User.class))).thenReturn(user);
+        //then
+        client.post().uri("/users")
+                .contentType(APPLICATION_JSON)
+                .bodyValue(jsonUser)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.firstName").isEqualTo(user.getFirstName());
+    }
+
+    @Test
+    void test_createUser_invalidInput_wrongEmail() throws Exception {
+        //given
+        User user = buildDefaultUser().withEmail(NOT_EXISTING_EMAIL);
+        String jsonUser = mapUserToJson(user);
+        //when
+        doThrow(new UserValidationException(ValidationErrorCode.EMAIL_INVALID))
+                .when(validatorService).validateUser(any(User.class));
+        //then
+        client.post().uri("/users")
+                .contentType(APPLICATION_JSON)
+                .bodyValue(jsonUser)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void test_createUser_malformedJson_shouldReturnBadRequest() {
+        //then
+        client.post().uri("/users")
+                .contentType(APPLICATION_JSON)
+                .bodyValue("{\"email\": \"email@email.com\", \"birthDate\": \"2000-13-40\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    public void test_getUser_validInput() {
+        //given
+        User user = buildDefaultUser();
+        String email = user.getEmail();
+        //when
+        when(userService.getByEmail(anyString())).thenReturn(user);
+        //then
+        client.get().uri("/users/" + email)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.email").isEqualTo(email)
+                .jsonPath("$.firstName").isEqualTo("Bob")
+                .jsonPath("$.lastName").isEqualTo("Doe");
+    }
+
+    @Test
+    void test_createUser_smile_shouldReadAndRespondWithSmile() throws Exception {
+        //given
+        User user = buildDefaultUser();
+        when(userService.createUser(any(User.class))).thenReturn(user);
+        //when
+        byte[] body = client.post().uri("/users")
+                .contentType(BinaryFormats.APPLICATION_SMILE)
+                .accept(BinaryFormats.APPLICATION_SMILE)
+                .bodyValue(SMILE_MAPPER.writeValueAsBytes(user))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(BinaryFormats.APPLICATION_SMILE)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        //then
+        verify(userService).createUser(user);
+        assertEquals(user.getFirstName(), SMILE_MAPPER.readTree(body).get("firstName").asText());
+    }
+
+    @Test
+    public void test_getUser_preferringCbor_shouldRespondWithCborAndETag() throws Exception {
+        //given
+        User user = buildDefaultUser().withVersion(5);
+        when(userService.getByEmail(anyString())).thenReturn(user);
+        //when
+        byte[] body = client.get().uri("/users/" + user.getEmail())
+                .header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/cbor")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_CBOR)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"5-cbor\"")
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        //then
+        assertEquals(user.getEmail(), CBOR_MAPPER.readTree(body).get("email").asText());
+        client.get().uri("/users/" + user.getEmail())
+                .accept(APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"5-cbor\"")
+                .exchange()
+                .expectStatus().isNotModified();
+        client.get().uri("/users/" + user.getEmail())
+                .accept(APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"5\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_CBOR);
+        client.get().uri("/users/" + user.getEmail())
+                .accept(BinaryFormats.APPLICATION_SMILE)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"5-cbor\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"5-x-jackson-smile\"");
+    }
+
+    @Test
+    public void test_getUser_repeatedRequests_shouldServeCachedJsonUntilUserChanges() {
+        //given
+        User user = buildDefaultUser();
+        String email = user.getEmail();
+        when(userService.getByEmail(anyString())).thenReturn(user);
+        long hitsBefore = (long) userJsonCache.stats().get("hits");
+        //when
+        client.get().uri("/users/" + email).exchange();
+        client.get().uri("/users/" + email.toUpperCase())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.email").isEqualTo(email);
+        userJsonCache.onChange(user, user.withFirstName("Alice"));
+        when(userService.getByEmail(anyString())).thenReturn(user.withFirstName("Alice"));
+        //then
+        client.get().uri("/users/" + email)
+                .exchange()
+                .expectBody().jsonPath("$.firstName").isEqualTo("Alice");
+        verify(userService, times(2)).getByEmail(anyString());
+        assertEquals(hitsBefore + 1, userJsonCache.stats().get("hits"));
+        client.get().uri("/users/cache/stats")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.evictions").isNumber();
+    }
+
+    @Test
+    public void test_getUser_matchingIfNoneMatch_shouldReturnNotModified() {
+        //given
+        User user = buildDefaultUser().withVersion(7);
+        String email = user.getEmail();
+        when(userService.getByEmail(anyString())).thenReturn(user);
+        //when
+        client.get().uri("/users/" + email)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"7\"")
+                .expectBody().jsonPath("$.version").isEqualTo(7);
+        //then
+        client.get().uri("/users/" + email)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"7\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"7\"")
+                .expectBody().isEmpty();
+        client.get().uri("/users/" + email)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"6\"")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void test_getUser_invalidInput_userWithSuchEmailNotExist() {
+        //given
+        String email = NOT_EXISTING_EMAIL;
+        //when
+        when(userService.getByEmail(anyString()))
+                .thenThrow(new UserNotFoundException(email));
+        //then
+        client.get().uri("/users/" + email)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void test_getUser_unexpectedFailure_shouldReturnServerError() {
+        //given
+        String email = NOT_EXISTING_EMAIL;
+        //when
+        when(userService.getByEmail(anyString()))
+                .thenThrow(new IllegalStateException("User not found in a broken store"));
+        //then
+        client.get().uri("/users/" + email)
+                .exchange()
+                .expectStatus().is5xxServerError()
+                .expectBody(String.class).value(containsString("An unexpected error occurred"));
+    }
+
+    @Test
+    public void test_getUser_malformedAccept_shouldReturnBadRequest() {
+        //given
+        User user = buildDefaultUser();
+        when(userService.getByEmail(anyString())).thenReturn(user);
+        //then
+        client.get().uri("/users/" + user.getEmail())
+                .header(HttpHeaders.ACCEPT, "application/cbor;q=")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void test_searchUsers_malformedDate_shouldReturnBadRequest() {
+        //then
+        client.get().uri("/users/search?from=yesterday")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void test_updateUser_validInput() throws Exception {
+        //given
+        User user = buildDefaultUser();
+        String email = user.getEmail();
+        String jsonUser = mapUserToJson(user);
+        //when
+        when(userService.updateUser(anyString(), any(User.class), anyLong())).thenReturn(user);
+        //then
+        client.put().uri("/users/" + email)
+                .contentType(APPLICATION_JSON)
+                .bodyValue(jsonUser)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo(user.getFirstName())
+                .jsonPath("$.lastName").isEqualTo(user.getLastName());
+    }
+
+    @Test
+    public void test_updateUser_ifMatch_shouldPassExpectedVersionAndReturnNewETag() throws Exception {
+        //given
+        User user = buildDefaultUser();
+        String email = user.getEmail();
+        //when
+        when(userService.updateUser(anyString(), any(User.class), eq(4L))).thenReturn(user.withVersion(5));
+        //then
+        client.put().uri("/users/" + email)
+                .header(HttpHeaders.IF_MATCH, "\"4\"")
+                .contentType(APPLICATION_JSON)
+                .bodyValue(mapUserToJson(user))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"5\"");
+    }
+
+    @Test
+    public void test_updateUser_binaryIfMatch_shouldPassExpectedVersionAndTagTheFormat() throws Exception {
+        //given
+        User user = buildDefaultUser();
+        String email = user.getEmail();
+        //when
+        when(userService.updateUser(anyString(), any(User.class), eq(4L))).thenReturn(user.withVersion(5));
+        //then
+        client.put().uri("/users/" + email)
+                .header(HttpHeaders.IF_MATCH, "\"4-cbor\"")
+                .contentType(APPLICATION_CBOR)
+                .accept(APPLICATION_CBOR)
+                .bodyValue(CBOR_MAPPER.writeValueAsBytes(user))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_CBOR)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"5-cbor\"");
+    }
+
+    @Test
+    public void test_updateUser_staleIfMatch_shouldReturnPreconditionFailed() throws Exception {
+        //given
+        User user = buildDefaultUser();
+        String email = user.getEmail();
+        //when
+        when(userService.updateUser(anyString(), any(User.class), eq(4L)))
+                .thenThrow(new VersionMismatchException(email));
+        //then
+        client.put().uri("/users/" + email)
+                .header(HttpHeaders.IF_MATCH, "\"4\"")
+                .contentType(APPLICATION_JSON)
+                .bodyValue(mapUserToJson(user))
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        client.patch().uri("/users/" + email)
+                .header(HttpHeaders.IF_MATCH, "W/\"4\"")
+                .contentType(APPLICATION_JSON)
+                .bodyValue("{\"firstName\":\"Alice\"}")
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        verify(userService, never()).patchUser(anyString(), any(), anyLong());
+    }
+
+    @Test
+    public void test_updateUser_invalidInput_userIsNotAdult() throws Exception {
+        //given
+        User user = buildDefaultUser();
+        String email = user.getEmail();
+        String jsonUser = mapUserToJson(user);
+        //when
+        doThrow(new UserValidationException(ValidationErrorCode.UNDER_AGE, "User is less then 18 years"))
+                .when(validatorService).validateUser(any(User.class));
+        //then
+        client.put().uri("/users/" + email)
+                .contentType(APPLICATION_JSON)
+                .bodyValue(jsonUser)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void test_deleteUser_validInput() {
+        //given
+        User user = buildDefaultUser();
+        String email = user.getEmail();
+        //when
+        when(userService.deleteUser(email)).thenReturn(true);
+        //then
+        client.delete().uri("/users/" + email)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void test_deleteUser_invalidInput_userWithSuchEmailNotExist() {
+        //given
+        String email = NOT_EXISTING_EMAIL;
+        //when
+        doThrow(new UserNotFoundException(email))
+                .when(userService).deleteUser(anyString());
+        //then
+        client.delete().uri("/users/" + email)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).value(containsString("User not found"));
+    }
+
+    @Test
+    public void test_patchUser_validInput() throws Exception {
+        //given
+        User user = buildDefaultUser();
+        String email = user.getEmail();
+        Map<String, String> updates = new HashMap<>();
+        updates.put("firstName", "NewBob");
+        updates.put("lastName", "NewDoe");
+        String jsonUpdates = new ObjectMapper().writeValueAsString(updates);
+        //when
+        when(userService.patchUser(anyString(), any(), anyLong())).thenReturn(user);
+        //then
+        client.patch().uri("/users/" + email)
+                .contentType(APPLICATION_JSON)
+                .bodyValue(jsonUpdates)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo(user.getFirstName())
+                .jsonPath("$.lastName").isEqualTo(user.getLastName());
+    }
+
+    @Test
+    public void test_patchUser_invalidInput_emptyFirstName() throws Exception {
+        //given
+        User user = buildDefaultUser();
+        String email = user.getEmail();
+        String jsonUpdates = new ObjectMapper().writeValueAsString(Map.of("firstName", ""));
+        //when
+        when(userService.patchUser(anyString(), any(), anyLong()))
+                .thenThrow(new UserValidationException(ValidationErrorCode.NAME_EMPTY));
+        //then
+        client.patch().uri("/users/" + email)
+                .contentType(APPLICATION_JSON)
+                .bodyValue(jsonUpdates)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).value(containsString("First name or last name is null or empty"));
+    }
+
+    @Test
+    public void test_searchUsers_validInput() {
+        //given
+        givenSearchResults(List.of(buildDefaultUser()));
+        //then
+        client.get().uri("/users/search?from=1920-01-01&to=2030-01-01")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    public void test_searchUsers_acceptCbor_shouldRespondWithCbor() throws Exception {
+        //given
+        givenSearchResults(List.of(buildDefaultUser(), buildUserWithUpdates().withEmail("second@email.com")));
+        //when
+        byte[] body = client.get().uri("/users/search")
+                .accept(APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_CBOR)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        //then
+        JsonNode users = CBOR_MAPPER.readTree(body);
+        assertEquals(2, users.size());
+        assertEquals(buildDefaultUser().getEmail(), users.get(0).get("email").asText());
+        assertEquals("2010-10-10", users.get(1).get("birthDate").asText());
+    }
+
+    @Test
+    public void test_searchUsers_acceptGzip_largeResult_shouldRespondGzipped() throws Exception {
+        //given
+        List<User> users = IntStream.range(0, 50)
+                .mapToObj(i -> buildDefaultUser().withEmail(i + "@email.com"))
+                .toList();
+        givenSearchResults(users);
+        //when
+        byte[] body = client.get().uri("/users/search")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        //then
+        JsonNode json = new ObjectMapper().readTree(gunzip(body));
+        assertEquals(50, json.size());
+        assertEquals("49@email.com", json.get(49).get("email").asText());
+    }
+
+    @Test
+    public void test_searchUsers_acceptGzip_shouldTagGzipCodingApartAndMatchEitherTag() {
+        //given
+        when(userService.modificationCount()).thenReturn(42L);
+        givenSearchResults(IntStream.range(0, 50)
+                .mapToObj(i -> buildDefaultUser().withEmail(i + "@email.com"))
+                .toList());
+        //when
+        client.get().uri("/users/search")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"s0-42-gzip\"");
+        //then
+        client.get().uri("/users/search")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"s0-42-gzip\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"s0-42-gzip\"");
+        client.get().uri("/users/search")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"s0-42\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"s0-42\"");
+        client.get().uri("/users/search")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"s0-42\"");
+    }
+
+    @Test
+    public void test_streamUsers_acceptGzip_shouldRespondGzippedNdjson() throws Exception {
+        //given
+        User user = buildDefaultUser();
+        //when
+        when(userService.streamUsers(any(), any()))
+                .thenAnswer(invocation -> Stream.generate(() -> user).limit(50));
+        byte[] body = client.get().uri("/users/search/stream")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        //then
+        String ndjson = new String(gunzip(body), StandardCharsets.UTF_8);
+        assertEquals(50, ndjson.lines().count());
+    }
+
+    @Test
+    public void test_getUser_acceptGzip_smallBody_shouldRespondUncompressed() {
+        //given
+        User user = buildDefaultUser();
+        //when
+        when(userService.getByEmail(anyString())).thenReturn(user);
+        //then
+        client.get().uri("/users/" + user.getEmail())
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+                .expectBody()
+                .jsonPath("$.email").isEqualTo(user.getEmail());
+    }
+
+    @Test
+    public void test_searchUsers_withFilters_shouldSearchAttributeIndexes() {
+        //given
+        UserFilter filter = UserFilter.builder()
+                .emailDomain("email.com")
+                .lastNamePrefix("do")
+                .hasPhoneNumber(true)
+                .build();
+        //when
+        when(userService.searchUsers(isNull(), isNull(), eq(filter))).thenReturn(List.of(buildDefaultUser()));
+        when(userService.searchUsers(isNull(), isNull(), eq(filter), isNull(), eq(1)))
+                .thenReturn(new UserPage(List.of(buildDefaultUser()), "next-cursor"));
+        //then
+        client.get().uri("/users/search?emailDomain=email.com&lastNamePrefix=do&hasPhoneNumber=true")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].email").isEqualTo(buildDefaultUser().getEmail());
+        client.get().uri("/users/search?emailDomain=email.com&lastNamePrefix=do&hasPhoneNumber=true&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(UserController.NEXT_CURSOR_HEADER, "next-cursor")
+                .expectBody().jsonPath("$.length()").isEqualTo(1);
+        verify(userService, never()).searchUsers(any(), any());
+    }
+
+    @Test
+    public void test_searchUsers_invalidInput_fromBiggerThenTo() {
+        //then
+        client.get().uri("/users/search?from=2030-01-01&to=1920-01-01")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).value(containsString("From date must be before To date"));
+    }
+
+    @Test
+    public void test_searchUsers_withLimit_shouldReturnPageAndNextCursor() {
+        //given
+        User user = buildDefaultUser();
+        UserPage page = new UserPage(List.of(user), "next-cursor");
+        //when
+        when(userService.searchUsers(isNull(), isNull(), eq("cursor"), eq(1)))
+                .thenReturn(page);
+        //then
+        client.get().uri("/users/search?limit=1&cursor=cursor")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(UserController.NEXT_CURSOR_HEADER, "next-cursor")
+                .expectBody().jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    public void test_searchUsers_unchangedStore_shouldReturnNotModifiedWithoutSearching() {
+        //given
+        when(userService.modificationEpoch()).thenReturn(36L);
+        when(userService.modificationCount()).thenReturn(42L);
+        givenSearchResults(List.of(buildDefaultUser()));
+        //when
+        client.get().uri("/users/search")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"s10-42\"");
+        clearInvocations(userService);
+        client.get().uri("/users/search")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"s10-42\"")
+                .exchange()
+                .expectStatus().isNotModified();
+        //then
+        verify(userService, never()).searchUsers(any(), any());
+        verify(userService, never()).streamUsers(any(), any());
+        when(userService.modificationCount()).thenReturn(43L);
+        client.get().uri("/users/search")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"s10-42\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"s10-43\"");
+        when(userService.modificationEpoch()).thenReturn(37L);
+        client.get().uri("/users/search")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"s10-43\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"s11-43\"");
+    }
+
+    @Test
+    public void test_searchUsers_cachedJsonRevalidatedForCbor_shouldNotBeNotModified() {
+        //given
+        when(userService.modificationEpoch()).thenReturn(36L);
+        when(userService.modificationCount()).thenReturn(42L);
+        givenSearchResults(List.of(buildDefaultUser()));
+        //when
+        client.get().uri("/users/search")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"s10-42\"")
+                .expectHeader().value(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT));
+        //then
+        client.get().uri("/users/search")
+                .accept(APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"s10-42\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_CBOR)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"s10-42-cbor\"");
+        client.get().uri("/users/search")
+                .accept(APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"s10-42-cbor\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().value(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT));
+    }
+
+    @Test
+    public void test_searchUsers_invalidCursor_shouldReturnBadRequest() {
+        //when
+        when(userService.searchUsers(any(), any(), anyString(), anyInt()))
+                .thenThrow(new InvalidRequestException(RequestErrorCode.CURSOR_INVALID));
+        //then
+        client.get().uri("/users/search?cursor=broken")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).value(containsString("Cursor is invalid"));
+    }
+
+    @Test
+    public void test_streamUsers_shouldWriteNdjson() {
+        //given
+        User user = buildDefaultUser();
+        //when
+        when(userService.streamUsers(any(), any()))
+                .thenReturn(Stream.of(user, user));
+        //then
+        client.get().uri("/users/search/stream")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(UserController.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .value(matchesPattern("(\\{[^\\n]*\"firstName\":\"Bob\"[^\\n]*}\\n){2}"));
+    }
+
+    @Test
+    public void test_createUsers_shouldReturnResultPerItem() throws Exception {
+        //given
+        User user = buildDefaultUser();
+        String jsonUsers = "[" + mapUserToJson(user) + "]";
+        //when
+        when(userService.createUsers(any(), eq(false)))
+                .thenReturn(List.of(BatchItemResult.failed(0, user.getEmail(), "Email format is invalid")));
+        //then
+        client.post().uri("/users/batch")
+                .contentType(APPLICATION_JSON)
+                .bodyValue(jsonUsers)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].success").isEqualTo(false)
+                .jsonPath("$[0].error").isEqualTo("Email format is invalid");
+    }
+
+    @Test
+    public void test_deleteUsers_shouldReturnResultPerItem() {
+        //given
+        String email = buildDefaultUser().getEmail();
+        //when
+        when(userService.deleteUsers(List.of(email)))
+                .thenReturn(List.of(BatchItemResult.succeeded(0, email)));
+        //then
+        client.method(HttpMethod.DELETE).uri("/users/batch")
+                .contentType(APPLICATION_JSON)
+                .bodyValue("[\"" + email + "\"]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].success").isEqualTo(true)
+                .jsonPath("$[0].email").isEqualTo(email);
+    }
+
+    @Test
+    public void test_streamChanges_sinceNotBuffered_shouldRequireResync() {
+        //then
+        client.get().uri("/users/changes?since=42")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.GONE)
+                .expectBody(String.class).value(containsString("after sequence 0"));
+    }
+
+    /**
+     * Stubs both the list and the streaming search, which back the search of the servlet
+     * and the reactive stack respectively.
+     */
+    private void givenSearchResults(List<User> users) {
+        when(userService.searchUsers(any(), any())).thenReturn(users);
+        when(userService.streamUsers(any(), any())).thenAnswer(invocation -> users.stream());
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private String mapUserToJson(User user) throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule());
+        return objectMapper.writeValueAsString(user);
+    }
+}
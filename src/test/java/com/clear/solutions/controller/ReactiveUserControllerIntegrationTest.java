@@ -0,0 +1,25 @@
+package com.clear.solutions.controller;
+
+import com.clear.solutions.cache.UserJsonCache;
+import com.clear.solutions.changes.UserChangeLog;
+import com.clear.solutions.compression.ResponseCompression;
+import com.clear.solutions.config.BinaryFormatWebFluxConfiguration;
+import com.clear.solutions.config.UserJsonWebFluxConfiguration;
+import com.clear.solutions.service.ReactiveUserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@WebFluxTest(ReactiveUserController.class)
+@Import({UserJsonCache.class, UserChangeLog.class, ReactiveUserService.class, UserJsonWebFluxConfiguration.class,
+        BinaryFormatWebFluxConfiguration.class, ResponseCompression.class})
+class ReactiveUserControllerIntegrationTest extends AbstractUserControllerIntegrationTest {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Override
+    protected WebTestClient createClient() {
+        return webTestClient;
+    }
+}
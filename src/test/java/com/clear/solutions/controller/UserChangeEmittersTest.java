@@ -0,0 +1,91 @@
+package com.clear.solutions.controller;
+
+import static com.clear.solutions.util.UserTestUtils.buildDefaultUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import com.clear.solutions.changes.UserChangeLog;
+import com.clear.solutions.repository.InMemoryUserRepository;
+import com.clear.solutions.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class UserChangeEmittersTest {
+    private static final int USERS = 3;
+
+    private final UserRepository userRepository = new InMemoryUserRepository();
+    private UserChangeEmitters emitters;
+
+    @BeforeEach
+    void setUp() {
+        UserChangeLog changeLog = new UserChangeLog(userRepository, 64, 10);
+        changeLog.start();
+        emitters = new UserChangeEmitters(changeLog, 200);
+        emitters.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        emitters.stop();
+    }
+
+    @Test
+    public void dispatch_stalledStream_shouldNotDelayOtherStreamsAndBeDropped() throws InterruptedException {
+        //given
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter stalled = new RecordingEmitter(release);
+        RecordingEmitter healthy = new RecordingEmitter(null);
+        emitters.subscribe(null, stalled);
+        emitters.subscribe(null, healthy);
+        try {
+            //when
+            for (int i = 0; i < USERS; i++) {
+                userRepository.insertIfAbsent(buildDefaultUser().withEmail("user" + i + "@email.com"));
+            }
+            //then
+            assertTrue(healthy.sent.await(1, TimeUnit.SECONDS));
+            assertTrue(stalled.failed.await(2, TimeUnit.SECONDS));
+            assertEquals(1, emitters.subscriptionCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /**
+     * Counts the events it is sent; blocks every send until {@code release} opens, if given.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        private final CountDownLatch release;
+        private final CountDownLatch sent = new CountDownLatch(USERS);
+        private final CountDownLatch failed = new CountDownLatch(1);
+
+        RecordingEmitter(CountDownLatch release) {
+            super(0L);
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            sent.countDown();
+        }
+
+        @Override
+        public void completeWithError(Throwable error) {
+            failed.countDown();
+            super.completeWithError(error);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.clear.solutions.json;
+
+import static com.clear.solutions.util.UserTestUtils.buildDefaultUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import com.clear.solutions.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+class UserJsonCodecTest {
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    public void toJson_shouldWriteAllPropertiesInDeclarationOrder() {
+        //given
+        User user = buildDefaultUser().withVersion(42).withAddress(null);
+        //when
+        String json = new String(UserJsonCodec.toJson(user), StandardCharsets.UTF_8);
+        //then
+        assertEquals("{\"email\":\"email@email.com\",\"firstName\":\"Bob\",\"lastName\":\"Doe\","
+                + "\"birthDate\":\"2000-10-10\",\"address\":null,\"phoneNumber\":\"1234567890\",\"version\":42}", json);
+    }
+
+    @Test
+    public void toJson_shouldMatchJackson() throws IOException {
+        //given
+        List<User> users = List.of(
+                buildDefaultUser(),
+                buildDefaultUser().withFirstName("Zoë \"Q\" \\ O'Brien\t\u0001 ").withVersion(-7),
+                buildDefaultUser().withLastName("Emoji 😀 日本").withBirthDate(LocalDate.of(9, 1, 2)),
+                buildDefaultUser().withBirthDate(null).withPhoneNumber(null).withVersion(Long.MAX_VALUE));
+        //then
+        for (User user : users) {
+            assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(user)),
+                    objectMapper.readTree(UserJsonCodec.toJson(user)));
+        }
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(users)),
+                objectMapper.readTree(UserJsonCodec.toJson(users)));
+    }
+
+    @Test
+    public void readUser_shouldReadWhatToJsonWrote() {
+        //given
+        User user = buildDefaultUser().withFirstName("Zoë \"Q\"\n😀").withVersion(3);
+        //when
+        User read = UserJsonCodec.readUser(UserJsonCodec.toJson(user));
+        //then
+        assertEquals(user, read);
+        assertEquals(3, read.getVersion());
+    }
+
+    @Test
+    public void readUser_shouldAcceptWhatJacksonAccepts() {
+        //given
+        String json = """
+                {
+                  "lastName" : "Doe", "unknown": {"nested": [1, {"a": "}"}], "flag": true},
+                  "email": "email@email.com", "first\\u004eame": "Bob",
+                  "birthDate": [2000, 10, 10], "address": "123 Kyivska", "phoneNumber": 1234567890
+                }
+                """;
+        //when
+        User user = UserJsonCodec.readUser(json.getBytes(StandardCharsets.UTF_8));
+        //then
+        assertEquals(buildDefaultUser(), user);
+    }
+
+    @Test
+    public void readUser_emptyOrNullBirthDate_shouldReadNull() {
+        //then
+        assertNull(UserJsonCodec.readUser("{\"birthDate\":\"\"}".getBytes(StandardCharsets.UTF_8)).getBirthDate());
+        assertNull(UserJsonCodec.readUser("{\"birthDate\":null}".getBytes(StandardCharsets.UTF_8)).getBirthDate());
+    }
+
+    @Test
+    public void readUser_malformedJson_shouldThrowIllegalArgumentException() {
+        //then
+        for (String json : List.of("", "{", "[]", "{\"email\":}", "{\"email\":\"a\"", "{\"email\":\"a\"} x",
+                "{\"birthDate\":\"2000-13-01\"}", "{\"birthDate\":\"yesterday\"}", "{\"email\":nope}")) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> UserJsonCodec.readUser(json.getBytes(StandardCharsets.UTF_8)), json);
+        }
+    }
+
+    @Test
+    public void write_largeList_shouldWriteTheWholeArray() throws IOException {
+        //given
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            users.add(buildDefaultUser().withEmail("user" + i + "@email.com").withVersion(i));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        //when
+        UserJsonCodec.write(users, out);
+        List<User> read = UserJsonCodec.readUsers(out.toByteArray());
+        //then
+        assertEquals(users, read);
+        assertEquals(1_999, read.get(1_999).getVersion());
+        assertEquals(List.of(), UserJsonCodec.readUsers("[ ]".getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,412 @@
+package com.clear.solutions.persistence;
+
+import static com.clear.solutions.util.UserTestUtils.buildDefaultUser;
+import static com.clear.solutions.util.UserTestUtils.buildUserWithUpdates;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import com.clear.solutions.model.User;
+import com.clear.solutions.repository.InMemoryUserRepository;
+import com.clear.solutions.repository.UserChangeListener;
+import com.clear.solutions.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UserPersistenceServiceTest {
+    private static final long SEGMENT_MAX_BYTES = 1 << 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void restart_shouldReplayWriteAheadLog() throws IOException {
+        //given
+        UserRepository userRepository = new InMemoryUserRepository();
+        UserPersistenceService persistence = start(userRepository, FsyncPolicy.PER_BATCH);
+        User renamed = buildDefaultUser().withEmail("renamed@email.com");
+        //when
+        userRepository.insertIfAbsent(buildDefaultUser());
+        userRepository.insertIfAbsent(buildDefaultUser().withEmail("deleted@email.com"));
+        userRepository.save(buildUserWithUpdates());
+        userRepository.remove("deleted@email.com");
+        userRepository.replace(buildDefaultUser().getEmail(), renamed);
+        persistence.stop();
+        UserRepository recovered = new InMemoryUserRepository();
+        start(recovered, FsyncPolicy.PER_BATCH).stop();
+        //then
+        assertEquals(1, recovered.size());
+        assertEquals(renamed, recovered.findByEmail(renamed.getEmail()).orElseThrow());
+        assertEquals(1, recovered.birthDateIndexSize());
+    }
+
+    @Test
+    public void restart_afterSnapshot_shouldLoadSnapshotAndLogTail() throws IOException {
+        //given
+        UserRepository userRepository = new InMemoryUserRepository();
+        UserPersistenceService persistence = start(userRepository, FsyncPolicy.NONE);
+        userRepository.insertIfAbsent(buildDefaultUser());
+        userRepository.insertIfAbsent(buildDefaultUser().withEmail("second@email.com"));
+        //when
+        persistence.snapshot();
+        userRepository.save(buildUserWithUpdates());
+        persistence.stop();
+        UserRepository recovered = new InMemoryUserRepository();
+        start(recovered, FsyncPolicy.NONE).stop();
+        //then
+        assertEquals(2, recovered.size());
+        assertEquals(buildUserWithUpdates(), recovered.findByEmail(buildDefaultUser().getEmail()).orElseThrow());
+        assertEquals(List.of(), WriteAheadLog.listSegments(directory).stream().filter(s -> s < 2).toList());
+    }
+
+    @Test
+    public void restart_shouldKeepVersions() throws IOException {
+        //given
+        UserRepository userRepository = new InMemoryUserRepository();
+        UserPersistenceService persistence = start(userRepository, FsyncPolicy.NONE);
+        userRepository.insertIfAbsent(buildDefaultUser());
+        userRepository.insertIfAbsent(buildDefaultUser().withEmail("second@email.com"));
+        persistence.snapshot();
+        userRepository.save(buildUserWithUpdates());
+        long snapshotVersion = userRepository.findByEmail("second@email.com").orElseThrow().getVersion();
+        long loggedVersion = userRepository.findByEmail(buildDefaultUser().getEmail()).orElseThrow().getVersion();
+        persistence.stop();
+        //when
+        UserRepository recovered = new InMemoryUserRepository();
+        UserPersistenceService recoveredPersistence = start(recovered, FsyncPolicy.NONE);
+        //then
+        assertEquals(snapshotVersion, recovered.findByEmail("second@email.com").orElseThrow().getVersion());
+        assertEquals(loggedVersion, recovered.findByEmail(buildDefaultUser().getEmail()).orElseThrow().getVersion());
+        recovered.remove("second@email.com");
+        recovered.insertIfAbsent(buildDefaultUser().withEmail("second@email.com"));
+        assertTrue(recovered.findByEmail("second@email.com").orElseThrow().getVersion() > loggedVersion);
+        recoveredPersistence.stop();
+    }
+
+    @Test
+    public void restart_afterRemovals_shouldNotReuseTheirVersions() throws IOException {
+        //given
+        UserRepository userRepository = new InMemoryUserRepository();
+        UserPersistenceService persistence = start(userRepository, FsyncPolicy.NONE);
+        userRepository.insertIfAbsent(buildDefaultUser().withEmail("kept@email.com"));
+        userRepository.insertIfAbsent(buildDefaultUser().withEmail("snapshotted@email.com"));
+        userRepository.remove("snapshotted@email.com");
+        persistence.snapshot();
+        long logged = userRepository.insertIfAbsent(buildDefaultUser()).getVersion();
+        userRepository.remove(buildDefaultUser().getEmail());
+        persistence.stop();
+        //when
+        UserRepository recovered = new InMemoryUserRepository();
+        UserPersistenceService recoveredPersistence = start(recovered, FsyncPolicy.NONE);
+        User reinserted = recovered.insertIfAbsent(buildDefaultUser());
+        recovered.remove(reinserted.getEmail());
+        recoveredPersistence.snapshot();
+        recoveredPersistence.stop();
+        UserRepository fromSnapshot = new InMemoryUserRepository();
+        start(fromSnapshot, FsyncPolicy.NONE).stop();
+        //then
+        assertTrue(reinserted.getVersion() > logged);
+        assertEquals(reinserted.getVersion(), fromSnapshot.lastVersion());
+    }
+
+    @Test
+    public void snapshot_whileAWriteIsLoggedButNotStored_shouldKeepTheWrite() throws Exception {
+        //given
+        UserRepository userRepository = new InMemoryUserRepository();
+        UserPersistenceService persistence = start(userRepository, FsyncPolicy.NONE);
+        CountDownLatch logged = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        userRepository.addChangeListener(new UserChangeListener() {
+            @Override
+            public void beforeChange(User previous, User current) {
+                // runs after the persistence listener has logged the change
+                logged.countDown();
+                await(release);
+            }
+
+            @Override
+            public void onChange(User previous, User current) {
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        User stored;
+        try {
+            Future<User> write = executor.submit(() -> userRepository.insertIfAbsent(buildDefaultUser()));
+            await(logged);
+            //when
+            Future<?> snapshot = executor.submit(() -> {
+                persistence.snapshot();
+                return null;
+            });
+            Thread.sleep(100);
+            release.countDown();
+            stored = write.get(10, TimeUnit.SECONDS);
+            snapshot.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        persistence.stop();
+        UserRepository recovered = new InMemoryUserRepository();
+        start(recovered, FsyncPolicy.NONE).stop();
+        //then
+        assertEquals(stored, recovered.findByEmail(stored.getEmail()).orElseThrow());
+    }
+
+    @Test
+    public void restart_withTornLogTail_shouldKeepCompleteRecords() throws IOException {
+        //given
+        UserRepository userRepository = new InMemoryUserRepository();
+        UserPersistenceService persistence = start(userRepository, FsyncPolicy.PER_BATCH);
+        userRepository.insertIfAbsent(buildDefaultUser());
+        persistence.stop();
+        Path segment = WriteAheadLog.listSegments(directory).stream()
+                .map(number -> directory.resolve(String.format("wal-%016d.log", number)))
+                .findFirst()
+                .orElseThrow();
+        Files.write(segment, new byte[] {0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+        //when
+        UserRepository recovered = new InMemoryUserRepository();
+        start(recovered, FsyncPolicy.PER_BATCH).stop();
+        //then
+        assertEquals(1, recovered.size());
+        assertFalse(recovered.findByEmail(buildDefaultUser().getEmail()).isEmpty());
+    }
+
+    @Test
+    public void write_failingLogChannel_shouldRejectTheChangeAndNotReplayIt() throws IOException {
+        //given
+        UserRepository userRepository = new InMemoryUserRepository();
+        UserPersistenceService persistence = new UserPersistenceService(userRepository, directory,
+                FsyncPolicy.PER_BATCH, 10, 3_600_000, SEGMENT_MAX_BYTES);
+        FailingChannel[] channel = new FailingChannel[1];
+        persistence.setSegmentOpener(file -> channel[0] = new FailingChannel(WriteAheadLog.openForAppend(file)));
+        persistence.start();
+        userRepository.insertIfAbsent(buildDefaultUser());
+        long modificationCount = userRepository.modificationCount();
+        //when
+        channel[0].failWrites = true;
+        assertThrows(UncheckedIOException.class,
+                () -> userRepository.insertIfAbsent(buildDefaultUser().withEmail("rejected@email.com")));
+        assertThrows(UncheckedIOException.class, () -> userRepository.remove(buildDefaultUser().getEmail()));
+        channel[0].failWrites = false;
+        userRepository.insertIfAbsent(buildDefaultUser().withEmail("accepted@email.com"));
+        persistence.stop();
+        UserRepository recovered = new InMemoryUserRepository();
+        start(recovered, FsyncPolicy.PER_BATCH).stop();
+        //then
+        assertEquals(modificationCount + 1, userRepository.modificationCount());
+        assertTrue(userRepository.findByEmail("rejected@email.com").isEmpty());
+        assertTrue(userRepository.existsByEmail(buildDefaultUser().getEmail()));
+        assertEquals(2, recovered.size());
+        assertTrue(recovered.findByEmail("rejected@email.com").isEmpty());
+        assertTrue(recovered.existsByEmail(buildDefaultUser().getEmail()));
+        assertTrue(recovered.existsByEmail("accepted@email.com"));
+    }
+
+    @Test
+    public void write_pastSegmentMaxBytes_shouldStartNewSegmentsAndReplayThemAll() throws IOException {
+        //given
+        UserRepository userRepository = new InMemoryUserRepository();
+        UserPersistenceService persistence = start(userRepository, FsyncPolicy.PER_BATCH, 1024);
+        //when
+        for (int i = 0; i < 100; i++) {
+            userRepository.insertIfAbsent(buildDefaultUser().withEmail("user" + i + "@email.com"));
+        }
+        persistence.stop();
+        UserRepository recovered = new InMemoryUserRepository();
+        start(recovered, FsyncPolicy.PER_BATCH).stop();
+        //then
+        assertTrue(WriteAheadLog.listSegments(directory).size() > 5);
+        assertEquals(100, recovered.size());
+        assertEquals(userRepository.lastVersion(), recovered.lastVersion());
+    }
+
+    @Test
+    public void replay_recordsAcrossWindows_shouldRemapAndReadThemAll() throws IOException {
+        //given
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1, FsyncPolicy.PER_BATCH, Duration.ofMillis(10),
+                SEGMENT_MAX_BYTES, Thread::new);
+        List<User> users = List.of(buildDefaultUser(), buildUserWithUpdates().withEmail("second@email.com"),
+                buildDefaultUser().withEmail("third@email.com").withFirstName("Mykola Осолінський"));
+        users.forEach(writeAheadLog::appendPut);
+        writeAheadLog.appendDelete("second@email.com", 7);
+        writeAheadLog.close();
+        List<Object> replayed = new ArrayList<>();
+        //when
+        WriteAheadLog.replay(directory, 1, 13, new WriteAheadLog.Visitor() {
+            @Override
+            public void put(User user) {
+                replayed.add(user);
+            }
+
+            @Override
+            public void delete(String email, long version) {
+                replayed.add(email + "@" + version);
+            }
+        });
+        //then
+        assertEquals(List.of(users.get(0), users.get(1), users.get(2), "second@email.com@7"), replayed);
+    }
+
+    @Test
+    public void mappedSnapshot_shouldGiveRandomAccessToUsers() throws IOException {
+        //given
+        List<User> users = List.of(buildDefaultUser(),
+                buildDefaultUser().withEmail("no-birth-date@email.com").withBirthDate(null),
+                buildDefaultUser().withEmail("unicode@email.com").withFirstName("Mykola Осолінський"));
+        SnapshotStore.write(directory, 7, users, 42);
+        //when
+        try (MappedSnapshot snapshot = SnapshotStore.open(directory, 7)) {
+            //then
+            assertEquals(3, snapshot.count());
+            assertEquals(42, snapshot.lastVersion());
+            assertEquals(users.get(2), snapshot.get(2));
+            assertEquals(users.get(1), snapshot.get(1));
+            assertEquals(users.get(0), snapshot.get(0));
+        }
+    }
+
+    /**
+     * Segment channel that, while {@code failWrites} is set, writes a few bytes of a record and then fails.
+     */
+    private static class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+        private volatile boolean failWrites;
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+            if (failWrites) {
+                delegate.write(sources[offset].slice(sources[offset].position(), 3));
+                throw new IOException("No space left on device");
+            }
+            return delegate.write(sources, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            return (int) write(new ByteBuffer[] {source}, 0, 1);
+        }
+
+        @Override
+        public int read(ByteBuffer target) throws IOException {
+            return delegate.read(target);
+        }
+
+        @Override
+        public long read(ByteBuffer[] targets, int offset, int length) throws IOException {
+            return delegate.read(targets, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel source, long position, long count) throws IOException {
+            return delegate.transferFrom(source, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer target, long position) throws IOException {
+            return delegate.read(target, position);
+        }
+
+        @Override
+        public int write(ByteBuffer source, long position) throws IOException {
+            return delegate.write(source, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private UserPersistenceService start(UserRepository userRepository, FsyncPolicy fsyncPolicy) throws IOException {
+        return start(userRepository, fsyncPolicy, SEGMENT_MAX_BYTES);
+    }
+
+    private UserPersistenceService start(UserRepository userRepository, FsyncPolicy fsyncPolicy,
+                                         long segmentMaxBytes) throws IOException {
+        UserPersistenceService persistence = new UserPersistenceService(userRepository, directory,
+                fsyncPolicy, 10, 3_600_000, segmentMaxBytes);
+        persistence.start();
+        return persistence;
+    }
+}
@@ -0,0 +1,110 @@
+package com.clear.solutions.repository;
+
+import static com.clear.solutions.util.UserTestUtils.buildDefaultUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import com.clear.solutions.exception.UserAlreadyExistsException;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import org.junit.jupiter.api.Test;
+
+class OffHeapUserRepositoryTest extends UserRepositoryConcurrencyTest {
+
+    @Override
+    protected UserRepository newRepository() {
+        return new OffHeapUserRepository();
+    }
+
+    @Test
+    public void findByEmail_shouldDecodeStoredUserIgnoringCase() {
+        //given
+        User user = buildDefaultUser().withEmail("Mixed.Case@Email.com").withAddress(null);
+        //when
+        userRepository.insertIfAbsent(user);
+        //then
+        assertEquals(user, userRepository.findByEmail("mixed.case@email.COM").orElseThrow());
+        assertTrue(userRepository.existsByEmail(" MIXED.case@email.com "));
+    }
+
+    @Test
+    public void findByBirthDateBetween_shouldMatchHeapOrderingAndCursors() {
+        //given
+        UserRepository heap = new InMemoryUserRepository();
+        for (int i = 0; i < 200; i++) {
+            User user = buildDefaultUser()
+                    .withEmail("user" + (i * 7919 % 200) + "@email.com")
+                    .withBirthDate(i % 10 == 0 ? null : LocalDate.of(1990, 1 + i % 12, 1 + i % 3));
+            userRepository.save(user);
+            heap.save(user);
+        }
+        LocalDate from = LocalDate.of(1990, 2, 1);
+        LocalDate to = LocalDate.of(1990, 11, 2);
+        BirthDateKey after = UserRepository.birthDateKey(heap.findByBirthDateBetween(from, to).iterator().next());
+        //then
+        assertEquals(List.copyOf(heap.findByBirthDateBetween(null, null)),
+                List.copyOf(userRepository.findByBirthDateBetween(null, null)));
+        assertEquals(List.copyOf(heap.findByBirthDateBetween(from, to)),
+                List.copyOf(userRepository.findByBirthDateBetween(from, to)));
+        assertEquals(List.copyOf(heap.findByBirthDateBetween(from, to, after)),
+                List.copyOf(userRepository.findByBirthDateBetween(from, to, after)));
+        assertEquals(heap.birthDateIndexSize(), userRepository.birthDateIndexSize());
+        assertEquals(200, userRepository.findAll().size());
+    }
+
+    @Test
+    public void replace_withNewEmail_shouldReKeyUser() {
+        //given
+        User user = buildDefaultUser();
+        User renamed = user.withEmail("renamed@email.com");
+        userRepository.insertIfAbsent(user);
+        userRepository.insertIfAbsent(buildDefaultUser().withEmail("taken@email.com"));
+        //when
+        userRepository.replace(user.getEmail(), renamed);
+        //then
+        assertTrue(userRepository.findByEmail(user.getEmail()).isEmpty());
+        assertEquals(renamed, userRepository.findByEmail(renamed.getEmail()).orElseThrow());
+        assertEquals(2, userRepository.size());
+        assertThrows(UserAlreadyExistsException.class,
+                () -> userRepository.replace(renamed.getEmail(), renamed.withEmail("taken@email.com")));
+    }
+
+    @Test
+    public void save_birthDateOutOfIntEpochDays_shouldBeRejectedInsteadOfTruncated() {
+        //given
+        User user = buildDefaultUser().withBirthDate(LocalDate.ofEpochDay(Integer.MAX_VALUE + 1L));
+        //when
+        assertThrows(IllegalArgumentException.class, () -> userRepository.save(user));
+        //then
+        assertEquals(0, userRepository.size());
+        assertTrue(userRepository.findByEmail(user.getEmail()).isEmpty());
+    }
+
+    @Test
+    public void save_manyVersions_shouldCompactAndKeepLiveUsers() {
+        //given
+        String address = "a".repeat(4096);
+        Collection<User> view = null;
+        //when
+        for (int i = 0; i < 10_000; i++) {
+            User user = buildDefaultUser().withEmail("user" + i % 100 + "@email.com").withAddress(address + i);
+            userRepository.save(user);
+            if (i == 99) {
+                view = userRepository.findAll();
+            }
+        }
+        //then
+        assertEquals(100, userRepository.size());
+        assertEquals(address + 9999, userRepository.findByEmail("user99@email.com").orElseThrow().getAddress());
+        assertEquals(100, new ArrayList<>(view).size());
+        UserFilter filter = UserFilter.builder().emailDomain("email.com").firstNamePrefix("bo").build();
+        assertEquals(100, userRepository.listByFilter(filter).size());
+        assertNull(userRepository.remove("missing@email.com"));
+    }
+}
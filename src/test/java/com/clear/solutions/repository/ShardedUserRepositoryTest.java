@@ -0,0 +1,83 @@
+package com.clear.solutions.repository;
+
+import static com.clear.solutions.util.UserTestUtils.buildDefaultUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+import com.clear.solutions.model.User;
+import org.junit.jupiter.api.Test;
+
+class ShardedUserRepositoryTest extends UserRepositoryConcurrencyTest {
+    private static final int SHARDS = 8;
+
+    @Override
+    protected UserRepository newRepository() {
+        return new ShardedUserRepository(SHARDS);
+    }
+
+    @Test
+    public void findByBirthDateBetween_shouldMergeShardsInHeapOrder() {
+        //given
+        UserRepository heap = new InMemoryUserRepository();
+        for (int i = 0; i < 500; i++) {
+            User user = buildDefaultUser()
+                    .withEmail("user" + (i * 7919 % 500) + "@email.com")
+                    .withBirthDate(i % 10 == 0 ? null : LocalDate.of(1990, 1 + i % 12, 1 + i % 3));
+            userRepository.save(user);
+            heap.save(user);
+        }
+        LocalDate from = LocalDate.of(1990, 2, 1);
+        LocalDate to = LocalDate.of(1990, 11, 2);
+        BirthDateKey after = UserRepository.birthDateKey(heap.findByBirthDateBetween(from, to).iterator().next());
+        //then
+        assertEquals(List.copyOf(heap.findByBirthDateBetween(null, null)),
+                List.copyOf(userRepository.findByBirthDateBetween(null, null)));
+        assertEquals(List.copyOf(heap.findByBirthDateBetween(from, to, after)),
+                List.copyOf(userRepository.findByBirthDateBetween(from, to, after)));
+        assertEquals(heap.listByBirthDateBetween(from, to), userRepository.listByBirthDateBetween(from, to));
+        assertEquals(heap.findByBirthDateBetween(from, to).size(), userRepository.findByBirthDateBetween(from, to).size());
+        assertEquals(heap.birthDateIndexSize(), userRepository.birthDateIndexSize());
+        assertEquals(500, userRepository.findAll().size());
+        assertEquals(500, List.copyOf(userRepository.findAll()).size());
+    }
+
+    @Test
+    public void replace_withEmailOfAnotherShard_shouldMoveUser() {
+        //given
+        User user = buildDefaultUser().withEmail("first@email.com");
+        userRepository.insertIfAbsent(user);
+        //when
+        for (int i = 0; i < SHARDS * 4; i++) {
+            User moved = user.withEmail("moved" + i + "@email.com");
+            userRepository.replace(user.getEmail(), moved);
+            user = moved;
+        }
+        //then
+        assertEquals(1, userRepository.size());
+        assertEquals(1, userRepository.birthDateIndexSize());
+        assertTrue(userRepository.existsByEmail(user.getEmail()));
+        assertEquals(List.of(user.getEmail()),
+                userRepository.findByBirthDateBetween(null, null).stream().map(User::getEmail).toList());
+    }
+
+    @Test
+    public void restoreVersion_shouldKeepEveryShardFromReusingVersions() {
+        //given
+        List<User> users = IntStream.range(0, SHARDS * 8)
+                .mapToObj(i -> userRepository.insertIfAbsent(buildDefaultUser().withEmail("user" + i + "@email.com")))
+                .toList();
+        UserRepository restarted = newRepository();
+        //when
+        restarted.restoreVersion(userRepository.lastVersion());
+        //then
+        for (User user : users) {
+            assertTrue(user.getVersion() <= userRepository.lastVersion());
+            assertTrue(restarted.insertIfAbsent(user).getVersion() > user.getVersion());
+        }
+        assertTrue(restarted.lastVersion() > userRepository.lastVersion());
+        assertEquals(users.size(), users.stream().map(User::getVersion).distinct().count());
+    }
+}
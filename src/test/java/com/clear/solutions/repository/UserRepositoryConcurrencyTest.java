@@ -0,0 +1,350 @@
+package com.clear.solutions.repository;
+
+import static com.clear.solutions.util.UserTestUtils.buildDefaultUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.clear.solutions.exception.VersionMismatchException;
+import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UserRepositoryConcurrencyTest {
+    private static final int WRITERS = 64;
+    private static final int OPERATIONS_PER_WRITER = 500;
+
+    protected UserRepository userRepository;
+    private ExecutorService executor;
+
+    protected UserRepository newRepository() {
+        return new InMemoryUserRepository();
+    }
+
+    @BeforeEach
+    void setUp() {
+        userRepository = newRepository();
+        executor = Executors.newFixedThreadPool(WRITERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void insertIfAbsent_concurrentWriters_shouldNotCreateDuplicates() throws Exception {
+        //given
+        AtomicInteger created = new AtomicInteger();
+        //when
+        runConcurrently(writer -> {
+            for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+                User user = buildDefaultUser().withEmail("user" + i + "@email.com");
+                if (userRepository.insertIfAbsent(user) != null) {
+                    created.incrementAndGet();
+                }
+            }
+        });
+        //then
+        assertEquals(OPERATIONS_PER_WRITER, created.get());
+        assertEquals(OPERATIONS_PER_WRITER, userRepository.size());
+        assertEquals(OPERATIONS_PER_WRITER, userRepository.birthDateIndexSize());
+    }
+
+    @Test
+    public void update_concurrentWriters_shouldNotLoseUpdates() throws Exception {
+        //given
+        User user = buildDefaultUser().withAddress("0");
+        userRepository.insertIfAbsent(user);
+        //when
+        runConcurrently(writer -> {
+            for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+                userRepository.update(user.getEmail(), current -> current.toBuilder()
+                        .address(String.valueOf(Integer.parseInt(current.getAddress()) + 1))
+                        .build());
+            }
+        });
+        //then
+        User updated = userRepository.findByEmail(user.getEmail()).orElseThrow();
+        assertEquals(String.valueOf(WRITERS * OPERATIONS_PER_WRITER), updated.getAddress());
+    }
+
+    @Test
+    public void replace_concurrentOptimisticWriters_shouldNotLoseUpdates() throws Exception {
+        //given
+        User user = buildDefaultUser().withAddress("0");
+        userRepository.insertIfAbsent(user);
+        AtomicInteger conflicts = new AtomicInteger();
+        //when
+        runConcurrently(writer -> {
+            for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+                while (true) {
+                    User current = userRepository.findByEmail(user.getEmail()).orElseThrow();
+                    User next = current.withAddress(String.valueOf(Integer.parseInt(current.getAddress()) + 1));
+                    try {
+                        userRepository.replace(user.getEmail(), next, current.getVersion());
+                        break;
+                    } catch (VersionMismatchException e) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+            }
+        });
+        //then
+        User updated = userRepository.findByEmail(user.getEmail()).orElseThrow();
+        assertEquals(String.valueOf(WRITERS * OPERATIONS_PER_WRITER), updated.getAddress());
+        assertTrue(updated.getVersion() > WRITERS * OPERATIONS_PER_WRITER);
+    }
+
+    @Test
+    public void replace_concurrentWriters_shouldReturnTheInstanceEachOneStored() throws Exception {
+        //given
+        User user = buildDefaultUser();
+        userRepository.insertIfAbsent(user);
+        Set<Long> versions = ConcurrentHashMap.newKeySet();
+        //when
+        runConcurrently(writer -> {
+            for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+                String address = writer + "-" + i;
+                User stored = userRepository.replace(user.getEmail(), user.withAddress(address));
+                if (address.equals(stored.getAddress())) {
+                    versions.add(stored.getVersion());
+                }
+            }
+        });
+        //then
+        assertEquals(WRITERS * OPERATIONS_PER_WRITER, versions.size());
+    }
+
+    @Test
+    public void writes_shouldAssignGrowingVersionsAndCountModifications() {
+        //given
+        User user = buildDefaultUser();
+        long countBefore = userRepository.modificationCount();
+        //when
+        long inserted = userRepository.insertIfAbsent(user).getVersion();
+        long updated = userRepository.update(user.getEmail(), current -> current.withFirstName("Alice")).getVersion();
+        userRepository.remove(user.getEmail());
+        long reinserted = userRepository.insertIfAbsent(user).getVersion();
+        //then
+        assertTrue(inserted > 0);
+        assertTrue(updated > inserted);
+        assertTrue(reinserted > updated);
+        assertEquals(countBefore + 4, userRepository.modificationCount());
+        assertThrows(VersionMismatchException.class,
+                () -> userRepository.replace(user.getEmail(), user.withFirstName("Stale"), inserted));
+        assertEquals(user.getFirstName(), userRepository.findByEmail(user.getEmail()).orElseThrow().getFirstName());
+        assertEquals(countBefore + 4, userRepository.modificationCount());
+    }
+
+    @Test
+    public void mixedWrites_concurrentWriters_shouldKeepIndexesConsistent() throws Exception {
+        //when
+        runConcurrently(writer -> {
+            for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+                User user = buildDefaultUser()
+                        .withEmail("user" + (i % 50) + "@email.com")
+                        .withBirthDate(LocalDate.of(1950 + writer % 50, 1 + i % 12, 1));
+                switch (i % 4) {
+                    case 0 -> userRepository.insertIfAbsent(user);
+                    case 1 -> userRepository.save(user);
+                    case 2 -> userRepository.update(user.getEmail(), current -> user);
+                    default -> userRepository.remove(user.getEmail());
+                }
+            }
+        });
+        //then
+        assertEquals(userRepository.size(), userRepository.birthDateIndexSize());
+        for (User user : userRepository.findByBirthDateBetween(null, null)) {
+            assertTrue(userRepository.findByEmail(user.getEmail()).filter(user::equals).isPresent());
+        }
+    }
+
+    @Test
+    public void listByFilter_shouldIntersectIndexesAndFollowWrites() {
+        //given
+        userRepository.save(buildDefaultUser().withEmail("ann@acme.com").withFirstName("Ann").withLastName("Smith"));
+        userRepository.save(buildDefaultUser().withEmail("andy@ACME.com").withFirstName("andy").withLastName("Smithers")
+                .withPhoneNumber(null).withBirthDate(LocalDate.of(1990, 1, 1)));
+        userRepository.save(buildDefaultUser().withEmail("anna@other.org").withFirstName("Anna").withLastName("Smith"));
+        userRepository.save(buildDefaultUser().withEmail("undated@acme.com").withFirstName("Ann").withBirthDate(null));
+        //then
+        assertEquals(List.of("andy@ACME.com", "ann@acme.com"), emails(UserFilter.builder().emailDomain("Acme.com")));
+        assertEquals(List.of("andy@ACME.com", "ann@acme.com", "anna@other.org"),
+                emails(UserFilter.builder().firstNamePrefix(" AN")));
+        assertEquals(List.of("ann@acme.com"),
+                emails(UserFilter.builder().emailDomain("@acme.com").lastNamePrefix("smith").hasPhoneNumber(true)));
+        assertEquals(List.of("andy@ACME.com"), emails(UserFilter.builder().hasPhoneNumber(false)));
+        assertEquals(List.of(), emails(UserFilter.builder().emailDomain("acme").firstNamePrefix("ann")));
+        //when
+        userRepository.replace("ann@acme.com", buildDefaultUser().withEmail("ann@other.org").withLastName("Jones"));
+        userRepository.update("anna@other.org", user -> user.withPhoneNumber(" "));
+        userRepository.remove("andy@acme.com");
+        //then
+        assertEquals(List.of(), emails(UserFilter.builder().emailDomain("acme.com")));
+        assertEquals(List.of("ann@other.org", "anna@other.org"), emails(UserFilter.builder().emailDomain("other.org")));
+        assertEquals(List.of("anna@other.org"), emails(UserFilter.builder().lastNamePrefix("Smi")));
+        assertEquals(List.of("anna@other.org"), emails(UserFilter.builder().hasPhoneNumber(false)));
+        userRepository.clear();
+        assertEquals(List.of(), emails(UserFilter.builder().firstNamePrefix("a")));
+    }
+
+    @Test
+    public void findByFilter_shouldMatchWithinRangeInBirthDateOrderFromCursor() {
+        //given
+        for (int i = 0; i < 20; i++) {
+            userRepository.save(buildDefaultUser().withEmail("user" + i + (i % 2 == 0 ? "@even.com" : "@odd.com"))
+                    .withFirstName(i % 4 < 2 ? "Ann" : "Bob")
+                    .withBirthDate(LocalDate.of(2000, 1, 1).plusDays(20 - i)));
+        }
+        UserFilter byDomain = UserFilter.builder().emailDomain("even.com").build();
+        UserFilter byName = UserFilter.builder().firstNamePrefix("ann").hasPhoneNumber(true).build();
+        LocalDate from = LocalDate.of(2000, 1, 3);
+        LocalDate to = LocalDate.of(2000, 1, 17);
+        //when
+        List<User> inRange = List.copyOf(userRepository.findByFilter(from, to, byDomain, null));
+        BirthDateKey cursor = UserRepository.birthDateKey(inRange.get(2));
+        //then
+        assertEquals(List.of("user16@even.com", "user14@even.com", "user12@even.com", "user10@even.com",
+                "user8@even.com", "user6@even.com"), inRange.stream().map(User::getEmail).toList());
+        assertEquals(inRange.subList(3, inRange.size()), List.copyOf(userRepository.findByFilter(from, to, byDomain,
+                cursor)));
+        assertEquals(List.of("user17@odd.com", "user16@even.com", "user13@odd.com", "user12@even.com",
+                        "user9@odd.com", "user8@even.com", "user5@odd.com"),
+                userRepository.findByFilter(from, to, byName, null).stream().map(User::getEmail).toList());
+        assertEquals(List.of(), List.copyOf(userRepository.findByFilter(to, to, byDomain, null)));
+    }
+
+    @Test
+    public void findByFilter_prefixAboveSortedNames_shouldPageInBirthDateOrder() {
+        //given
+        int users = UserAttributeIndex.MAX_SORTED_NAMES + 100;
+        for (int i = 0; i < users; i++) {
+            userRepository.save(buildDefaultUser().withEmail("user" + i + "@email.com")
+                    .withFirstName(i % 3 == 0 ? "Bob" : "Ann" + i)
+                    .withBirthDate(LocalDate.of(1950, 1, 1).plusDays(i * 7919L % 20_000)));
+        }
+        UserFilter byName = UserFilter.builder().firstNamePrefix("an").build();
+        List<User> expected = userRepository.findByBirthDateBetween(null, null).stream()
+                .filter(user -> user.getFirstName().startsWith("Ann"))
+                .toList();
+        //when
+        List<User> pages = new ArrayList<>();
+        BirthDateKey cursor = null;
+        while (pages.size() < expected.size()) {
+            Iterator<User> page = userRepository.findByFilter(null, null, byName, cursor).iterator();
+            for (int i = 0; i < 1000 && page.hasNext(); i++) {
+                pages.add(page.next());
+            }
+            cursor = UserRepository.birthDateKey(pages.get(pages.size() - 1));
+        }
+        //then
+        assertEquals(expected, pages);
+        assertEquals(List.of(), List.copyOf(userRepository.findByFilter(null, null, byName, cursor)));
+    }
+
+    @Test
+    public void attributeIndexSize_shouldCountUsersWithBirthDate() {
+        //given
+        userRepository.save(buildDefaultUser().withEmail("ann@acme.com"));
+        userRepository.save(buildDefaultUser().withEmail("bob@acme.com").withPhoneNumber(null));
+        userRepository.save(buildDefaultUser().withEmail("undated@acme.com").withBirthDate(null));
+        //when
+        userRepository.update("ann@acme.com", user -> user.withLastName("Jones"));
+        userRepository.remove("bob@acme.com");
+        //then
+        for (UserRepository.AttributeIndex index : UserRepository.AttributeIndex.values()) {
+            assertEquals(1L, userRepository.attributeIndexSize(index), index.parameter());
+        }
+        userRepository.clear();
+        assertEquals(0L, userRepository.attributeIndexSize(UserRepository.AttributeIndex.EMAIL_DOMAIN));
+    }
+
+    @Test
+    public void countByBirthDay_shouldFollowWrites() {
+        //given
+        LocalDate day = LocalDate.of(1990, 1, 1);
+        userRepository.save(buildDefaultUser().withEmail("ann@acme.com").withBirthDate(day));
+        userRepository.save(buildDefaultUser().withEmail("bob@acme.com").withBirthDate(day));
+        userRepository.save(buildDefaultUser().withEmail("eve@acme.com").withBirthDate(day.plusDays(2)));
+        userRepository.save(buildDefaultUser().withEmail("undated@acme.com").withBirthDate(null));
+        //when
+        userRepository.update("bob@acme.com", user -> user.withBirthDate(day.plusDays(5)));
+        userRepository.remove("eve@acme.com");
+        //then
+        assertEquals(Map.of(day.toEpochDay(), 1L, day.plusDays(5).toEpochDay(), 1L),
+                userRepository.countByBirthDay(null, null));
+        assertEquals(Map.of(day.plusDays(5).toEpochDay(), 1L), userRepository.countByBirthDay(day, null));
+        assertEquals(Map.of(), userRepository.countByBirthDay(day, day.plusDays(5)));
+        userRepository.clear();
+        assertEquals(Map.of(), userRepository.countByBirthDay(null, null));
+    }
+
+    @Test
+    public void listByFilter_concurrentWriters_shouldMatchScan() throws Exception {
+        //when
+        runConcurrently(writer -> {
+            for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+                User user = buildDefaultUser()
+                        .withEmail("user" + (i % 50) + "@domain" + (i % 3) + ".com")
+                        .withLastName((writer % 2 == 0 ? "Doe" : "Dean") + writer)
+                        .withPhoneNumber(writer % 3 == 0 ? null : "1234567890");
+                if (i % 5 == 4) {
+                    userRepository.remove(user.getEmail());
+                } else {
+                    userRepository.save(user);
+                }
+            }
+        });
+        //then
+        List<User> all = List.copyOf(userRepository.findByBirthDateBetween(null, null));
+        UserFilter filter = UserFilter.builder().emailDomain("domain1.com").lastNamePrefix("do").hasPhoneNumber(true)
+                .build();
+        assertEquals(all.stream()
+                        .filter(user -> user.getEmail().endsWith("@domain1.com")
+                                && user.getLastName().startsWith("Doe") && user.getPhoneNumber() != null)
+                        .toList(),
+                userRepository.listByFilter(filter));
+    }
+
+    private void runConcurrently(Writer writer) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writerId = w;
+            futures.add(executor.submit(() -> {
+                start.await();
+                writer.run(writerId);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private List<String> emails(UserFilter.UserFilterBuilder filter) {
+        return userRepository.listByFilter(filter.build()).stream().map(User::getEmail).toList();
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void run(int writerId);
+    }
+}
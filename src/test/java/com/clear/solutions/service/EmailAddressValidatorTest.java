@@ -0,0 +1,57 @@
+package com.clear.solutions.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class EmailAddressValidatorTest {
+    private static final String ALPHABET = "aZ09._%+-@..@@-xYſKé \n\t!#";
+    private static final int FUZZ_ITERATIONS = 500_000;
+
+    @Test
+    public void isValid_edgeCases_shouldMatchRegex() {
+        List<String> emails = List.of("", "@", "a@", "@b.cd", "a@b.cd", "a@.cd", "a@b.c", "a@b.cdefgh",
+                "a@b.cdefghi", "a@b..cd", "a@b.c1", "a@b.cd.", "a@b-.cd", "a@@b.cd", "a.b@c.d.ef",
+                "A+B%C_D-E@EXAMPLE.COM", "a@b.cd\n", " a@b.cd", "a@b.Kd", "ſ@b.cd", "a@b.cé");
+        for (String email : emails) {
+            assertMatchesRegex(email);
+        }
+    }
+
+    @Test
+    public void isValid_randomInputs_shouldMatchRegex() {
+        SplittableRandom random = new SplittableRandom(20240501L);
+        StringBuilder email = new StringBuilder();
+        for (int i = 0; i < FUZZ_ITERATIONS; i++) {
+            email.setLength(0);
+            int length = random.nextInt(16);
+            for (int c = 0; c < length; c++) {
+                email.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            assertMatchesRegex(email.toString());
+        }
+    }
+
+    @Test
+    public void isValid_mutatedValidEmails_shouldMatchRegex() {
+        SplittableRandom random = new SplittableRandom(7L);
+        for (int i = 0; i < FUZZ_ITERATIONS; i++) {
+            StringBuilder email = new StringBuilder("user" + i + "@mail" + i % 7 + ".example.co" + "mnop".substring(0, i % 4));
+            int position = random.nextInt(email.length());
+            char replacement = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            switch (random.nextInt(3)) {
+                case 0 -> email.setCharAt(position, replacement);
+                case 1 -> email.insert(position, replacement);
+                default -> email.deleteCharAt(position);
+            }
+            assertMatchesRegex(email.toString());
+        }
+    }
+
+    private static void assertMatchesRegex(String email) {
+        assertEquals(UserValidatorService.VALID_EMAIL_ADDRESS_REGEX.matcher(email).matches(),
+                EmailAddressValidator.isValid(email), () -> "Disagreement on [" + email + "]");
+    }
+}
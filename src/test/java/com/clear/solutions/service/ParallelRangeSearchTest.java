@@ -0,0 +1,99 @@
+package com.clear.solutions.service;
+
+import static com.clear.solutions.util.UserTestUtils.buildDefaultUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+import com.clear.solutions.model.User;
+import com.clear.solutions.repository.InMemoryUserRepository;
+import com.clear.solutions.repository.ShardedUserRepository;
+import com.clear.solutions.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelRangeSearchTest {
+    private static final int USER_COUNT = 2_000;
+
+    private final ParallelRangeSearch rangeSearch = new ParallelRangeSearch(100, 3);
+
+    @AfterEach
+    void tearDown() {
+        rangeSearch.stop();
+    }
+
+    @Test
+    public void search_aboveThreshold_shouldReturnUsersInIndexOrder() {
+        //given
+        UserRepository userRepository = populate(new InMemoryUserRepository());
+        LocalDate from = LocalDate.of(1960, 3, 1);
+        LocalDate to = LocalDate.of(1999, 6, 15);
+        //then
+        assertSameAsIndex(userRepository, from, to);
+        assertSameAsIndex(userRepository, null, null);
+        assertSameAsIndex(userRepository, from, null);
+        assertSameAsIndex(userRepository, null, to);
+    }
+
+    @Test
+    public void search_shardedStore_shouldReturnUsersInIndexOrder() {
+        //given
+        UserRepository userRepository = populate(new ShardedUserRepository(4));
+        //then
+        assertSameAsIndex(userRepository, null, null);
+        assertSameAsIndex(userRepository, LocalDate.of(1970, 1, 1), LocalDate.of(1970, 2, 1));
+    }
+
+    @Test
+    public void search_manyUsersOnThresholdDay_shouldNotSplitTheDay() {
+        //given
+        UserRepository userRepository = new InMemoryUserRepository();
+        for (int i = 0; i < 300; i++) {
+            userRepository.insertIfAbsent(buildDefaultUser()
+                    .withEmail("user" + i + "@email.com")
+                    .withBirthDate(LocalDate.of(1990, 1, 1).plusDays(i / 150)));
+        }
+        //when
+        List<User> users = rangeSearch.search(userRepository, null, null);
+        //then
+        assertEquals(List.copyOf(userRepository.findByBirthDateBetween(null, null)), users);
+    }
+
+    @Test
+    public void search_birthDatesAfterToday_shouldBeFoundByOpenRange() {
+        //given
+        UserRepository userRepository = populate(new InMemoryUserRepository());
+        userRepository.restore(buildDefaultUser().withEmail("future@email.com")
+                .withBirthDate(LocalDate.now().plusYears(1)));
+        //then
+        assertSameAsIndex(userRepository, null, null);
+    }
+
+    @Test
+    public void search_mostUsersOnLateDays_shouldReturnUsersInIndexOrder() {
+        //given
+        UserRepository userRepository = populate(new InMemoryUserRepository());
+        for (int i = 0; i < USER_COUNT; i++) {
+            userRepository.insertIfAbsent(buildDefaultUser()
+                    .withEmail("late" + i + "@email.com")
+                    .withBirthDate(LocalDate.of(2100, 1, 1).plusDays(i % 3)));
+        }
+        //then
+        assertSameAsIndex(userRepository, null, null);
+        assertSameAsIndex(userRepository, LocalDate.of(1999, 1, 1), null);
+    }
+
+    private void assertSameAsIndex(UserRepository userRepository, LocalDate from, LocalDate to) {
+        assertEquals(List.copyOf(userRepository.findByBirthDateBetween(from, to)),
+                rangeSearch.search(userRepository, from, to));
+    }
+
+    private UserRepository populate(UserRepository userRepository) {
+        for (int i = 0; i < USER_COUNT; i++) {
+            userRepository.insertIfAbsent(buildDefaultUser()
+                    .withEmail("user" + i + "@email.com")
+                    .withBirthDate(LocalDate.of(1950, 1, 1).plusDays(i * 7919L % (365 * 50))));
+        }
+        return userRepository;
+    }
+}
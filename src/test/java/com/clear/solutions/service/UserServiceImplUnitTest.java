@@ -1,51 +1,82 @@
 package com.clear.solutions.service;
 
 import static com.clear.solutions.util.UserTestUtils.*;
-import static java.util.Collections.emptyList;
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import com.clear.solutions.exception.InvalidRequestException;
+import com.clear.solutions.exception.UserAlreadyExistsException;
+import com.clear.solutions.exception.UserNotFoundException;
+import com.clear.solutions.exception.UserValidationException;
+import com.clear.solutions.exception.ValidationErrorCode;
+import com.clear.solutions.metrics.UserMetrics;
+import com.clear.solutions.model.BatchItemResult;
 import com.clear.solutions.model.User;
+import com.clear.solutions.model.UserFilter;
+import com.clear.solutions.model.UserPage;
+import com.clear.solutions.repository.InMemoryUserRepository;
 import com.clear.solutions.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 @ExtendWith(MockitoExtension.class)
 class UserServiceImplUnitTest {
+    @Spy
+    private UserRepository userRepository = new InMemoryUserRepository();
     @Mock
-    private UserRepository userRepository;
+    private UserValidatorService validatorService;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Spy
+    private UserMetrics metrics = new UserMetrics(meterRegistry);
+    @Spy
+    private ParallelRangeSearch rangeSearch = new ParallelRangeSearch(2, 2);
     @InjectMocks
     private UserServiceImpl userService;
 
     @BeforeEach
     void setUp() {
-        User user = buildDefaultUser();
-        List<User> users = new ArrayList<>();
-        users.add(user);
-        when(userRepository.getUsers()).thenReturn(users);
+        lenient().when(validatorService.validate(any())).thenReturn(ValidationResult.VALID);
+        userRepository.insertIfAbsent(buildDefaultUser());
     }
 
     @AfterEach
     void tearDown() {
-        userRepository.setUsers(emptyList());
+        userRepository.clear();
+        rangeSearch.stop();
+    }
+
+    @Test
+    public void operations_shouldBeTimedAlsoWhenTheyFail() {
+        //given
+        User user = buildDefaultUser();
+        //when
+        userService.getByEmail(user.getEmail());
+        assertThrows(RuntimeException.class, () -> userService.getByEmail("missing@email.com"));
+        userService.patchUser(user.getEmail(), Map.of("address", "New street"));
+        //then
+        assertEquals(2, meterRegistry.get(UserMetrics.SERVICE_TIMER).tag("method", "getByEmail").timer().count());
+        assertEquals(1, meterRegistry.get(UserMetrics.SERVICE_TIMER).tag("method", "patchUser").timer().count());
+        assertEquals(0, meterRegistry.get(UserMetrics.SERVICE_TIMER).tag("method", "createUser").timer().count());
     }
 
     @Test
     public void createUser_shouldReturnValidUser() {
         //given
         User user = buildDefaultUser();
-        List<User> users = new ArrayList<>();
-        when(userRepository.getUsers()).thenReturn(users);
+        userRepository.clear();
         //when
         User userCreated = userService.createUser(user);
         //then
@@ -58,7 +89,7 @@ class UserServiceImplUnitTest {
         //given
         User user = buildDefaultUser();
         //when
-        Exception exception = assertThrows(IllegalArgumentException.class,
+        Exception exception = assertThrows(UserAlreadyExistsException.class,
                 () -> userService.createUser(user));
         //then
         assertEquals("User already exist, email:" + user.getEmail(), exception.getMessage());
@@ -83,7 +114,7 @@ class UserServiceImplUnitTest {
         String email = "new@email.com";
         User userWithUpdates = buildUserWithUpdates();
         //when
-        Exception exception = assertThrows(RuntimeException.class,
+        Exception exception = assertThrows(UserNotFoundException.class,
                 () -> userService.updateUser(email, userWithUpdates));
         //then
         assertEquals("User not found, email: " + email, exception.getMessage());
@@ -111,24 +142,34 @@ class UserServiceImplUnitTest {
         Map<String, String> updates = new HashMap<>();
         updates.put("firstName", "Billy");
         //when
-        Exception exception = assertThrows(RuntimeException.class,
+        Exception exception = assertThrows(UserNotFoundException.class,
                 () -> userService.patchUser(email, updates));
         //then
         assertEquals("User not found, email: " + email, exception.getMessage());
     }
 
+    @Test
+    public void patchUser_malformedBirthDate_shouldThrowValidationException() {
+        //given
+        User user = buildDefaultUser();
+        Map<String, String> updates = new HashMap<>();
+        updates.put("birthDate", "2000-13-40");
+        //when
+        UserValidationException exception = assertThrows(UserValidationException.class,
+                () -> userService.patchUser(user.getEmail(), updates));
+        //then
+        assertEquals(ValidationErrorCode.BIRTH_DATE_INVALID, exception.getCode());
+    }
+
     @Test
     public void deleteUser_shouldDeleteValidUser() {
         //given
         User user = buildDefaultUser();
-        List<User> users = new ArrayList<>();
-        users.add(user);
-        when(userRepository.getUsers()).thenReturn(users);
         //when
         boolean result = userService.deleteUser(user.getEmail());
         //then
         assertTrue(result, "The user should have been successfully deleted.");
-        assertFalse(users.contains(user));
+        assertFalse(userRepository.existsByEmail(user.getEmail()));
     }
 
     @Test
@@ -136,7 +177,7 @@ class UserServiceImplUnitTest {
         //given
         String email = "new@email.com";
         //when
-        Exception exception = assertThrows(RuntimeException.class,
+        Exception exception = assertThrows(UserNotFoundException.class,
                 () -> userService.deleteUser(email));
         //then
         assertEquals("User not found, email: " + email, exception.getMessage());
@@ -150,7 +191,6 @@ class UserServiceImplUnitTest {
         users.add(user);
         LocalDate from = LocalDate.of(2000, 1, 1);
         LocalDate to = LocalDate.of(2030, 12, 31);
-        when(userRepository.getUsers()).thenReturn(users);
         //when
         List<User> searchedUsers = userService.searchUsers(from, to);
         //then
@@ -179,4 +219,157 @@ class UserServiceImplUnitTest {
         assertNotNull(userByEmail);
         assertEquals(user, userByEmail);
     }
+
+    @Test
+    public void getByEmail_differentCase_shouldReturnValidUser() {
+        //given
+        User user = buildDefaultUser();
+        //when
+        User userByEmail = userService.getByEmail(user.getEmail().toUpperCase());
+        //then
+        assertEquals(user, userByEmail);
+    }
+
+    @Test
+    public void updateUser_changedEmail_shouldReKeyUser() {
+        //given
+        User user = buildDefaultUser();
+        User userWithNewEmail = buildDefaultUser().withEmail("new@email.com");
+        //when
+        userService.updateUser(user.getEmail(), userWithNewEmail);
+        //then
+        assertFalse(userRepository.existsByEmail(user.getEmail()));
+        assertEquals(userWithNewEmail, userService.getByEmail("new@email.com"));
+    }
+
+    @Test
+    public void patchUser_changedBirthDate_shouldMoveUserInSearchIndex() {
+        //given
+        User user = buildDefaultUser();
+        Map<String, String> updates = new HashMap<>();
+        updates.put("birthDate", "1980-05-05");
+        //when
+        userService.patchUser(user.getEmail(), updates);
+        //then
+        assertEquals(0, userService.searchUsers(LocalDate.of(1999, 1, 1), null).size());
+        assertEquals(1, userService.searchUsers(LocalDate.of(1980, 1, 1), LocalDate.of(1981, 1, 1)).size());
+        assertEquals(1, userRepository.birthDateIndexSize());
+    }
+
+    @Test
+    public void deleteUser_shouldRemoveUserFromSearchIndex() {
+        //given
+        User user = buildDefaultUser();
+        //when
+        userService.deleteUser(user.getEmail());
+        //then
+        assertEquals(0, userService.searchUsers(null, null).size());
+        assertEquals(0, userRepository.birthDateIndexSize());
+    }
+
+    @Test
+    public void searchUsers_withLimit_shouldPageInBirthDateOrder() {
+        //given
+        User older = buildDefaultUser()
+                .withEmail("older@email.com")
+                .withBirthDate(LocalDate.of(1990, 1, 1));
+        userRepository.insertIfAbsent(older);
+        //when
+        UserPage firstPage = userService.searchUsers(null, null, null, 1);
+        UserPage secondPage = userService.searchUsers(null, null, firstPage.getNextCursor(), 1);
+        //then
+        assertEquals(List.of(older), firstPage.getUsers());
+        assertNotNull(firstPage.getNextCursor());
+        assertEquals(List.of(buildDefaultUser()), secondPage.getUsers());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    public void searchUsers_withFilter_shouldMatchWithinRangeAndPage() {
+        //given
+        userRepository.insertIfAbsent(buildDefaultUser().withEmail("older@email.com").withLastName("Doherty")
+                .withBirthDate(LocalDate.of(1990, 1, 1)));
+        userRepository.insertIfAbsent(buildDefaultUser().withEmail("oldest@email.com").withLastName("Dolan")
+                .withBirthDate(LocalDate.of(1980, 1, 1)));
+        userRepository.insertIfAbsent(buildDefaultUser().withEmail("other@other.com").withLastName("Doe"));
+        UserFilter filter = UserFilter.builder().emailDomain("email.com").lastNamePrefix("do").build();
+        //when
+        List<User> inRange = userService.searchUsers(LocalDate.of(1985, 1, 1), null, filter);
+        UserPage firstPage = userService.searchUsers(null, null, filter, null, 2);
+        UserPage secondPage = userService.searchUsers(null, null, filter, firstPage.getNextCursor(), 2);
+        //then
+        assertEquals(List.of("older@email.com", "email@email.com"), inRange.stream().map(User::getEmail).toList());
+        assertEquals(List.of("oldest@email.com", "older@email.com"),
+                firstPage.getUsers().stream().map(User::getEmail).toList());
+        assertEquals(List.of(buildDefaultUser()), secondPage.getUsers());
+        assertNull(secondPage.getNextCursor());
+        assertEquals(1, meterRegistry.get(UserMetrics.SERVICE_TIMER).tag("method", "filterUsers").timer().count());
+    }
+
+    @Test
+    public void searchUsers_invalidCursor_shouldThrowException() {
+        //when
+        Exception exception = assertThrows(InvalidRequestException.class,
+                () -> userService.searchUsers(null, null, "not a cursor", 10));
+        //then
+        assertEquals("Cursor is invalid", exception.getMessage());
+    }
+
+    @Test
+    public void createUsers_shouldReportResultPerItem() {
+        //given
+        User newUser = buildDefaultUser().withEmail("new@email.com");
+        User invalidUser = buildDefaultUser().withEmail("invalid.email");
+        User existingUser = buildDefaultUser();
+        lenient().when(validatorService.validate(invalidUser)).thenReturn(
+                ValidationResult.of(new UserValidationException(ValidationErrorCode.EMAIL_INVALID)));
+        Exception alreadyExists = assertThrows(UserAlreadyExistsException.class,
+                () -> userService.createUser(existingUser));
+        //when
+        List<BatchItemResult> results = userService.createUsers(List.of(newUser, invalidUser, existingUser), false);
+        //then
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(ValidationErrorCode.EMAIL_INVALID.getMessage(), results.get(1).getError());
+        assertEquals(alreadyExists.getMessage(), results.get(2).getError());
+        assertEquals(2, userRepository.size());
+    }
+
+    @Test
+    public void createUsers_upsert_shouldReplaceExistingUser() {
+        //given
+        User userWithUpdates = buildUserWithUpdates();
+        //when
+        List<BatchItemResult> results = userService.createUsers(List.of(userWithUpdates), true);
+        //then
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(userWithUpdates, userService.getByEmail(userWithUpdates.getEmail()));
+    }
+
+    @Test
+    public void deleteUsers_shouldReportResultPerItem() {
+        //given
+        String email = buildDefaultUser().getEmail();
+        Exception notFound = assertThrows(UserNotFoundException.class, () -> userService.deleteUser("new@email.com"));
+        //when
+        List<BatchItemResult> results = userService.deleteUsers(List.of(email, "new@email.com"));
+        //then
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(notFound.getMessage(), results.get(1).getError());
+        assertEquals(0, userRepository.size());
+    }
+
+    @Test
+    public void patchUser_invalidPatch_shouldKeepStoredUser() {
+        //given
+        User user = buildDefaultUser();
+        Map<String, String> updates = new HashMap<>();
+        updates.put("firstName", "");
+        lenient().doThrow(new UserValidationException(ValidationErrorCode.NAME_EMPTY))
+                .when(validatorService).validateUser(user.withFirstName(""));
+        //when
+        assertThrows(UserValidationException.class,
+                () -> userService.patchUser(user.getEmail(), updates));
+        //then
+        assertEquals(user, userService.getByEmail(user.getEmail()));
+    }
 }
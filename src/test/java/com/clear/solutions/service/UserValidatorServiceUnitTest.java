@@ -1,16 +1,25 @@
 package com.clear.solutions.service;
 
 import static com.clear.solutions.util.UserTestUtils.buildDefaultUser;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
 import com.clear.solutions.exception.UserValidationException;
+import com.clear.solutions.exception.ValidationErrorCode;
+import com.clear.solutions.metrics.UserMetrics;
 import com.clear.solutions.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -23,19 +32,19 @@ class UserValidatorServiceUnitTest {
     @Value("${user.minAge}")
     private int minAge;
 
-    @InjectMocks
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-05-01T12:00:00Z"));
     private UserValidatorService userValidatorService;
 
     @BeforeEach
     public void setup() {
-        System.out.println("minAge: " + minAge);
+        userValidatorService = new UserValidatorService(clock);
+        userValidatorService.setMinAge(minAge);
     }
 
     @Test
     public void validateEmail_emptyEmail_shouldThrowException() {
         //given
-        User user = buildDefaultUser();
-        user.setEmail("");
+        User user = buildDefaultUser().withEmail("");
         //when
         Exception exception = assertThrows(UserValidationException.class,
                 () -> userValidatorService.validateUser(user));
@@ -46,8 +55,7 @@ class UserValidatorServiceUnitTest {
     @Test
     public void validateEmail_invalidEmail_shouldThrowException() {
         //given
-        User user = buildDefaultUser();
-        user.setEmail("invalid.email");
+        User user = buildDefaultUser().withEmail("invalid.email");
         //when
         Exception exception = assertThrows(UserValidationException.class,
                 () -> userValidatorService.validateUser(user));
@@ -67,8 +75,7 @@ class UserValidatorServiceUnitTest {
     @Test
     public void validateUser_emptyName_shouldThrowException() {
         //given
-        User user = buildDefaultUser();
-        user.setFirstName("");
+        User user = buildDefaultUser().withFirstName("");
         //when
         Exception exception = assertThrows(UserValidationException.class,
                 () -> userValidatorService.validateUser(user));
@@ -79,8 +86,7 @@ class UserValidatorServiceUnitTest {
     @Test
     public void validateUser_invalidBirthDate_shouldThrowException() {
         //given
-        User user = buildDefaultUser();
-        user.setBirthDate(null);
+        User user = buildDefaultUser().withBirthDate(null);
         //when
         Exception exception = assertThrows(UserValidationException.class,
                 () -> userValidatorService.validateUser(user));
@@ -88,16 +94,136 @@ class UserValidatorServiceUnitTest {
         assertEquals("Birth date is invalid.", exception.getMessage());
     }
 
+    @Test
+    public void validateUser_birthDateBeforeStorableEpochDays_shouldThrowException() {
+        //given
+        User user = buildDefaultUser().withBirthDate(LocalDate.ofEpochDay(Integer.MIN_VALUE - 1L));
+        User earliest = buildDefaultUser().withBirthDate(LocalDate.ofEpochDay(Integer.MIN_VALUE + 1L));
+        //when
+        Exception exception = assertThrows(UserValidationException.class,
+                () -> userValidatorService.validateUser(user));
+        //then
+        assertEquals("Birth date is invalid.", exception.getMessage());
+        assertDoesNotThrow(() -> userValidatorService.validateUser(earliest));
+    }
+
     @Test
     public void validateUser_ageLessThen18_shouldThrowException() {
         //given
-        User user = buildDefaultUser();
-        user.setBirthDate(LocalDate.now().minusYears(14));
-        userValidatorService.minAge = minAge;
+        User user = buildDefaultUser().withBirthDate(today().minusYears(14));
         //when
         Exception exception = assertThrows(UserValidationException.class,
                 () -> userValidatorService.validateUser(user));
         //then
         assertEquals("User is less then " + minAge + " years", exception.getMessage());
     }
+
+    @Test
+    public void validate_severalViolations_shouldReportAllOfThem() {
+        //given
+        User user = buildDefaultUser().withEmail("invalid.email").withLastName(null).withBirthDate(null);
+        //when
+        ValidationResult result = userValidatorService.validate(user);
+        //then
+        assertEquals(List.of(ValidationErrorCode.EMAIL_INVALID, ValidationErrorCode.NAME_EMPTY,
+                        ValidationErrorCode.BIRTH_DATE_INVALID),
+                result.getViolations().stream().map(UserValidationException::getCode).toList());
+        assertEquals("Email format is invalid; First name or last name is null or empty; Birth date is invalid.",
+                result.getMessage());
+    }
+
+    @Test
+    public void validate_validUser_shouldReturnSharedValidResult() {
+        //when
+        ValidationResult result = userValidatorService.validate(buildDefaultUser());
+        //then
+        assertSame(ValidationResult.VALID, result);
+    }
+
+    @Test
+    public void validateUser_acrossMidnight_shouldUseNewDate() {
+        //given
+        clock.set(Instant.parse("2024-05-01T23:59:59Z"));
+        User turnsAdultTomorrow = buildDefaultUser().withBirthDate(today().plusDays(1).minusYears(minAge));
+        User bornTomorrow = buildDefaultUser().withBirthDate(today().plusDays(1));
+        assertThrows(UserValidationException.class, () -> userValidatorService.validateUser(turnsAdultTomorrow));
+        Exception beforeMidnight = assertThrows(UserValidationException.class,
+                () -> userValidatorService.validateUser(bornTomorrow));
+        assertEquals("Birth date is invalid.", beforeMidnight.getMessage());
+        //when
+        clock.set(Instant.parse("2024-05-02T00:00:00Z"));
+        //then
+        assertDoesNotThrow(() -> userValidatorService.validateUser(turnsAdultTomorrow));
+        Exception exception = assertThrows(UserValidationException.class,
+                () -> userValidatorService.validateUser(bornTomorrow));
+        assertEquals("User is less then " + minAge + " years", exception.getMessage());
+    }
+
+    @Test
+    public void validation_shouldBeTimedAndCountedPerErrorCode() {
+        //given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        userValidatorService.setMetrics(new UserMetrics(meterRegistry));
+        User user = buildDefaultUser().withEmail("invalid.email").withBirthDate(null);
+        //when
+        assertThrows(UserValidationException.class, () -> userValidatorService.validateUser(user));
+        userValidatorService.validate(user);
+        userValidatorService.validateEmail(buildDefaultUser().getEmail());
+        //then
+        assertEquals(2.0, meterRegistry.get(UserMetrics.VALIDATION_ERRORS)
+                .tag("code", ValidationErrorCode.EMAIL_INVALID.name()).counter().count());
+        assertEquals(1.0, meterRegistry.get(UserMetrics.VALIDATION_ERRORS)
+                .tag("code", ValidationErrorCode.BIRTH_DATE_INVALID.name()).counter().count());
+        assertEquals(1, meterRegistry.get(UserMetrics.VALIDATION_TIMER).tag("check", "validateUser").timer().count());
+        assertEquals(1, meterRegistry.get(UserMetrics.VALIDATION_TIMER).tag("check", "validate").timer().count());
+        assertEquals(1, meterRegistry.get(UserMetrics.VALIDATION_TIMER).tag("check", "validateEmail").timer().count());
+    }
+
+    @Test
+    public void setMinAge_shouldApplyNewThreshold() {
+        //given
+        User user = buildDefaultUser().withBirthDate(today().minusYears(minAge + 1));
+        userValidatorService.validateUser(user);
+        //when
+        userValidatorService.setMinAge(minAge + 2);
+        //then
+        Exception exception = assertThrows(UserValidationException.class,
+                () -> userValidatorService.validateUser(user));
+        assertEquals("User is less then " + (minAge + 2) + " years", exception.getMessage());
+        assertEquals(minAge + 2, userValidatorService.getMinAge());
+    }
+
+    private LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
+    /**
+     * Fixed clock that tests can move.
+     */
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void set(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
 }